@@ -0,0 +1,19 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * [ACK, s, m] for every origin s and every sequence number in acks.get(s), in ascending order:
+ * the sender has logged these messages.
+ */
+public class AckBatch implements KompicsEvent, Serializable {
+    public final Map<NetAddress, long[]> acks;
+
+    public AckBatch(Map<NetAddress, long[]> acks) {
+        this.acks = acks;
+    }
+}
@@ -1,15 +1,12 @@
 package scyuan.irsdp.broadcast;
 
-import org.javatuples.Pair;
 import scyuan.irsdp.failuredetector.Crash;
 import scyuan.irsdp.failuredetector.PerfectFailureDetector;
 import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.SequenceWindow;
 import se.sics.kompics.*;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  *
@@ -50,86 +47,128 @@ import java.util.Set;
  *     delivered := delivered ∪ {m};
  *     trigger [ urb, Deliver | s, m ];
  *
+ * Processes are numbered by Ranks, so ack[m] and correct are bitsets and
+ * candeliver(m) is a few word operations. candeliver only changes for m
+ * when ack[m] grows or correct shrinks, so a beb delivery checks just its
+ * own message and only a crash walks pending. Delivered messages leave
+ * pending; delivered is a SequenceWindow per origin, bounded to
+ * dedupWindow numbers past its watermark.
+ *
  */
 public class AllAckUniformReliableBroadcastComp extends ComponentDefinition {
     private Negative<UniformReliableBroadcast> urb = provides(UniformReliableBroadcast.class);
     private Positive<BestEffortBroadcast> beb = requires(BestEffortBroadcast.class);
     private Positive<PerfectFailureDetector> pfd = requires(PerfectFailureDetector.class);
 
-    private Set<KompicsEvent> delivered;
-    private Set<Pair<NetAddress, KompicsEvent>> pending;
-    private Map<KompicsEvent, Set<NetAddress>> ack;
+    private Map<NetAddress, SequenceWindow> delivered;
+    private Map<ReliableBroadcastMessage, long[]> pending;
     private NetAddress self;
-    private Set<NetAddress> correct;
+    private Ranks ranks;
+    private long[] correct;
+    private long sn;
+    private final int dedupWindow;
 
     public AllAckUniformReliableBroadcastComp(AllAckUniformReliableBroadcastComp.Init init) {
         this.self = init.self;
-        this.delivered = new HashSet<>();
-        this.pending = new HashSet<>();
-        this.ack = new HashMap<>();
-        this.correct = new HashSet<>(init.all);
+        this.delivered = new HashMap<>();
+        this.pending = new HashMap<>();
+        this.ranks = new Ranks(init.all);
+        this.correct = ranks.newBitset();
+        for (int i = 0; i < ranks.size(); i++) {
+            correct[i >>> 6] |= 1L << i;
+        }
+        this.sn = 0;
+        this.dedupWindow = init.dedupWindow;
 
         subscribe(crashHandler, pfd);
         subscribe(broadcastHandler, urb);
         subscribe(deliverHandler, beb);
     }
 
-    private void check() {
-        for (Pair<NetAddress, KompicsEvent> pair : pending) {
-            if (candeliver(pair.getValue1()) && !delivered.contains(pair.getValue1())) {
-                delivered.add(pair.getValue1());
-                trigger(new BroadcastDeliver(pair.getValue1(), pair.getValue0()), urb);
-            }
-        }
+    private boolean candeliver(long[] ack) {
+        return Ranks.covers(ack, correct);
     }
 
-    private boolean candeliver(KompicsEvent m) {
-        Set<NetAddress> from = ack.get(m);
-        if (from == null) {
-            return false;
-        }
-
-        return from.containsAll(correct);
+    private void deliver(ReliableBroadcastMessage m) {
+        pending.remove(m);
+        delivered.computeIfAbsent(m.src, k -> new SequenceWindow(dedupWindow)).add(m.sn);
+        trigger(new BroadcastDeliver(m.payload, m.src), urb);
     }
 
     private Handler<Crash> crashHandler = new Handler<Crash>() {
         @Override
         public void handle(Crash event) {
-            correct.remove(event.p);
-            check();
+            int rank = ranks.of(event.p);
+            if (rank < 0) {
+                return;
+            }
+            correct[rank >>> 6] &= ~(1L << rank);
+
+            List<ReliableBroadcastMessage> deliverable = new ArrayList<>();
+            for (Map.Entry<ReliableBroadcastMessage, long[]> entry : pending.entrySet()) {
+                if (candeliver(entry.getValue())) {
+                    deliverable.add(entry.getKey());
+                }
+            }
+            for (ReliableBroadcastMessage m : deliverable) {
+                deliver(m);
+            }
         }
     };
 
     private Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
-            pending.add(Pair.with(self, event.payload));
-            trigger(new Broadcast(new ReliableBroadcastMessage(event.payload, event.nodes), event.nodes, self), beb);
-            check();
+            ReliableBroadcastMessage m = new ReliableBroadcastMessage(self, sn++, event.payload, event.nodes);
+            pending.put(m, ranks.newBitset());
+            trigger(new Broadcast(m, event.nodes, self), beb);
         }
     };
 
     private ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(ReliableBroadcastMessage content, BroadcastDeliver context) {
-            Set<NetAddress> from = ack.computeIfAbsent(content.payload, k -> new HashSet<>());
-            from.add(context.src);
-            if (!pending.contains(Pair.with(context.src, content.payload))) {
-                pending.add(Pair.with(context.src, content.payload));
-                trigger(new Broadcast(new ReliableBroadcastMessage(content.payload, content.nodes), content.nodes, context.src), beb);
+            long[] ack = pending.get(content);
+            if (ack == null) {
+                SequenceWindow window = delivered.get(content.src);
+                if (window != null && window.contains(content.sn)) {
+                    return;
+                }
+                ack = ranks.newBitset();
+                pending.put(content, ack);
+                trigger(new Broadcast(content, content.nodes, context.src), beb);
+            }
+
+            int rank = ranks.of(context.src);
+            if (rank >= 0) {
+                ack[rank >>> 6] |= 1L << rank;
+            }
+            if (candeliver(ack)) {
+                deliver(content);
             }
-            check();
         }
     };
 
     public static class Init extends se.sics.kompics.Init<AllAckUniformReliableBroadcastComp> {
         private final NetAddress self;
         private final Set<NetAddress> all;
+        private int dedupWindow = 1 << 16;
 
         public Init(NetAddress self, Set<NetAddress> all) {
             this.self = self;
             this.all = all;
         }
+
+        /**
+         * Track up to dedupWindow out-of-order sequence numbers per origin.
+         */
+        public Init withDedupWindow(int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.dedupWindow = dedupWindow;
+            return this;
+        }
     }
 
 }
@@ -1,9 +1,8 @@
 package scyuan.irsdp.broadcast;
 
 import scyuan.irsdp.link.Deliver;
-import scyuan.irsdp.link.NetAddress;
 import scyuan.irsdp.link.PerfectPointToPointLink;
-import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.SendAll;
 import se.sics.kompics.*;
 
 /**
@@ -23,6 +22,9 @@ import se.sics.kompics.*;
  * upon event [ pl, Deliver | p, m ] do
  *     trigger [ beb, Deliver | p, m ];
  *
+ * The sends to all q are handed to pl as one SendAll, so m is encoded once
+ * when IrsdpSerializers is registered, and sent per peer otherwise.
+ *
  */
 public class BasicBroadcastComp extends ComponentDefinition {
     private final Negative<BestEffortBroadcast> beb = provides(BestEffortBroadcast.class);
@@ -36,9 +38,7 @@ public class BasicBroadcastComp extends ComponentDefinition {
     private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
-            for (NetAddress q : event.nodes) {
-                trigger(new Send(q, event.payload), pl);
-            }
+            trigger(new SendAll(event.nodes, event.payload), pl);
         }
     };
 
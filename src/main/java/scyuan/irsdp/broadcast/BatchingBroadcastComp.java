@@ -0,0 +1,162 @@
+package scyuan.irsdp.broadcast;
+
+import se.sics.kompics.*;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ *
+ *
+ * Batching stage in front of a broadcast abstraction whose port carries
+ * Broadcast and BroadcastDeliver, e.g. ReliableBroadcast,
+ * UniformReliableBroadcast, FIFOReliableBroadcast or
+ * CausalOrderReliableBroadcast. It provides the same port type it requires.
+ *
+ * upon event [ up, Broadcast | m ] do
+ *     batch := batch · m;
+ *     if #(batch) = maxBatch then flush();
+ *
+ * upon event [ Timeout ] do          // every lingerMs
+ *     flush();
+ *
+ * procedure flush() is
+ *     if batch != [] then
+ *         trigger [ down, Broadcast | [BATCH, batch] ];
+ *         batch := [];
+ *
+ * upon event [ down, Deliver | s, [BATCH, ms] ] do
+ *     forall m ∈ ms, in order, do
+ *         trigger [ up, Deliver | s, m ];
+ *
+ * The layer below pays its sequence numbers, acks, dedup entries and
+ * headers once per batch instead of once per payload. A batch is one
+ * message of its sender and is unbatched in broadcast order, so the FIFO
+ * and causal order of the layer below carries over to the payloads. A batch
+ * only holds broadcasts to the same nodes, and a batch of one payload is
+ * broadcast without the envelope.
+ *
+ */
+public class BatchingBroadcastComp extends ComponentDefinition {
+    private final Negative<? extends PortType> up;
+    private final Positive<? extends PortType> down;
+    private final Positive<Timer> timer = requires(Timer.class);
+
+    private final long lingerMs;
+    private final int maxBatch;
+
+    private List<KompicsEvent> batch;
+    private Broadcast first;
+
+    private UUID timerId;
+
+    public BatchingBroadcastComp(Init init) {
+        this.up = provides(init.port);
+        this.down = requires(init.port);
+        this.lingerMs = init.lingerMs;
+        this.maxBatch = init.maxBatch;
+        this.batch = new ArrayList<>();
+
+        subscribe(startHandler, control);
+        subscribe(broadcastHandler, up);
+        subscribe(deliverHandler, down);
+        subscribe(lingerHandler, timer);
+    }
+
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(lingerMs, lingerMs);
+            LingerTimeout timeout = new LingerTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            if (first != null && !(first.nodes.equals(event.nodes) && first.src.equals(event.src))) {
+                flush();
+            }
+            if (first == null) {
+                first = event;
+            }
+            batch.add(event.payload);
+            if (batch.size() >= maxBatch) {
+                flush();
+            }
+        }
+    };
+
+    private final Handler<LingerTimeout> lingerHandler = new Handler<LingerTimeout>() {
+        @Override
+        public void handle(LingerTimeout event) {
+            flush();
+        }
+    };
+
+    private final Handler<BroadcastDeliver> deliverHandler = new Handler<BroadcastDeliver>() {
+        @Override
+        public void handle(BroadcastDeliver event) {
+            if (event.payload instanceof BroadcastBatch) {
+                for (KompicsEvent payload : ((BroadcastBatch) event.payload).payloads) {
+                    trigger(new BroadcastDeliver(payload, event.src), up);
+                }
+            } else {
+                trigger(event, up);
+            }
+        }
+    };
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            trigger(first, down);
+        } else {
+            trigger(new Broadcast(new BroadcastBatch(batch), first.nodes, first.src), down);
+        }
+        batch = new ArrayList<>();
+        first = null;
+    }
+
+    @Override
+    public void tearDown() {
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
+        }
+    }
+
+    public static class LingerTimeout extends Timeout {
+        public LingerTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<BatchingBroadcastComp> {
+        private final Class<? extends PortType> port;
+        private final long lingerMs;
+        private final int maxBatch;
+
+        /**
+         * port is the broadcast abstraction to batch, provided and required at once; a batch is
+         * broadcast after maxBatch payloads or at the latest after lingerMs.
+         */
+        public Init(Class<? extends PortType> port, long lingerMs, int maxBatch) {
+            if (maxBatch < 1 || lingerMs <= 0) {
+                throw new IllegalArgumentException("maxBatch must be >= 1 and lingerMs > 0");
+            }
+            this.port = port;
+            this.lingerMs = lingerMs;
+            this.maxBatch = maxBatch;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package scyuan.irsdp.broadcast;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Payloads broadcast by one process during one linger window, in the order they were broadcast.
+ */
+public class BroadcastBatch implements KompicsEvent, Serializable {
+    public final List<KompicsEvent> payloads;
+
+    public BroadcastBatch(List<KompicsEvent> payloads) {
+        this.payloads = payloads;
+    }
+}
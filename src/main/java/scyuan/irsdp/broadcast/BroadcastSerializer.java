@@ -0,0 +1,329 @@
+package scyuan.irsdp.broadcast;
+
+import io.netty.buffer.ByteBuf;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.network.netty.serialization.Serializer;
+
+import java.util.*;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Compact encoding of the broadcast messages: a one byte tag followed by the fields.
+ * Payloads are nested through the Kompics Serializers registry.
+ *
+ */
+public class BroadcastSerializer implements Serializer {
+
+    private static final byte RELIABLE = 1;
+    private static final byte FIFO = 2;
+    private static final byte WAITING_CAUSAL = 3;
+    private static final byte CAUSAL = 4;
+    private static final byte STABILITY = 5;
+    private static final byte GOSSIP = 6;
+    private static final byte DATA = 7;
+    private static final byte DIGEST = 8;
+    private static final byte PULL = 9;
+    private static final byte WRITE_BATCH = 10;
+    private static final byte ACK_BATCH = 11;
+    private static final byte TREE = 12;
+    private static final byte BATCH = 13;
+    private static final byte TREE_ACK = 14;
+
+    private final int id;
+
+    public BroadcastSerializer(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        if (o instanceof ReliableBroadcastMessage) {
+            ReliableBroadcastMessage m = (ReliableBroadcastMessage) o;
+            buf.writeByte(RELIABLE);
+            writeAddress(buf, m.src);
+            writeUnsignedVarLong(buf, m.sn);
+            writeObject(buf, m.payload);
+            writeNodes(buf, m.nodes);
+        } else if (o instanceof FIFOReliableBroadcastMessage) {
+            FIFOReliableBroadcastMessage m = (FIFOReliableBroadcastMessage) o;
+            buf.writeByte(FIFO);
+            writeAddress(buf, m.src);
+            writeObject(buf, m.payload);
+            writeVarLong(buf, m.sn);
+        } else if (o instanceof WaitingCausalBroadcastMessage) {
+            WaitingCausalBroadcastMessage m = (WaitingCausalBroadcastMessage) o;
+            buf.writeByte(WAITING_CAUSAL);
+            writeAddress(buf, m.src);
+            writeObject(buf, m.payload);
+            writeClock(buf, m.vectorClock);
+        } else if (o instanceof CausalOrderReliableBroadcastMessage) {
+            CausalOrderReliableBroadcastMessage m = (CausalOrderReliableBroadcastMessage) o;
+            buf.writeByte(CAUSAL);
+            writeAddress(buf, m.src);
+            writeUnsignedVarLong(buf, m.sn);
+            writeObject(buf, m.payload);
+            writeVarInt(buf, m.mpast.size());
+            for (ProcessMessageTuple tuple : m.mpast) {
+                writeAddress(buf, tuple.p);
+                writeUnsignedVarLong(buf, tuple.sn);
+                writeObject(buf, tuple.m);
+            }
+        } else if (o instanceof StabilityMessage) {
+            StabilityMessage m = (StabilityMessage) o;
+            buf.writeByte(STABILITY);
+            writeNodes(buf, m.nodes);
+            writeVarInt(buf, m.delivered.size());
+            for (Map.Entry<NetAddress, Long> entry : m.delivered.entrySet()) {
+                writeAddress(buf, entry.getKey());
+                writeUnsignedVarLong(buf, entry.getValue());
+            }
+        } else if (o instanceof GossipMessage) {
+            GossipMessage m = (GossipMessage) o;
+            buf.writeByte(GOSSIP);
+            writeAddress(buf, m.src);
+            writeUnsignedVarLong(buf, m.sn);
+            writeVarInt(buf, m.rounds);
+            writeObject(buf, m.payload);
+        } else if (o instanceof DataMessage) {
+            DataMessage m = (DataMessage) o;
+            buf.writeByte(DATA);
+            writeAddress(buf, m.src);
+            writeUnsignedVarLong(buf, m.sn);
+            writeObject(buf, m.payload);
+        } else if (o instanceof DigestMessage) {
+            DigestMessage m = (DigestMessage) o;
+            buf.writeByte(DIGEST);
+            writeVarInt(buf, m.ranges.size());
+            for (Map.Entry<NetAddress, long[]> entry : m.ranges.entrySet()) {
+                writeAddress(buf, entry.getKey());
+                writeUnsignedVarLong(buf, entry.getValue()[0]);
+                writeUnsignedVarLong(buf, entry.getValue()[1] - entry.getValue()[0]);
+            }
+        } else if (o instanceof PullMessage) {
+            PullMessage m = (PullMessage) o;
+            buf.writeByte(PULL);
+            writeAddress(buf, m.src);
+            writeSequenceNumbers(buf, m.sns);
+        } else if (o instanceof WriteBatch) {
+            WriteBatch m = (WriteBatch) o;
+            buf.writeByte(WRITE_BATCH);
+            buf.writeBoolean(m.recovery);
+            writeVarInt(buf, m.writes.size());
+            for (DataMessage write : m.writes) {
+                writeAddress(buf, write.src);
+                writeUnsignedVarLong(buf, write.sn);
+                writeObject(buf, write.payload);
+            }
+        } else if (o instanceof AckBatch) {
+            AckBatch m = (AckBatch) o;
+            buf.writeByte(ACK_BATCH);
+            writeVarInt(buf, m.acks.size());
+            for (Map.Entry<NetAddress, long[]> entry : m.acks.entrySet()) {
+                writeAddress(buf, entry.getKey());
+                writeSequenceNumbers(buf, entry.getValue());
+            }
+        } else if (o instanceof TreeMessage) {
+            TreeMessage m = (TreeMessage) o;
+            buf.writeByte(TREE);
+            writeAddress(buf, m.root);
+            writeUnsignedVarLong(buf, m.sn);
+            writeVarInt(buf, m.from);
+            writeVarInt(buf, m.to);
+            writeObject(buf, m.payload);
+        } else if (o instanceof TreeAck) {
+            TreeAck m = (TreeAck) o;
+            buf.writeByte(TREE_ACK);
+            writeAddress(buf, m.root);
+            writeUnsignedVarLong(buf, m.sn);
+            writeVarInt(buf, m.to);
+        } else if (o instanceof BroadcastBatch) {
+            BroadcastBatch m = (BroadcastBatch) o;
+            buf.writeByte(BATCH);
+            writeVarInt(buf, m.payloads.size());
+            for (KompicsEvent payload : m.payloads) {
+                writeObject(buf, payload);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + o.getClass());
+        }
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        byte tag = buf.readByte();
+        switch (tag) {
+            case RELIABLE: {
+                NetAddress src = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                KompicsEvent payload = (KompicsEvent) readObject(buf);
+                return new ReliableBroadcastMessage(src, sn, payload, readNodes(buf));
+            }
+            case FIFO: {
+                NetAddress src = readAddress(buf);
+                KompicsEvent payload = (KompicsEvent) readObject(buf);
+                return new FIFOReliableBroadcastMessage(src, payload, readVarLong(buf));
+            }
+            case WAITING_CAUSAL: {
+                NetAddress src = readAddress(buf);
+                KompicsEvent payload = (KompicsEvent) readObject(buf);
+                return new WaitingCausalBroadcastMessage(src, payload, readClock(buf));
+            }
+            case CAUSAL: {
+                NetAddress src = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                KompicsEvent payload = (KompicsEvent) readObject(buf);
+                int size = readVarInt(buf);
+                List<ProcessMessageTuple> mpast = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    NetAddress p = readAddress(buf);
+                    long tupleSn = readUnsignedVarLong(buf);
+                    mpast.add(new ProcessMessageTuple(p, tupleSn, (KompicsEvent) readObject(buf)));
+                }
+                return new CausalOrderReliableBroadcastMessage(src, sn, payload, mpast);
+            }
+            case STABILITY: {
+                Set<NetAddress> nodes = readNodes(buf);
+                int size = readVarInt(buf);
+                Map<NetAddress, Long> delivered = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    NetAddress origin = readAddress(buf);
+                    delivered.put(origin, readUnsignedVarLong(buf));
+                }
+                return new StabilityMessage(nodes, delivered);
+            }
+            case GOSSIP: {
+                NetAddress src = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                int rounds = readVarInt(buf);
+                return new GossipMessage(src, sn, (KompicsEvent) readObject(buf), rounds);
+            }
+            case DATA: {
+                NetAddress src = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                return new DataMessage(src, sn, (KompicsEvent) readObject(buf));
+            }
+            case DIGEST: {
+                int size = readVarInt(buf);
+                Map<NetAddress, long[]> ranges = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    NetAddress origin = readAddress(buf);
+                    long from = readUnsignedVarLong(buf);
+                    ranges.put(origin, new long[]{from, from + readUnsignedVarLong(buf)});
+                }
+                return new DigestMessage(ranges);
+            }
+            case PULL: {
+                NetAddress src = readAddress(buf);
+                return new PullMessage(src, readSequenceNumbers(buf));
+            }
+            case WRITE_BATCH: {
+                boolean recovery = buf.readBoolean();
+                int size = readVarInt(buf);
+                List<DataMessage> writes = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    NetAddress src = readAddress(buf);
+                    long sn = readUnsignedVarLong(buf);
+                    writes.add(new DataMessage(src, sn, (KompicsEvent) readObject(buf)));
+                }
+                return new WriteBatch(recovery, writes);
+            }
+            case ACK_BATCH: {
+                int size = readVarInt(buf);
+                Map<NetAddress, long[]> acks = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    NetAddress origin = readAddress(buf);
+                    acks.put(origin, readSequenceNumbers(buf));
+                }
+                return new AckBatch(acks);
+            }
+            case TREE: {
+                NetAddress root = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                int from = readVarInt(buf);
+                int to = readVarInt(buf);
+                return new TreeMessage(root, sn, (KompicsEvent) readObject(buf), from, to);
+            }
+            case TREE_ACK: {
+                NetAddress root = readAddress(buf);
+                long sn = readUnsignedVarLong(buf);
+                return new TreeAck(root, sn, readVarInt(buf));
+            }
+            case BATCH: {
+                int size = readVarInt(buf);
+                List<KompicsEvent> payloads = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    payloads.add((KompicsEvent) readObject(buf));
+                }
+                return new BroadcastBatch(payloads);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    /**
+     * Entries of a vector clock count messages and are never negative, so each one is written as
+     * an unsigned varint: a clock entry below 128 takes one byte, where a fixed long takes eight.
+     */
+    private void writeClock(ByteBuf buf, long[] clock) {
+        writeVarInt(buf, clock.length);
+        for (long entry : clock) {
+            writeUnsignedVarLong(buf, entry);
+        }
+    }
+
+    private long[] readClock(ByteBuf buf) {
+        long[] clock = new long[readVarInt(buf)];
+        for (int i = 0; i < clock.length; i++) {
+            clock[i] = readUnsignedVarLong(buf);
+        }
+        return clock;
+    }
+
+    /**
+     * Ascending sequence numbers, each written as the unsigned varint of its difference to the previous one.
+     */
+    private void writeSequenceNumbers(ByteBuf buf, long[] sns) {
+        writeVarInt(buf, sns.length);
+        long previous = 0;
+        for (long sn : sns) {
+            writeUnsignedVarLong(buf, sn - previous);
+            previous = sn;
+        }
+    }
+
+    private long[] readSequenceNumbers(ByteBuf buf) {
+        long[] sns = new long[readVarInt(buf)];
+        long previous = 0;
+        for (int i = 0; i < sns.length; i++) {
+            previous += readUnsignedVarLong(buf);
+            sns[i] = previous;
+        }
+        return sns;
+    }
+
+    private void writeNodes(ByteBuf buf, Set<NetAddress> nodes) {
+        writeVarInt(buf, nodes.size());
+        for (NetAddress node : nodes) {
+            writeAddress(buf, node);
+        }
+    }
+
+    private Set<NetAddress> readNodes(ByteBuf buf) {
+        int size = readVarInt(buf);
+        Set<NetAddress> nodes = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            nodes.add(readAddress(buf));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,112 @@
+package scyuan.irsdp.broadcast;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ *
+ *
+ * Pending messages of a vector-clock causal broadcast, with the vector V of
+ * messages delivered per sender rank.
+ *
+ * A message m from s with clock W can only be delivered after every earlier
+ * message of s, so messages wait per sender, keyed by W[s], and only the one
+ * with W[s] = V[s] is ever checked. If that head is blocked, it is parked on
+ * the first rank j with W[j] > V[j] and checked again when V[j] advances.
+ * Each delivery therefore costs one O(N) comparison per check, instead of a
+ * scan of all pending messages.
+ *
+ */
+final class CausalDeliveryQueue<T> {
+
+    private final long[] delivered;
+    private final List<Map<Long, Entry<T>>> pending;
+    private final List<List<Integer>> waiters;
+    private final int[] waitingOn;
+    private final ArrayDeque<Integer> ready;
+
+    CausalDeliveryQueue(int n) {
+        this.delivered = new long[n];
+        this.pending = new ArrayList<>(n);
+        this.waiters = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            pending.add(new HashMap<>());
+            waiters.add(new ArrayList<>());
+        }
+        this.waitingOn = new int[n];
+        Arrays.fill(waitingOn, -1);
+        this.ready = new ArrayDeque<>();
+    }
+
+    /**
+     * V: the number of messages delivered from each rank. Callers must not modify it.
+     */
+    long[] delivered() {
+        return delivered;
+    }
+
+    /**
+     * Add message item from rank s with clock w, then hand every message that became
+     * deliverable to deliver, in causal order.
+     */
+    void add(int s, long[] w, T item, Consumer<T> deliver) {
+        if (w[s] < delivered[s]) {
+            return;
+        }
+        pending.get(s).put(w[s], new Entry<>(w, item));
+        if (w[s] != delivered[s] || waitingOn[s] >= 0) {
+            return;
+        }
+
+        ready.add(s);
+        while (!ready.isEmpty()) {
+            int p = ready.poll();
+            Entry<T> head = pending.get(p).get(delivered[p]);
+            if (head == null) {
+                continue;
+            }
+            int j = blocker(head.w);
+            if (j >= 0) {
+                if (waitingOn[p] != j) {
+                    waitingOn[p] = j;
+                    waiters.get(j).add(p);
+                }
+                continue;
+            }
+
+            pending.get(p).remove(delivered[p]);
+            delivered[p] += 1;
+            deliver.accept(head.item);
+
+            ready.add(p);
+            List<Integer> unblocked = waiters.get(p);
+            for (int q : unblocked) {
+                waitingOn[q] = -1;
+                ready.add(q);
+            }
+            unblocked.clear();
+        }
+    }
+
+    /**
+     * The first rank j with w[j] > V[j], or -1 if w <= V.
+     */
+    private int blocker(long[] w) {
+        for (int j = 0; j < w.length; j++) {
+            if (w[j] > delivered[j]) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    private static class Entry<T> {
+        private final long[] w;
+        private final T item;
+
+        private Entry(long[] w, T item) {
+            this.w = w;
+            this.item = item;
+        }
+    }
+}
@@ -10,11 +10,13 @@ import java.util.Objects;
 
 public class CausalOrderReliableBroadcastMessage implements KompicsEvent, Serializable, PatternExtractor<Class<Object>, KompicsEvent> {
     public final NetAddress src;
+    public final long sn;
     public final KompicsEvent payload;
     public final List<ProcessMessageTuple> mpast;
 
-    public CausalOrderReliableBroadcastMessage(NetAddress src, KompicsEvent payload, List<ProcessMessageTuple> mpast) {
+    public CausalOrderReliableBroadcastMessage(NetAddress src, long sn, KompicsEvent payload, List<ProcessMessageTuple> mpast) {
         this.src = src;
+        this.sn = sn;
         this.payload = payload;
         this.mpast = mpast;
     }
@@ -35,13 +37,12 @@ public class CausalOrderReliableBroadcastMessage implements KompicsEvent, Serial
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CausalOrderReliableBroadcastMessage that = (CausalOrderReliableBroadcastMessage) o;
-        return src.equals(that.src) &&
-                payload.equals(that.payload) &&
-                mpast.equals(that.mpast);
+        return sn == that.sn &&
+                src.equals(that.src);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(src, payload, mpast);
+        return Objects.hash(src, sn);
     }
 }
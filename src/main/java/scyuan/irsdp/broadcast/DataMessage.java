@@ -0,0 +1,48 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PatternExtractor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * [DATA, s, m, sn]: message m, the sn-th broadcast of s, sent once and repaired on demand.
+ */
+public class DataMessage implements KompicsEvent, Serializable, PatternExtractor<Class<Object>, KompicsEvent> {
+    public final NetAddress src;
+    public final long sn;
+    public final KompicsEvent payload;
+
+    public DataMessage(NetAddress src, long sn, KompicsEvent payload) {
+        this.src = src;
+        this.sn = sn;
+        this.payload = payload;
+    }
+
+    @Override
+    public Class<Object> extractPattern() {
+        Class c = payload.getClass();
+        return (Class<Object>) c;
+    }
+
+    @Override
+    public KompicsEvent extractValue() {
+        return payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DataMessage that = (DataMessage) o;
+        return sn == that.sn &&
+                src.equals(that.src);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(src, sn);
+    }
+}
@@ -0,0 +1,19 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The messages the sender can retransmit: for every origin s, ranges.get(s) is {from, to}, the
+ * lowest and one past the highest sequence number of s in the sender's store.
+ */
+public class DigestMessage implements KompicsEvent, Serializable {
+    public final Map<NetAddress, long[]> ranges;
+
+    public DigestMessage(Map<NetAddress, long[]> ranges) {
+        this.ranges = ranges;
+    }
+}
@@ -0,0 +1,139 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.FairLossPointToPointLink;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.SequenceWindow;
+import se.sics.kompics.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ *
+ *
+ * Fail-Silent Algorithm
+ *
+ * Algorithm 3.9: Eager Probabilistic Broadcast
+ * Implements:
+ *     ProbabilisticBroadcast, instance pb.
+ * Uses:
+ *     FairLossPointToPointLinks, instance fll.
+ *
+ * upon event [ pb, Init ] do
+ *     delivered := ∅;
+ *
+ * procedure gossip(msg) is
+ *     forall t ∈ picktargets(k) do trigger [ fll, Send | t, msg ];
+ *
+ * upon event [ pb, Broadcast | m ] do
+ *     delivered := delivered ∪ {m};
+ *     trigger [ pb, Deliver | self, m ];
+ *     gossip([GOSSIP, self, m, R]);
+ *
+ * upon event [ fll, Deliver | p, [GOSSIP, s, m, r] ] do
+ *     if m !∈ delivered then
+ *         delivered := delivered ∪ {m};
+ *         trigger [ pb, Deliver | s, m ];
+ *     if r > 1 then gossip([GOSSIP, s, m, r − 1]);
+ *
+ * function picktargets(k) returns set of processes is
+ *     targets := ∅;
+ *     while #(targets) < k do
+ *         candidate := random(Π \ {self});
+ *         if candidate !∈ targets then
+ *             targets := targets ∪ {candidate};
+ *     return targets;
+ *
+ * Each process sends at most k messages per message and round, whatever N
+ * is. Messages are identified by (s, sn) and delivered is a SequenceWindow
+ * per origin capped at dedupWindow numbers: a bounded cache of recent ids,
+ * where numbers that fall behind the window count as delivered. picktargets
+ * is GossipTargets, a partial Fisher-Yates shuffle that does not allocate.
+ *
+ */
+public class EagerProbabilisticBroadcastComp extends ComponentDefinition {
+    private final Negative<ProbabilisticBroadcast> pb = provides(ProbabilisticBroadcast.class);
+    private final Positive<FairLossPointToPointLink> fll = requires(FairLossPointToPointLink.class);
+
+    private final NetAddress self;
+    private final int fanout;
+    private final int rounds;
+    private final int dedupWindow;
+    private final GossipTargets targets;
+
+    private long lsn;
+    private Map<NetAddress, SequenceWindow> delivered;
+
+    public EagerProbabilisticBroadcastComp(Init init) {
+        this.self = init.self;
+        this.fanout = init.fanout;
+        this.rounds = init.rounds;
+        this.dedupWindow = init.dedupWindow;
+        this.targets = new GossipTargets(init.self, init.all, new Random());
+        this.lsn = 0;
+        this.delivered = new HashMap<>();
+
+        subscribe(broadcastHandler, pb);
+        subscribe(gossipHandler, fll);
+    }
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            long sn = lsn++;
+            window(self).add(sn);
+            trigger(new BroadcastDeliver(event.payload, self), pb);
+            gossip(new GossipMessage(self, sn, event.payload, rounds));
+        }
+    };
+
+    private final ClassMatchedHandler<GossipMessage, Deliver> gossipHandler = new ClassMatchedHandler<GossipMessage, Deliver>() {
+        @Override
+        public void handle(GossipMessage content, Deliver context) {
+            if (window(content.src).add(content.sn)) {
+                trigger(new BroadcastDeliver(content.payload, content.src), pb);
+            }
+            if (content.rounds > 1) {
+                gossip(new GossipMessage(content.src, content.sn, content.payload, content.rounds - 1));
+            }
+        }
+    };
+
+    private void gossip(GossipMessage msg) {
+        int k = targets.pick(fanout);
+        for (int i = 0; i < k; i++) {
+            trigger(new Send(targets.get(i), msg), fll);
+        }
+    }
+
+    private SequenceWindow window(NetAddress s) {
+        return delivered.computeIfAbsent(s, k -> new SequenceWindow(dedupWindow));
+    }
+
+    public static class Init extends se.sics.kompics.Init<EagerProbabilisticBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final int fanout;
+        private final int rounds;
+        private final int dedupWindow;
+
+        /**
+         * Gossip to fanout peers for rounds rounds, remembering up to dedupWindow out-of-order
+         * numbers per origin; dedupWindow must be between 64 and 2^30.
+         */
+        public Init(NetAddress self, Set<NetAddress> all, int fanout, int rounds, int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.self = self;
+            this.all = all;
+            this.fanout = fanout;
+            this.rounds = rounds;
+            this.dedupWindow = dedupWindow;
+        }
+    }
+}
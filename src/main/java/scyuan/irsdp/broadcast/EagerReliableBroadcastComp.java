@@ -1,10 +1,11 @@
 package scyuan.irsdp.broadcast;
 
 import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.SequenceWindow;
 import se.sics.kompics.*;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -29,18 +30,29 @@ import java.util.Set;
  *         trigger [ rb, Deliver | s, m ];
  *         trigger [ beb, Broadcast | [DATA, s, m] ];
  *
+ * Messages are identified by (s, sn), sn counted by s, and delivered is kept
+ * as one SequenceWindow per origin: a watermark below which everything was
+ * delivered plus the few numbers that arrived ahead of it. The window spans
+ * at most dedupWindow numbers, so a sender that runs far ahead of a lost
+ * message cannot grow it without bound; numbers it slides past count as
+ * delivered.
+ *
  */
 public class EagerReliableBroadcastComp extends ComponentDefinition {
 
     private final Negative<ReliableBroadcast> rb = provides(ReliableBroadcast.class);
     private final Positive<BestEffortBroadcast> beb = requires(BestEffortBroadcast.class);
 
-    private Set<KompicsEvent> delivered;
+    private Map<NetAddress, SequenceWindow> delivered;
     private NetAddress self;
+    private long sn;
+    private final int dedupWindow;
 
     public EagerReliableBroadcastComp(Init init) {
         this.self = init.self;
-        this.delivered = new HashSet<>();
+        this.dedupWindow = init.dedupWindow;
+        this.delivered = new HashMap<>();
+        this.sn = 0;
 
         subscribe(broadcastHandler, rb);
         subscribe(deliverHandler, beb);
@@ -49,18 +61,16 @@ public class EagerReliableBroadcastComp extends ComponentDefinition {
     Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
-            trigger(new Broadcast(new ReliableBroadcastMessage(event.payload, event.nodes), event.nodes, self), beb);
-
+            trigger(new Broadcast(new ReliableBroadcastMessage(self, sn++, event.payload, event.nodes), event.nodes, self), beb);
         }
     };
 
     ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(ReliableBroadcastMessage content, BroadcastDeliver context) {
-            if (!delivered.contains(content.payload)) {
-                delivered.add(content.payload);
-                trigger(new BroadcastDeliver(content.payload, context.src), rb);
-                trigger(new Broadcast(new ReliableBroadcastMessage(content.payload, content.nodes), content.nodes, context.src), beb);
+            if (delivered.computeIfAbsent(content.src, k -> new SequenceWindow(dedupWindow)).add(content.sn)) {
+                trigger(new BroadcastDeliver(content.payload, content.src), rb);
+                trigger(new Broadcast(content, content.nodes, content.src), beb);
             }
         }
     };
@@ -68,9 +78,21 @@ public class EagerReliableBroadcastComp extends ComponentDefinition {
 
     public static class Init extends se.sics.kompics.Init<EagerReliableBroadcastComp> {
         private final NetAddress self;
+        private int dedupWindow = 1 << 16;
 
         public Init(NetAddress self) {
             this.self = self;
         }
+
+        /**
+         * Remember up to dedupWindow out-of-order sequence numbers per origin.
+         */
+        public Init withDedupWindow(int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.dedupWindow = dedupWindow;
+            return this;
+        }
     }
 }
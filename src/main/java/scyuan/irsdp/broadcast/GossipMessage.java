@@ -0,0 +1,51 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PatternExtractor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * [GOSSIP, s, m, r]: message m, the sn-th broadcast of s, to be gossiped for r more rounds.
+ */
+public class GossipMessage implements KompicsEvent, Serializable, PatternExtractor<Class<Object>, KompicsEvent> {
+    public final NetAddress src;
+    public final long sn;
+    public final KompicsEvent payload;
+    public final int rounds;
+
+    public GossipMessage(NetAddress src, long sn, KompicsEvent payload, int rounds) {
+        this.src = src;
+        this.sn = sn;
+        this.payload = payload;
+        this.rounds = rounds;
+    }
+
+    @Override
+    public Class<Object> extractPattern() {
+        Class c = payload.getClass();
+        return (Class<Object>) c;
+    }
+
+    @Override
+    public KompicsEvent extractValue() {
+        return payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GossipMessage that = (GossipMessage) o;
+        return sn == that.sn &&
+                rounds == that.rounds &&
+                src.equals(that.src);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(src, sn, rounds);
+    }
+}
@@ -0,0 +1,43 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Picks k distinct random gossip targets among the other processes. The candidates are kept in
+ * one array and each pick runs the first k steps of a Fisher-Yates shuffle on it, so picking
+ * does not allocate; the picked targets are the first k entries until the next pick.
+ */
+final class GossipTargets {
+
+    private final NetAddress[] candidates;
+    private final Random random;
+
+    GossipTargets(NetAddress self, Collection<NetAddress> all, Random random) {
+        TreeSet<NetAddress> others = new TreeSet<>(all);
+        others.remove(self);
+        this.candidates = others.toArray(new NetAddress[0]);
+        this.random = random;
+    }
+
+    /**
+     * Shuffle k random candidates to the front and return how many there are, at most k.
+     */
+    int pick(int k) {
+        int n = Math.min(k, candidates.length);
+        for (int i = 0; i < n; i++) {
+            int j = i + random.nextInt(candidates.length - i);
+            NetAddress t = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = t;
+        }
+        return n;
+    }
+
+    NetAddress get(int i) {
+        return candidates[i];
+    }
+}
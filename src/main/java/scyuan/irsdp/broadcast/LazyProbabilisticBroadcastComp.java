@@ -0,0 +1,275 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.FairLossPointToPointLink;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.SequenceWindow;
+import se.sics.kompics.*;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+
+import java.util.*;
+
+/**
+ *
+ *
+ * Fail-Silent Algorithm
+ *
+ * Algorithm 3.10: Lazy Probabilistic Broadcast
+ * Implements:
+ *     ProbabilisticBroadcast, instance pb.
+ * Uses:
+ *     FairLossPointToPointLinks, instance fll;
+ *     ProbabilisticBroadcast, instance upb.
+ *
+ * upon event [ pb, Init ] do
+ *     next := [1]N;
+ *     lsn := 0;
+ *     pending := ∅; stored := ∅;
+ *
+ * procedure gossip(msg) is
+ *     forall t ∈ picktargets(k) do trigger [ fll, Send | t, msg ];
+ *
+ * upon event [ pb, Broadcast | m ] do
+ *     lsn := lsn + 1;
+ *     trigger [ upb, Broadcast | [DATA, self, m, lsn] ];
+ *
+ * upon event [ upb, Deliver | p, [DATA, s, m, sn] ] do
+ *     if random([0, 1]) > α then
+ *         stored := stored ∪ {[DATA, s, m, sn]};
+ *     if sn = next[s] then
+ *         next[s] := next[s] + 1;
+ *         trigger [ pb, Deliver | s, m ];
+ *     else if sn > next[s] then
+ *         pending := pending ∪ {[DATA, s, m, sn]};
+ *         forall missing ∈ [next[s], ..., sn − 1] do
+ *             if no m' exists such that [DATA, s, m', missing] ∈ pending then
+ *                 gossip([REQUEST, self, s, missing, R − 1]);
+ *         starttimer(Δ, s, sn);
+ *
+ * upon event [ fll, Deliver | p, [REQUEST, q, s, sn, r] ] do
+ *     if exists m such that [DATA, s, m, sn] ∈ stored then
+ *         trigger [ fll, Send | q, [DATA, s, m, sn] ];
+ *     else if r > 0 then
+ *         gossip([REQUEST, q, s, sn, r − 1]);
+ *
+ * upon event [ fll, Deliver | p, [DATA, s, m, sn] ] do
+ *     pending := pending ∪ {[DATA, s, m, sn]};
+ *
+ * upon exists [DATA, s, x, sn] ∈ pending such that sn = next[s] do
+ *     next[s] := next[s] + 1;
+ *     pending := pending \ {[DATA, s, x, sn]};
+ *     trigger [ pb, Deliver | s, x ];
+ *
+ * upon event [ Timeout | s, sn ] do
+ *     if sn > next[s] then
+ *         next[s] := sn + 1;
+ *
+ * upb is meant to be cheap, e.g. an eager probabilistic broadcast with few
+ * rounds, and losses are repaired by anti-entropy instead of gossiped
+ * requests. Every period a process sends k random peers a digest: for each
+ * origin, the range of sequence numbers in its store. A peer finds the gaps
+ * in that range with its SequenceWindow for the origin and pulls exactly
+ * those numbers, which are answered with [DATA] over fll. Under low loss a
+ * node therefore receives about one copy of each message plus k digests per
+ * period, whatever the number of messages.
+ *
+ * Messages are delivered as they arrive rather than in sn order, so a gap
+ * never holds back later messages and pending and the per-gap timers go
+ * away. stored keeps the last storeSize messages of every origin instead
+ * of a random fraction, and delivered is capped at dedupWindow numbers per
+ * origin like in the eager algorithm.
+ *
+ */
+public class LazyProbabilisticBroadcastComp extends ComponentDefinition {
+    private final Negative<ProbabilisticBroadcast> pb = provides(ProbabilisticBroadcast.class);
+    private final Positive<ProbabilisticBroadcast> upb = requires(ProbabilisticBroadcast.class);
+    private final Positive<FairLossPointToPointLink> fll = requires(FairLossPointToPointLink.class);
+    private final Positive<Timer> timer = requires(Timer.class);
+
+    private final NetAddress self;
+    private final Set<NetAddress> all;
+    private final int fanout;
+    private final long period;
+    private final int storeSize;
+    private final int dedupWindow;
+    private final GossipTargets targets;
+
+    private long lsn;
+    private Map<NetAddress, SequenceWindow> delivered;
+    private Map<NetAddress, TreeMap<Long, KompicsEvent>> stored;
+
+    private UUID timerId;
+
+    public LazyProbabilisticBroadcastComp(Init init) {
+        this.self = init.self;
+        this.all = init.all;
+        this.fanout = init.fanout;
+        this.period = init.period;
+        this.storeSize = init.storeSize;
+        this.dedupWindow = init.dedupWindow;
+        this.targets = new GossipTargets(init.self, init.all, new Random());
+        this.lsn = 0;
+        this.delivered = new HashMap<>();
+        this.stored = new HashMap<>();
+
+        subscribe(startHandler, control);
+        subscribe(broadcastHandler, pb);
+        subscribe(dataHandler, upb);
+        subscribe(retransmitHandler, fll);
+        subscribe(digestHandler, fll);
+        subscribe(pullHandler, fll);
+        subscribe(timeoutHandler, timer);
+    }
+
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(period, period);
+            DigestTimeout timeout = new DigestTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            trigger(new Broadcast(new DataMessage(self, lsn++, event.payload), all, self), upb);
+        }
+    };
+
+    private final ClassMatchedHandler<DataMessage, BroadcastDeliver> dataHandler = new ClassMatchedHandler<DataMessage, BroadcastDeliver>() {
+        @Override
+        public void handle(DataMessage content, BroadcastDeliver context) {
+            accept(content);
+        }
+    };
+
+    private final ClassMatchedHandler<DataMessage, Deliver> retransmitHandler = new ClassMatchedHandler<DataMessage, Deliver>() {
+        @Override
+        public void handle(DataMessage content, Deliver context) {
+            accept(content);
+        }
+    };
+
+    private final Handler<DigestTimeout> timeoutHandler = new Handler<DigestTimeout>() {
+        @Override
+        public void handle(DigestTimeout event) {
+            if (stored.isEmpty()) {
+                return;
+            }
+            Map<NetAddress, long[]> ranges = new HashMap<>();
+            for (Map.Entry<NetAddress, TreeMap<Long, KompicsEvent>> entry : stored.entrySet()) {
+                TreeMap<Long, KompicsEvent> store = entry.getValue();
+                ranges.put(entry.getKey(), new long[]{store.firstKey(), store.lastKey() + 1});
+            }
+            DigestMessage digest = new DigestMessage(ranges);
+            int k = targets.pick(fanout);
+            for (int i = 0; i < k; i++) {
+                trigger(new Send(targets.get(i), digest), fll);
+            }
+        }
+    };
+
+    private final ClassMatchedHandler<DigestMessage, Deliver> digestHandler = new ClassMatchedHandler<DigestMessage, Deliver>() {
+        @Override
+        public void handle(DigestMessage content, Deliver context) {
+            for (Map.Entry<NetAddress, long[]> entry : content.ranges.entrySet()) {
+                long[] missing = gaps(window(entry.getKey()), entry.getValue()[0], entry.getValue()[1]);
+                if (missing.length > 0) {
+                    trigger(new Send(context.src, new PullMessage(entry.getKey(), missing)), fll);
+                }
+            }
+        }
+    };
+
+    private final ClassMatchedHandler<PullMessage, Deliver> pullHandler = new ClassMatchedHandler<PullMessage, Deliver>() {
+        @Override
+        public void handle(PullMessage content, Deliver context) {
+            TreeMap<Long, KompicsEvent> store = stored.get(content.src);
+            if (store == null) {
+                return;
+            }
+            for (long sn : content.sns) {
+                KompicsEvent m = store.get(sn);
+                if (m != null) {
+                    trigger(new Send(context.src, new DataMessage(content.src, sn, m)), fll);
+                }
+            }
+        }
+    };
+
+    private void accept(DataMessage data) {
+        if (!window(data.src).add(data.sn)) {
+            return;
+        }
+        TreeMap<Long, KompicsEvent> store = stored.computeIfAbsent(data.src, k -> new TreeMap<>());
+        store.put(data.sn, data.payload);
+        if (store.size() > storeSize) {
+            store.pollFirstEntry();
+        }
+        trigger(new BroadcastDeliver(data.payload, data.src), pb);
+    }
+
+    /**
+     * The numbers in [from, to) missing from delivered, at most storeSize of them.
+     */
+    private long[] gaps(SequenceWindow delivered, long from, long to) {
+        long sn = Math.max(from, delivered.next());
+        long[] missing = new long[(int) Math.min(storeSize, Math.max(0, to - sn))];
+        int n = 0;
+        for (; sn < to && n < missing.length; sn++) {
+            if (!delivered.contains(sn)) {
+                missing[n++] = sn;
+            }
+        }
+        return n == missing.length ? missing : Arrays.copyOf(missing, n);
+    }
+
+    private SequenceWindow window(NetAddress s) {
+        return delivered.computeIfAbsent(s, k -> new SequenceWindow(dedupWindow));
+    }
+
+    @Override
+    public void tearDown() {
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
+        }
+    }
+
+    public static class DigestTimeout extends Timeout {
+        public DigestTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<LazyProbabilisticBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final int fanout;
+        private final long period;
+        private final int storeSize;
+        private final int dedupWindow;
+
+        /**
+         * Send a digest to fanout peers every period ms, keeping the last storeSize messages of every
+         * origin and up to dedupWindow out-of-order numbers; dedupWindow must be between 64 and 2^30.
+         */
+        public Init(NetAddress self, Set<NetAddress> all, int fanout, long period, int storeSize, int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.self = self;
+            this.all = all;
+            this.fanout = fanout;
+            this.period = period;
+            this.storeSize = storeSize;
+            this.dedupWindow = dedupWindow;
+        }
+    }
+}
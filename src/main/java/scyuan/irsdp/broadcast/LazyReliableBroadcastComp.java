@@ -3,12 +3,14 @@ package scyuan.irsdp.broadcast;
 import scyuan.irsdp.failuredetector.Crash;
 import scyuan.irsdp.failuredetector.PerfectFailureDetector;
 import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.SequenceWindow;
 import se.sics.kompics.*;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 
 /**
@@ -31,10 +33,10 @@ import java.util.Set;
  *     trigger [ beb, Broadcast | [DATA, self, m] ];
  *
  * upon event [ beb, Deliver | p, [DATA, s, m] ] do
- *     if m !∈ from[s] then
+ *     if m !∈ from[s] then
  *         trigger [ rb, Deliver | s, m ];
  *         from[s] := from[s] ∪ {m};
- *         if s !∈ correct then
+ *         if s !∈ correct then
  *             trigger [ beb, Broadcast | [DATA, s, m] ];
  *
  * upon event [ P, Crash | p ] do
@@ -42,74 +44,209 @@ import java.util.Set;
  *     forall m ∈ from[p] do
  *         trigger [ beb, Broadcast | [DATA, p, m] ];
  *
+ * from[s] only serves the re-broadcast on a crash of s, so a message can
+ * leave it once every correct process it was sent to has delivered it. A
+ * process numbers its messages per set of nodes they are broadcast to, so
+ * every receiver sees the numbering of an (s, nodes) origin without gaps.
+ * Whether m was delivered is kept in a SequenceWindow per origin, at most
+ * dedupWindow numbers wide, and every
+ * period each process beb-broadcasts, to each set of nodes it has delivered
+ * from, its watermarks for that set. A message of s is stable when its sn is
+ * below the watermark for (s, nodes) of every correct process among its
+ * nodes, and stable messages are pruned from from[s]. A crash therefore
+ * re-broadcasts only the unstable suffix of from[p].
+ *
  */
 public class LazyReliableBroadcastComp extends ComponentDefinition {
     private final Negative<ReliableBroadcast> rb = provides(ReliableBroadcast.class);
     private final Positive<BestEffortBroadcast> beb = requires(BestEffortBroadcast.class);
     private final Positive<PerfectFailureDetector> pfd = requires(PerfectFailureDetector.class);
+    private final Positive<Timer> timer = requires(Timer.class);
 
+    private NetAddress self;
     private Set<NetAddress> correct;
-    private Map<NetAddress, Set<ReliableBroadcastMessage>> from;
+    private Map<Origin, SequenceWindow> delivered;
+    private Map<Origin, TreeMap<Long, ReliableBroadcastMessage>> from;
+    private Map<Set<NetAddress>, Map<NetAddress, Map<NetAddress, Long>>> watermarks;
+    private Map<Set<NetAddress>, Long> sns;
+    private long period;
+    private final int dedupWindow;
+
+    private UUID timerId;
 
     public LazyReliableBroadcastComp(Init init) {
+        this.self = init.self;
         this.correct = new HashSet<>(init.all);
+        this.delivered = new HashMap<>();
         this.from = new HashMap<>();
+        this.watermarks = new HashMap<>();
+        this.sns = new HashMap<>();
+        this.period = init.period;
+        this.dedupWindow = init.dedupWindow;
 
+        subscribe(startHandler, control);
         subscribe(broadcastHandler, rb);
         subscribe(deliverHandler, beb);
+        subscribe(stabilityHandler, beb);
         subscribe(crashHandler, pfd);
+        subscribe(timeoutHandler, timer);
     }
 
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(period, period);
+            StabilityTimeout timeout = new StabilityTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
     private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
-            trigger(new Broadcast(new ReliableBroadcastMessage(event.payload, event.nodes), event.nodes, event.src), beb);
+            long sn = sns.getOrDefault(event.nodes, 0L);
+            sns.put(new HashSet<>(event.nodes), sn + 1);
+            trigger(new Broadcast(new ReliableBroadcastMessage(self, sn, event.payload, event.nodes), event.nodes, self), beb);
         }
     };
 
     private final ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(ReliableBroadcastMessage content, BroadcastDeliver context) {
-            Set<ReliableBroadcastMessage> deliverSet = from.get(context.src);
-            if (deliverSet == null || !deliverSet.contains(content)) {
-                trigger(new BroadcastDeliver(content.payload, context.src), rb);
-                if (deliverSet == null) {
-                    deliverSet = new HashSet<>();
-                    from.put(context.src, deliverSet);
-                }
-                deliverSet.add(content);
-                if (!correct.contains(context.src)) {
-                    trigger(new Broadcast(new ReliableBroadcastMessage(content.payload, content.nodes), content.nodes, context.src), beb);
+            Origin origin = new Origin(content.src, content.nodes);
+            if (delivered.computeIfAbsent(origin, k -> new SequenceWindow(dedupWindow)).add(content.sn)) {
+                trigger(new BroadcastDeliver(content.payload, content.src), rb);
+                from.computeIfAbsent(origin, k -> new TreeMap<>()).put(content.sn, content);
+                if (!correct.contains(content.src)) {
+                    trigger(new Broadcast(content, content.nodes, content.src), beb);
                 }
             }
         }
     };
 
+    private final Handler<StabilityTimeout> timeoutHandler = new Handler<StabilityTimeout>() {
+        @Override
+        public void handle(StabilityTimeout event) {
+            Map<Set<NetAddress>, Map<NetAddress, Long>> marks = new HashMap<>();
+            for (Map.Entry<Origin, SequenceWindow> entry : delivered.entrySet()) {
+                Origin origin = entry.getKey();
+                marks.computeIfAbsent(origin.nodes, k -> new HashMap<>()).put(origin.src, entry.getValue().next());
+            }
+            for (Map.Entry<Set<NetAddress>, Map<NetAddress, Long>> entry : marks.entrySet()) {
+                trigger(new Broadcast(new StabilityMessage(entry.getKey(), entry.getValue()), entry.getKey(), self), beb);
+            }
+        }
+    };
+
+    private final ClassMatchedHandler<StabilityMessage, BroadcastDeliver> stabilityHandler = new ClassMatchedHandler<StabilityMessage, BroadcastDeliver>() {
+        @Override
+        public void handle(StabilityMessage content, BroadcastDeliver context) {
+            watermarks.computeIfAbsent(content.nodes, k -> new HashMap<>()).put(context.src, content.delivered);
+            prune();
+        }
+    };
+
     private final Handler<Crash> crashHandler = new Handler<Crash>() {
         @Override
         public void handle(Crash event) {
             correct.remove(event.p);
-            Set<ReliableBroadcastMessage> deliverSet = from.get(event.p);
-            if (deliverSet != null) {
-                for (ReliableBroadcastMessage content : deliverSet) {
-                    trigger(new Broadcast(new ReliableBroadcastMessage(content.payload, content.nodes), content.nodes, event.p), beb);
-
+            for (Map<NetAddress, Map<NetAddress, Long>> reports : watermarks.values()) {
+                reports.remove(event.p);
+            }
+            prune();
+            for (Map.Entry<Origin, TreeMap<Long, ReliableBroadcastMessage>> entry : from.entrySet()) {
+                if (entry.getKey().src.equals(event.p)) {
+                    for (ReliableBroadcastMessage content : entry.getValue().values()) {
+                        trigger(new Broadcast(content, content.nodes, event.p), beb);
+                    }
                 }
             }
         }
     };
 
-    public static class Init extends se.sics.kompics.Init<LazyReliableBroadcastComp> {
-        private final Set<NetAddress> all;
+    private void prune() {
+        for (Map.Entry<Origin, TreeMap<Long, ReliableBroadcastMessage>> entry : from.entrySet()) {
+            entry.getValue().headMap(stable(entry.getKey())).clear();
+        }
+    }
 
-        public Init(Set<NetAddress> all) {
-            this.all = all;
+    /**
+     * The sequence number of origin below which every correct process among its nodes has delivered all its messages.
+     */
+    private long stable(Origin origin) {
+        Map<NetAddress, Map<NetAddress, Long>> reports = watermarks.getOrDefault(origin.nodes, Collections.emptyMap());
+        long stable = Long.MAX_VALUE;
+        for (NetAddress q : origin.nodes) {
+            if (correct.contains(q)) {
+                Map<NetAddress, Long> marks = reports.get(q);
+                stable = Math.min(stable, marks == null ? 0 : marks.getOrDefault(origin.src, 0L));
+            }
+        }
+        return stable;
+    }
+
+    @Override
+    public void tearDown() {
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
         }
     }
 
+    /**
+     * A sender together with the set of nodes its messages were broadcast to; sequence numbers count per Origin.
+     */
+    private static class Origin {
+        private final NetAddress src;
+        private final Set<NetAddress> nodes;
 
+        private Origin(NetAddress src, Set<NetAddress> nodes) {
+            this.src = src;
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Origin that = (Origin) o;
+            return src.equals(that.src) && nodes.equals(that.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(src, nodes);
+        }
+    }
 
+    public static class StabilityTimeout extends Timeout {
+        public StabilityTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
 
+    public static class Init extends se.sics.kompics.Init<LazyReliableBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final long period;
+        private int dedupWindow = 1 << 16;
 
+        public Init(NetAddress self, Set<NetAddress> all, long period) {
+            this.self = self;
+            this.all = all;
+            this.period = period;
+        }
 
+        /**
+         * Remember up to dedupWindow out-of-order sequence numbers per (src, nodes) origin.
+         */
+        public Init withDedupWindow(int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.dedupWindow = dedupWindow;
+            return this;
+        }
+    }
 }
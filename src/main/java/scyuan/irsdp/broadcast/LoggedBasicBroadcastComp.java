@@ -0,0 +1,243 @@
+package scyuan.irsdp.broadcast;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.SequenceWindow;
+import scyuan.irsdp.link.StubbornPointToPointLink;
+import scyuan.irsdp.storage.MappedLog;
+import se.sics.kompics.*;
+import se.sics.kompics.timer.ScheduleTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Fail-Recovery Algorithm
+ *
+ * Algorithm 3.5: Logged Basic Broadcast
+ * Implements:
+ *     LoggedBestEffortBroadcast, instance lbeb.
+ * Uses:
+ *     StubbornPointToPointLinks, instance sl.
+ *
+ * upon event [ lbeb, Init ] do
+ *     delivered := ∅;
+ *     store(delivered);
+ *
+ * upon event [ Recovery ] do
+ *     retrieve(delivered);
+ *     trigger [ lbeb, Deliver | delivered ];
+ *
+ * upon event [ lbeb, Broadcast | m ] do
+ *     forall q ∈ Π do
+ *         trigger [ sl, Send | q, m ];
+ *
+ * upon event [ sl, Deliver | p, m ] do
+ *     if (p, m) !∈ delivered then
+ *         delivered := delivered ∪ {(p, m)};
+ *         store(delivered);
+ *         trigger [ lbeb, Deliver | delivered ];
+ *
+ * delivered is not stored as a whole: each newly delivered [DATA, s, m, sn]
+ * is appended to a MappedLog in storeDir. The records are made durable by
+ * group commit: everything appended while the component works through its
+ * queue, at most maxBatch records, shares one force when a FlushTimeout of
+ * lingerMs fires. Only then are the messages announced with LoggedDeliver
+ * and the component's own broadcasts sent to the others, so a broadcast is
+ * logged before it leaves and the recovered sn of self is never reused.
+ * Recovery, on Start, is one sequential scan of the mapped segments that
+ * rebuilds a SequenceWindow per origin and announces the logged messages
+ * again.
+ *
+ */
+public class LoggedBasicBroadcastComp extends ComponentDefinition {
+    private final Negative<LoggedBestEffortBroadcast> lbeb = provides(LoggedBestEffortBroadcast.class);
+    private final Positive<StubbornPointToPointLink> sl = requires(StubbornPointToPointLink.class);
+    private final Positive<Timer> timer = requires(Timer.class);
+
+    private final NetAddress self;
+    private final Set<NetAddress> all;
+    private final MappedLog log;
+    private final int maxBatch;
+    private final long lingerMs;
+
+    private long lsn;
+    private Map<NetAddress, SequenceWindow> delivered;
+    private List<DataMessage> appended;
+    private boolean scheduled;
+
+    public LoggedBasicBroadcastComp(Init init) {
+        this.self = init.self;
+        this.all = init.all;
+        try {
+            this.log = new MappedLog(init.storeDir, init.segmentSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.maxBatch = init.maxBatch;
+        this.lingerMs = init.lingerMs;
+        this.lsn = 0;
+        this.delivered = new HashMap<>();
+        this.appended = new ArrayList<>();
+        this.scheduled = false;
+
+        subscribe(startHandler, control);
+        subscribe(broadcastHandler, lbeb);
+        subscribe(deliverHandler, sl);
+        subscribe(flushHandler, timer);
+    }
+
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            log.replay((record, position) -> {
+                NetAddress src = readAddress(record);
+                long sn = readUnsignedVarLong(record);
+                window(src).add(sn);
+                if (src.equals(self)) {
+                    lsn = Math.max(lsn, sn + 1);
+                }
+                trigger(new LoggedDeliver((KompicsEvent) readObject(record), src), lbeb);
+            });
+        }
+    };
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            DataMessage data = new DataMessage(self, lsn++, event.payload);
+            window(self).add(data.sn);
+            store(data);
+        }
+    };
+
+    private final ClassMatchedHandler<DataMessage, Deliver> deliverHandler = new ClassMatchedHandler<DataMessage, Deliver>() {
+        @Override
+        public void handle(DataMessage content, Deliver context) {
+            if (window(content.src).add(content.sn)) {
+                store(content);
+            }
+        }
+    };
+
+    private final Handler<FlushTimeout> flushHandler = new Handler<FlushTimeout>() {
+        @Override
+        public void handle(FlushTimeout event) {
+            scheduled = false;
+            flush();
+        }
+    };
+
+    /**
+     * Appends data to the log; it is sent and log-delivered by the flush that forces it.
+     */
+    private void store(DataMessage data) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            writeAddress(buf, data.src);
+            writeUnsignedVarLong(buf, data.sn);
+            writeObject(buf, data.payload);
+            log.append(buf);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            buf.release();
+        }
+        appended.add(data);
+        if (appended.size() >= maxBatch) {
+            flush();
+        } else if (!scheduled) {
+            ScheduleTimeout st = new ScheduleTimeout(lingerMs);
+            st.setTimeoutEvent(new FlushTimeout(st));
+            trigger(st, timer);
+            scheduled = true;
+        }
+    }
+
+    private void flush() {
+        if (appended.isEmpty()) {
+            return;
+        }
+        log.force();
+        List<DataMessage> forced = appended;
+        appended = new ArrayList<>();
+        for (DataMessage data : forced) {
+            if (data.src.equals(self)) {
+                for (NetAddress q : all) {
+                    if (!q.equals(self)) {
+                        trigger(new Send(q, data), sl);
+                    }
+                }
+            }
+            trigger(new LoggedDeliver(data.payload, data.src), lbeb);
+        }
+    }
+
+    private SequenceWindow window(NetAddress s) {
+        return delivered.computeIfAbsent(s, k -> new SequenceWindow());
+    }
+
+    @Override
+    public void tearDown() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static class FlushTimeout extends Timeout {
+        public FlushTimeout(ScheduleTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<LoggedBasicBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final Path storeDir;
+        private int segmentSize = 64 << 20;
+        private int maxBatch = 1024;
+        private long lingerMs = 0;
+
+        public Init(NetAddress self, Set<NetAddress> all, Path storeDir) {
+            this.self = self;
+            this.all = all;
+            this.storeDir = storeDir;
+        }
+
+        /**
+         * Share one force among at most maxBatch records, waiting at most lingerMs for more.
+         */
+        public Init withGroupCommit(int maxBatch, long lingerMs) {
+            if (maxBatch < 1 || lingerMs < 0) {
+                throw new IllegalArgumentException("maxBatch must be >= 1 and lingerMs >= 0");
+            }
+            this.maxBatch = maxBatch;
+            this.lingerMs = lingerMs;
+            return this;
+        }
+
+        /**
+         * Size of the log segment files, which bounds the size of one logged message.
+         */
+        public Init withSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+    }
+}
@@ -20,4 +20,8 @@ import se.sics.kompics.PortType;
  *
  */
 public class LoggedBestEffortBroadcast extends PortType {
+    {
+        request(Broadcast.class);
+        indication(LoggedDeliver.class);
+    }
 }
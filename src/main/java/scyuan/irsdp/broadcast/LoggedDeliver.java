@@ -0,0 +1,32 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PatternExtractor;
+
+import java.io.Serializable;
+
+/**
+ * Log-delivery of payload broadcast by src, triggered once the message is in stable storage.
+ * After a recovery every logged message is announced again, like [Deliver | delivered].
+ */
+public class LoggedDeliver implements KompicsEvent, Serializable, PatternExtractor<Class<Object>, KompicsEvent> {
+    public final KompicsEvent payload;
+    public final NetAddress src;
+
+    public LoggedDeliver(KompicsEvent payload, NetAddress src) {
+        this.payload = payload;
+        this.src = src;
+    }
+
+    @Override
+    public Class<Object> extractPattern() {
+        Class c = payload.getClass();
+        return (Class<Object>) c;
+    }
+
+    @Override
+    public KompicsEvent extractValue() {
+        return payload;
+    }
+}
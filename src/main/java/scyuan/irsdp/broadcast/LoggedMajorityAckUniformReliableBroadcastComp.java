@@ -0,0 +1,482 @@
+package scyuan.irsdp.broadcast;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.StubbornPointToPointLink;
+import scyuan.irsdp.storage.MappedLog;
+import se.sics.kompics.*;
+import se.sics.kompics.timer.ScheduleTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Fail-Recovery Algorithm
+ *
+ * Algorithm 3.6: Logged Majority-Ack Uniform Reliable Broadcast
+ * Implements:
+ *     LoggedUniformReliableBroadcast, instance lurb.
+ * Uses:
+ *     StubbornPointToPointLinks, instance sl.
+ *
+ * upon event [ lurb, Init ] do
+ *     delivered := ∅;
+ *     pending := ∅;
+ *     forall m do ack[m] := ∅;
+ *     store(pending, delivered);
+ *
+ * upon event [ Recovery ] do
+ *     retrieve(pending, delivered);
+ *     trigger [ lurb, Deliver | delivered ];
+ *     forall (s, m) ∈ pending do
+ *         forall q ∈ Π do
+ *             trigger [ sl, Send | q, [WRITE, s, m] ];
+ *
+ * upon event [ lurb, Broadcast | m ] do
+ *     pending := pending ∪ {(self, m)};
+ *     store(pending);
+ *     forall q ∈ Π do
+ *         trigger [ sl, Send | q, [WRITE, self, m] ];
+ *
+ * upon event [ sl, Deliver | p, [WRITE, s, m] ] do
+ *     if (s, m) !∈ pending then
+ *         pending := pending ∪ {(s, m)};
+ *         store(pending);
+ *         forall q ∈ Π do
+ *             trigger [ sl, Send | q, [WRITE, s, m] ];
+ *     if p !∈ ack[m] then
+ *         ack[m] := ack[m] ∪ {p};
+ *         if #(ack[m]) > N/2 ∧ (s, m) !∈ delivered then
+ *             delivered := delivered ∪ {(s, m)};
+ *             store(delivered);
+ *             trigger [ lurb, Deliver | delivered ];
+ *
+ * store appends a record to a MappedLog instead of rewriting the sets, and
+ * the records are made durable by group commit: everything appended while
+ * the component works through its queue, at most maxBatch records, shares
+ * one force when a FlushTimeout of lingerMs fires. Only then are the
+ * WRITEs of the newly logged messages sent, one WriteBatch per process,
+ * and the deliveries decided since the last flush announced, so a single
+ * force releases a whole batch. A [WRITE] therefore also acks that its
+ * sender logged m, and self acks m once its own record is forced.
+ *
+ * After a recovery acks must be collected again, so the resent WRITEs are
+ * marked as such and answered with an AckBatch by the processes that have
+ * already logged the messages.
+ *
+ * A message is stable once delivered and acked by all N processes; it is
+ * never resent again. The stable messages of every origin are a prefix
+ * below a watermark, and when the log has grown by a segment the
+ * watermarks are appended as a checkpoint and every segment older than the
+ * oldest unstable message is deleted. Recovery announces the messages it
+ * finds in the log, which excludes those truncated away.
+ *
+ */
+public class LoggedMajorityAckUniformReliableBroadcastComp extends ComponentDefinition {
+    private final Negative<LoggedUniformReliableBroadcast> lurb = provides(LoggedUniformReliableBroadcast.class);
+    private final Positive<StubbornPointToPointLink> sl = requires(StubbornPointToPointLink.class);
+    private final Positive<Timer> timer = requires(Timer.class);
+
+    private static final byte PENDING = 1;
+    private static final byte DELIVERED = 2;
+    private static final byte CHECKPOINT = 3;
+
+    private final NetAddress self;
+    private final Ranks ranks;
+    private final MappedLog log;
+    private final int segmentSize;
+    private final int maxBatch;
+    private final long lingerMs;
+
+    private long lsn;
+    private Map<NetAddress, TreeMap<Long, Pending>> pending;
+    private Map<NetAddress, Long> stable;
+    private List<DataMessage> appended;
+    private List<DataMessage> announced;
+    private Map<NetAddress, Map<NetAddress, TreeSet<Long>>> replies;
+    private boolean scheduled;
+    private long truncatedAt;
+
+    public LoggedMajorityAckUniformReliableBroadcastComp(Init init) {
+        this.self = init.self;
+        this.ranks = new Ranks(init.all);
+        try {
+            this.log = new MappedLog(init.storeDir, init.segmentSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.segmentSize = init.segmentSize;
+        this.maxBatch = init.maxBatch;
+        this.lingerMs = init.lingerMs;
+        this.lsn = 0;
+        this.pending = new HashMap<>();
+        this.stable = new HashMap<>();
+        this.appended = new ArrayList<>();
+        this.announced = new ArrayList<>();
+        this.replies = new HashMap<>();
+        this.scheduled = false;
+        this.truncatedAt = log.position();
+
+        subscribe(startHandler, control);
+        subscribe(broadcastHandler, lurb);
+        subscribe(writeHandler, sl);
+        subscribe(ackHandler, sl);
+        subscribe(flushHandler, timer);
+    }
+
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            log.replay((record, position) -> recover(record, position));
+            lsn = Math.max(lsn, stable(self));
+
+            List<DataMessage> writes = new ArrayList<>();
+            for (Map.Entry<NetAddress, TreeMap<Long, Pending>> entry : pending.entrySet()) {
+                for (Map.Entry<Long, Pending> e : entry.getValue().entrySet()) {
+                    writes.add(new DataMessage(entry.getKey(), e.getKey(), e.getValue().payload));
+                }
+            }
+            for (DataMessage write : writes) {
+                Pending e = pending.get(write.src).get(write.sn);
+                e.logged = true;
+                ack(write.src, write.sn, e, self);
+            }
+            if (!writes.isEmpty()) {
+                sendToOthers(new WriteBatch(true, writes));
+            }
+            dirty();
+        }
+    };
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            DataMessage write = new DataMessage(self, lsn++, event.payload);
+            pending.computeIfAbsent(self, k -> new TreeMap<>()).put(write.sn, new Pending(write.payload, logPending(write)));
+            appended.add(write);
+            dirty();
+        }
+    };
+
+    private final ClassMatchedHandler<WriteBatch, Deliver> writeHandler = new ClassMatchedHandler<WriteBatch, Deliver>() {
+        @Override
+        public void handle(WriteBatch content, Deliver context) {
+            for (DataMessage write : content.writes) {
+                if (write.sn < stable(write.src)) {
+                    if (content.recovery) {
+                        reply(context.src, write);
+                    }
+                    continue;
+                }
+                TreeMap<Long, Pending> from = pending.computeIfAbsent(write.src, k -> new TreeMap<>());
+                Pending e = from.get(write.sn);
+                if (e == null) {
+                    e = new Pending(write.payload, logPending(write));
+                    from.put(write.sn, e);
+                    appended.add(write);
+                } else if (content.recovery && e.logged) {
+                    reply(context.src, write);
+                }
+                ack(write.src, write.sn, e, context.src);
+            }
+            dirty();
+        }
+    };
+
+    private final ClassMatchedHandler<AckBatch, Deliver> ackHandler = new ClassMatchedHandler<AckBatch, Deliver>() {
+        @Override
+        public void handle(AckBatch content, Deliver context) {
+            for (Map.Entry<NetAddress, long[]> entry : content.acks.entrySet()) {
+                TreeMap<Long, Pending> from = pending.get(entry.getKey());
+                if (from == null) {
+                    continue;
+                }
+                for (long sn : entry.getValue()) {
+                    Pending e = from.get(sn);
+                    if (e != null) {
+                        ack(entry.getKey(), sn, e, context.src);
+                    }
+                }
+            }
+            dirty();
+        }
+    };
+
+    private final Handler<FlushTimeout> flushHandler = new Handler<FlushTimeout>() {
+        @Override
+        public void handle(FlushTimeout event) {
+            scheduled = false;
+            flush();
+        }
+    };
+
+    private void recover(ByteBuf record, long position) {
+        byte type = record.readByte();
+        if (type == CHECKPOINT) {
+            int size = readVarInt(record);
+            for (int i = 0; i < size; i++) {
+                NetAddress s = readAddress(record);
+                long next = readUnsignedVarLong(record);
+                if (next > stable(s)) {
+                    stable.put(s, next);
+                    TreeMap<Long, Pending> from = pending.get(s);
+                    if (from != null) {
+                        from.headMap(next).clear();
+                    }
+                }
+            }
+            return;
+        }
+        NetAddress s = readAddress(record);
+        long sn = readUnsignedVarLong(record);
+        if (s.equals(self)) {
+            lsn = Math.max(lsn, sn + 1);
+        }
+        if (sn < stable(s)) {
+            return;
+        }
+        if (type == PENDING) {
+            pending.computeIfAbsent(s, k -> new TreeMap<>()).put(sn, new Pending((KompicsEvent) readObject(record), position));
+        } else {
+            TreeMap<Long, Pending> from = pending.get(s);
+            Pending e = from == null ? null : from.get(sn);
+            if (e != null && !e.delivered) {
+                e.delivered = true;
+                trigger(new LoggedDeliver(e.payload, s), lurb);
+            }
+        }
+    }
+
+    /**
+     * Records that p has logged the sn-th message of s, which is delivered after more than N/2 acks
+     * and becomes stable after N.
+     */
+    private void ack(NetAddress s, long sn, Pending e, NetAddress p) {
+        int rank = ranks.of(p);
+        if (rank < 0 || (e.acks[rank >>> 6] & (1L << rank)) != 0) {
+            return;
+        }
+        e.acks[rank >>> 6] |= 1L << rank;
+        e.count++;
+        if (!e.delivered && e.count > ranks.size() / 2) {
+            e.delivered = true;
+            logDelivered(s, sn);
+            announced.add(new DataMessage(s, sn, e.payload));
+        }
+        if (e.delivered && e.count == ranks.size()) {
+            TreeMap<Long, Pending> from = pending.get(s);
+            long next = stable(s);
+            while (!from.isEmpty() && from.firstKey() == next && from.firstEntry().getValue().count == ranks.size()
+                    && from.firstEntry().getValue().delivered) {
+                from.pollFirstEntry();
+                next++;
+            }
+            stable.put(s, next);
+        }
+    }
+
+    private void reply(NetAddress q, DataMessage write) {
+        replies.computeIfAbsent(q, k -> new HashMap<>()).computeIfAbsent(write.src, k -> new TreeSet<>()).add(write.sn);
+    }
+
+    /**
+     * Flushes at once when the batch is full, otherwise makes sure a flush is scheduled.
+     */
+    private void dirty() {
+        if (appended.size() + announced.size() >= maxBatch) {
+            flush();
+        } else if (!scheduled && !(appended.isEmpty() && announced.isEmpty() && replies.isEmpty())) {
+            ScheduleTimeout st = new ScheduleTimeout(lingerMs);
+            st.setTimeoutEvent(new FlushTimeout(st));
+            trigger(st, timer);
+            scheduled = true;
+        }
+    }
+
+    private void flush() {
+        if (appended.isEmpty() && announced.isEmpty() && replies.isEmpty()) {
+            return;
+        }
+        log.force();
+        List<DataMessage> writes = appended;
+        List<DataMessage> ready = announced;
+        appended = new ArrayList<>();
+        announced = new ArrayList<>();
+
+        if (!writes.isEmpty()) {
+            sendToOthers(new WriteBatch(false, writes));
+        }
+        for (Map.Entry<NetAddress, Map<NetAddress, TreeSet<Long>>> entry : replies.entrySet()) {
+            Map<NetAddress, long[]> acks = new HashMap<>();
+            for (Map.Entry<NetAddress, TreeSet<Long>> sns : entry.getValue().entrySet()) {
+                acks.put(sns.getKey(), sns.getValue().stream().mapToLong(Long::longValue).toArray());
+            }
+            trigger(new Send(entry.getKey(), new AckBatch(acks)), sl);
+        }
+        replies.clear();
+        for (DataMessage m : ready) {
+            trigger(new LoggedDeliver(m.payload, m.src), lurb);
+        }
+
+        for (DataMessage write : writes) {
+            Pending e = pending.get(write.src).get(write.sn);
+            e.logged = true;
+            ack(write.src, write.sn, e, self);
+        }
+        if (log.position() - truncatedAt >= segmentSize) {
+            truncate();
+        }
+        dirty();
+    }
+
+    /**
+     * Checkpoints the stable watermarks and drops the segments that only hold stable messages.
+     */
+    private void truncate() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        buf.writeByte(CHECKPOINT);
+        writeVarInt(buf, stable.size());
+        for (Map.Entry<NetAddress, Long> entry : stable.entrySet()) {
+            writeAddress(buf, entry.getKey());
+            writeUnsignedVarLong(buf, entry.getValue());
+        }
+        long oldest = append(buf);
+        for (TreeMap<Long, Pending> from : pending.values()) {
+            for (Pending e : from.values()) {
+                oldest = Math.min(oldest, e.position);
+            }
+        }
+        log.force();
+        try {
+            log.truncateBefore(oldest);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        truncatedAt = log.position();
+    }
+
+    private long logPending(DataMessage write) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        buf.writeByte(PENDING);
+        writeAddress(buf, write.src);
+        writeUnsignedVarLong(buf, write.sn);
+        writeObject(buf, write.payload);
+        return append(buf);
+    }
+
+    private void logDelivered(NetAddress s, long sn) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        buf.writeByte(DELIVERED);
+        writeAddress(buf, s);
+        writeUnsignedVarLong(buf, sn);
+        append(buf);
+    }
+
+    private long append(ByteBuf buf) {
+        try {
+            return log.append(buf);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private void sendToOthers(KompicsEvent message) {
+        for (int i = 0; i < ranks.size(); i++) {
+            if (!ranks.get(i).equals(self)) {
+                trigger(new Send(ranks.get(i), message), sl);
+            }
+        }
+    }
+
+    /**
+     * The sequence number of s below which all messages of s are stable.
+     */
+    private long stable(NetAddress s) {
+        return stable.getOrDefault(s, 0L);
+    }
+
+    /**
+     * The number of times the log has been forced, for measuring how well group commit batches.
+     */
+    long forces() {
+        return log.forces();
+    }
+
+    @Override
+    public void tearDown() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private class Pending {
+        final KompicsEvent payload;
+        final long position;
+        final long[] acks;
+        int count;
+        boolean logged;
+        boolean delivered;
+
+        Pending(KompicsEvent payload, long position) {
+            this.payload = payload;
+            this.position = position;
+            this.acks = ranks.newBitset();
+        }
+    }
+
+    public static class FlushTimeout extends Timeout {
+        public FlushTimeout(ScheduleTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<LoggedMajorityAckUniformReliableBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final Path storeDir;
+        private int segmentSize = 64 << 20;
+        private int maxBatch = 1024;
+        private long lingerMs = 0;
+
+        public Init(NetAddress self, Set<NetAddress> all, Path storeDir) {
+            this.self = self;
+            this.all = all;
+            this.storeDir = storeDir;
+        }
+
+        /**
+         * Share one force among at most maxBatch records, waiting at most lingerMs for more.
+         */
+        public Init withGroupCommit(int maxBatch, long lingerMs) {
+            if (maxBatch < 1 || lingerMs < 0) {
+                throw new IllegalArgumentException("maxBatch must be >= 1 and lingerMs >= 0");
+            }
+            this.maxBatch = maxBatch;
+            this.lingerMs = lingerMs;
+            return this;
+        }
+
+        /**
+         * Size of the log segment files, which bounds the size of one logged message and is the
+         * amount of log growth between truncations.
+         */
+        public Init withSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+    }
+}
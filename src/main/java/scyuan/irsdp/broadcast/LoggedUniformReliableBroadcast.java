@@ -19,6 +19,8 @@ import se.sics.kompics.PortType;
  *
  */
 public class LoggedUniformReliableBroadcast extends PortType {
-
-
+    {
+        request(Broadcast.class);
+        indication(LoggedDeliver.class);
+    }
 }
@@ -0,0 +1,114 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.SequenceWindow;
+import se.sics.kompics.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ *
+ * Fail-Silent Algorithm
+ *
+ * N > 2f if we assume that up to f processes may crash.
+ *
+ * Algorithm 3.5: Majority-Ack Uniform Reliable Broadcast
+ * Implements:
+ *     UniformReliableBroadcast, instance urb.
+ * Uses:
+ *     BestEffortBroadcast, instance beb.
+ *     // Except for the function candeliver(·) below and for the absence of  Crash  events
+ *     // triggered by the perfect failure detector, it is the same as Algorithm 3.4.
+ *
+ *     function candeliver(m) returns Boolean is
+ *         return #(ack[m]) > N/2;
+ *
+ * Every process beb-broadcasts m at most once and the links do not
+ * duplicate, so ack[m] is kept as a plain counter rather than a set of
+ * processes. Once m is delivered its entry leaves pending: the acks still
+ * to come cannot change anything, and delivered, a SequenceWindow per
+ * origin spanning at most dedupWindow numbers, is enough to recognise them. Memory is thus bounded by the
+ * messages still waiting for a majority. N is the number of nodes m was
+ * broadcast to, which every process reads from m itself, so a broadcast to
+ * a subset of Π needs a majority of that subset.
+ *
+ */
+public class MajorityAckUniformReliableBroadcastComp extends ComponentDefinition {
+    private final Negative<UniformReliableBroadcast> urb = provides(UniformReliableBroadcast.class);
+    private final Positive<BestEffortBroadcast> beb = requires(BestEffortBroadcast.class);
+
+    private Map<NetAddress, SequenceWindow> delivered;
+    private Map<ReliableBroadcastMessage, Ack> pending;
+    private NetAddress self;
+    private long sn;
+    private final int dedupWindow;
+
+    public MajorityAckUniformReliableBroadcastComp(Init init) {
+        this.self = init.self;
+        this.dedupWindow = init.dedupWindow;
+        this.delivered = new HashMap<>();
+        this.pending = new HashMap<>();
+        this.sn = 0;
+
+        subscribe(broadcastHandler, urb);
+        subscribe(deliverHandler, beb);
+    }
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            ReliableBroadcastMessage m = new ReliableBroadcastMessage(self, sn++, event.payload, event.nodes);
+            pending.put(m, new Ack());
+            trigger(new Broadcast(m, event.nodes, self), beb);
+        }
+    };
+
+    private final ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<ReliableBroadcastMessage, BroadcastDeliver>() {
+        @Override
+        public void handle(ReliableBroadcastMessage content, BroadcastDeliver context) {
+            Ack ack = pending.get(content);
+            if (ack == null) {
+                SequenceWindow window = delivered.get(content.src);
+                if (window != null && window.contains(content.sn)) {
+                    return;
+                }
+                ack = new Ack();
+                pending.put(content, ack);
+                trigger(new Broadcast(content, content.nodes, context.src), beb);
+            }
+
+            ack.count += 1;
+            if (ack.count > content.nodes.size() / 2) {
+                pending.remove(content);
+                delivered.computeIfAbsent(content.src, k -> new SequenceWindow(dedupWindow)).add(content.sn);
+                trigger(new BroadcastDeliver(content.payload, content.src), urb);
+            }
+        }
+    };
+
+    private static class Ack {
+        private int count;
+    }
+
+    public static class Init extends se.sics.kompics.Init<MajorityAckUniformReliableBroadcastComp> {
+        private final NetAddress self;
+        private int dedupWindow = 1 << 16;
+
+        public Init(NetAddress self) {
+            this.self = self;
+        }
+
+        /**
+         * Track up to dedupWindow out-of-order sequence numbers per origin.
+         */
+        public Init withDedupWindow(int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.dedupWindow = dedupWindow;
+            return this;
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package scyuan.irsdp.broadcast;
 
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
 import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.SequenceWindow;
 import se.sics.kompics.*;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  *
@@ -20,6 +24,8 @@ import java.util.Set;
  *
  * Uses:
  *     ReliableBroadcast, instance rb.
+ *     BestEffortBroadcast, instance beb; // stability reports only
+ *     PerfectFailureDetector, instance P. // stability reports only
  *
  * upon event [ crb, Init ] do
  *     delivered := ∅;
@@ -30,7 +36,7 @@ import java.util.Set;
  *     append(past, (self, m));
  *
  * upon event [ rb, Deliver | p, [DATA, mpast, m] ] do
- *     if m !∈ delivered then
+ *     if m !∈ delivered then
  *         forall (s, n) ∈ mpast do // by the order in the list
  *             if n !∈ delivered then
  *                 trigger [ crb, Deliver | s, n ];
@@ -42,66 +48,188 @@ import java.util.Set;
  *         if (p, m) !∈ past then
  *             append(past, (p, m));
  *
+ * Messages are identified by (origin, sn). Causal order delivers the
+ * messages of each origin in sn order, so delivered is one SequenceWindow
+ * per origin, capped at dedupWindow numbers, and past is a LinkedHashSet that keeps the order while
+ * answering membership in O(1).
+ *
+ * Every period each process beb-broadcasts its delivered watermarks; a lost
+ * report is superseded by the next one, so the O(N) messages of beb are
+ * enough where rb would cost O(N²). An entry (s, n) of past is stable once
+ * every correct process reported a watermark for s above n; nobody needs it
+ * in an mpast any more, so it is dropped and the size of mpast stays
+ * bounded while the correct processes keep reporting. Only this garbage
+ * collection uses a PerfectFailureDetector: a crashed process leaves the
+ * set whose reports are awaited, so it cannot hold back pruning forever.
+ *
  */
 public class NoWaitingCausalBroadcastComp extends ComponentDefinition {
     private final Negative<CausalOrderReliableBroadcast> crb = provides(CausalOrderReliableBroadcast.class);
     private final Positive<ReliableBroadcast> rb = requires(ReliableBroadcast.class);
+    private final Positive<BestEffortBroadcast> beb = requires(BestEffortBroadcast.class);
+    private final Positive<PerfectFailureDetector> pfd = requires(PerfectFailureDetector.class);
+    private final Positive<Timer> timer = requires(Timer.class);
 
     private final NetAddress self;
     private final Set<NetAddress> all;
+    private final long period;
+    private final int dedupWindow;
+
+    private Set<NetAddress> correct;
+    private long lsn;
+    private Map<NetAddress, SequenceWindow> delivered;
+    private LinkedHashSet<ProcessMessageTuple> past;
+    private Map<NetAddress, Map<NetAddress, Long>> watermarks;
 
-    private Set<KompicsEvent> delivered;
-    private List<ProcessMessageTuple> past;
+    private UUID timerId;
 
     public NoWaitingCausalBroadcastComp(Init init) {
         this.self = init.self;
         this.all = new HashSet<>(init.all);
+        this.period = init.period;
+        this.dedupWindow = init.dedupWindow;
 
-        this.delivered = new HashSet<>();
-        this.past = new LinkedList<>();
+        this.correct = new HashSet<>(init.all);
+        this.lsn = 0;
+        this.delivered = new HashMap<>();
+        this.past = new LinkedHashSet<>();
+        this.watermarks = new HashMap<>();
 
+        subscribe(startHandler, control);
         subscribe(broadcastHandler, crb);
         subscribe(deliverHandler, rb);
+        subscribe(stabilityHandler, beb);
+        subscribe(crashHandler, pfd);
+        subscribe(timeoutHandler, timer);
     }
 
+    private final Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(period, period);
+            StabilityTimeout timeout = new StabilityTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
     private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
-            trigger(new Broadcast(new CausalOrderReliableBroadcastMessage(self, event.payload, new LinkedList<>(past)), event.nodes, self), rb);
-            past.add(new ProcessMessageTuple(self, event.payload));
+            long sn = lsn++;
+            trigger(new Broadcast(new CausalOrderReliableBroadcastMessage(self, sn, event.payload, new ArrayList<>(past)), event.nodes, self), rb);
+            past.add(new ProcessMessageTuple(self, sn, event.payload));
         }
     };
 
     private final ClassMatchedHandler<CausalOrderReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<CausalOrderReliableBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(CausalOrderReliableBroadcastMessage content, BroadcastDeliver context) {
-            if (!delivered.contains(content.payload)) {
-                for (ProcessMessageTuple tuple : content.mpast) {
-                    if (!delivered.contains(tuple.m)) {
-                        trigger(new BroadcastDeliver(tuple.m, tuple.p), crb);
-                        delivered.add(tuple.m);
-                        if (!past.contains(tuple)) {
-                            past.add(tuple);
-                        }
-                    }
-                }
-                trigger(new BroadcastDeliver(content.payload, content.src), crb);
-                delivered.add(content.payload);
-                ProcessMessageTuple t = new ProcessMessageTuple(content.src, content.payload);
-                if (past.contains(t)) {
-                    past.add(t);
+            if (isDelivered(content.src, content.sn)) {
+                return;
+            }
+            for (ProcessMessageTuple tuple : content.mpast) {
+                if (!isDelivered(tuple.p, tuple.sn)) {
+                    deliver(tuple);
                 }
             }
+            deliver(new ProcessMessageTuple(content.src, content.sn, content.payload));
         }
     };
 
+    private final Handler<StabilityTimeout> timeoutHandler = new Handler<StabilityTimeout>() {
+        @Override
+        public void handle(StabilityTimeout event) {
+            Map<NetAddress, Long> marks = new HashMap<>();
+            for (Map.Entry<NetAddress, SequenceWindow> entry : delivered.entrySet()) {
+                marks.put(entry.getKey(), entry.getValue().next());
+            }
+            trigger(new Broadcast(new StabilityMessage(all, marks), new HashSet<>(correct), self), beb);
+        }
+    };
+
+    private final ClassMatchedHandler<StabilityMessage, BroadcastDeliver> stabilityHandler = new ClassMatchedHandler<StabilityMessage, BroadcastDeliver>() {
+        @Override
+        public void handle(StabilityMessage content, BroadcastDeliver context) {
+            if (correct.contains(context.src)) {
+                watermarks.put(context.src, content.delivered);
+                prune();
+            }
+        }
+    };
+
+    private final Handler<Crash> crashHandler = new Handler<Crash>() {
+        @Override
+        public void handle(Crash event) {
+            correct.remove(event.p);
+            watermarks.remove(event.p);
+            prune();
+        }
+    };
+
+    private boolean isDelivered(NetAddress s, long sn) {
+        SequenceWindow window = delivered.get(s);
+        return window != null && window.contains(sn);
+    }
+
+    private void deliver(ProcessMessageTuple tuple) {
+        trigger(new BroadcastDeliver(tuple.m, tuple.p), crb);
+        delivered.computeIfAbsent(tuple.p, k -> new SequenceWindow(dedupWindow)).add(tuple.sn);
+        past.add(tuple);
+    }
+
+    private void prune() {
+        Map<NetAddress, Long> stable = new HashMap<>();
+        past.removeIf(t -> t.sn < stable.computeIfAbsent(t.p, s -> stable(s)));
+    }
+
+    /**
+     * The sequence number of s below which every correct process has delivered all messages of s.
+     */
+    private long stable(NetAddress s) {
+        long stable = Long.MAX_VALUE;
+        for (NetAddress q : correct) {
+            Map<NetAddress, Long> marks = watermarks.get(q);
+            stable = Math.min(stable, marks == null ? 0 : marks.getOrDefault(s, 0L));
+        }
+        return stable;
+    }
+
+    @Override
+    public void tearDown() {
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
+        }
+    }
+
+    public static class StabilityTimeout extends Timeout {
+        public StabilityTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
     public static class Init extends se.sics.kompics.Init<NoWaitingCausalBroadcastComp> {
         private final NetAddress self;
         private final Set<NetAddress> all;
+        private final long period;
+        private int dedupWindow = 1 << 16;
 
-        public Init(NetAddress self, Set<NetAddress> all) {
+        public Init(NetAddress self, Set<NetAddress> all, long period) {
             this.self = self;
             this.all = all;
+            this.period = period;
+        }
+
+        /**
+         * Remember up to dedupWindow sequence numbers per origin beyond its delivered watermark.
+         */
+        public Init withDedupWindow(int dedupWindow) {
+            if (dedupWindow < 64 || dedupWindow > 1 << 30) {
+                throw new IllegalArgumentException("dedupWindow must be between 64 and 2^30");
+            }
+            this.dedupWindow = dedupWindow;
+            return this;
         }
     }
 
@@ -19,4 +19,8 @@ import se.sics.kompics.PortType;
  *
  */
 public class ProbabilisticBroadcast extends PortType {
+    {
+        request(Broadcast.class);
+        indication(BroadcastDeliver.class);
+    }
 }
@@ -3,12 +3,34 @@ package scyuan.irsdp.broadcast;
 import scyuan.irsdp.link.NetAddress;
 import se.sics.kompics.KompicsEvent;
 
-public class ProcessMessageTuple {
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Message m broadcast by p as p's sn-th message. Tuples are equal when (p, sn) are.
+ */
+public class ProcessMessageTuple implements Serializable {
     public final NetAddress p;
+    public final long sn;
     public final KompicsEvent m;
 
-    public ProcessMessageTuple(NetAddress p, KompicsEvent m) {
+    public ProcessMessageTuple(NetAddress p, long sn, KompicsEvent m) {
         this.p = p;
+        this.sn = sn;
         this.m = m;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProcessMessageTuple that = (ProcessMessageTuple) o;
+        return sn == that.sn &&
+                p.equals(that.p);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(p, sn);
+    }
 }
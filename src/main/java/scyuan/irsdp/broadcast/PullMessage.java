@@ -0,0 +1,19 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * [REQUEST, s, sns]: the sender misses the messages of origin s numbered sns, in ascending order.
+ */
+public class PullMessage implements KompicsEvent, Serializable {
+    public final NetAddress src;
+    public final long[] sns;
+
+    public PullMessage(NetAddress src, long[] sns) {
+        this.src = src;
+        this.sns = sns;
+    }
+}
@@ -0,0 +1,58 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+
+import java.util.*;
+
+/**
+ * Numbers the members of a group 0..n-1 in address order, so every process assigns the same
+ * rank to the same member and per-member state can live in arrays and bitsets.
+ */
+final class Ranks {
+
+    private final NetAddress[] members;
+    private final Map<NetAddress, Integer> ranks;
+
+    Ranks(Collection<NetAddress> all) {
+        this.members = new TreeSet<>(all).toArray(new NetAddress[0]);
+        this.ranks = new HashMap<>();
+        for (int i = 0; i < members.length; i++) {
+            ranks.put(members[i], i);
+        }
+    }
+
+    /**
+     * The rank of p, or -1 if p is not a member.
+     */
+    int of(NetAddress p) {
+        Integer rank = ranks.get(p);
+        return rank == null ? -1 : rank;
+    }
+
+    NetAddress get(int rank) {
+        return members[rank];
+    }
+
+    int size() {
+        return members.length;
+    }
+
+    /**
+     * An empty bitset wide enough for one bit per member.
+     */
+    long[] newBitset() {
+        return new long[(members.length + 63) >>> 6];
+    }
+
+    /**
+     * Whether every bit of subset is also set in set.
+     */
+    static boolean covers(long[] set, long[] subset) {
+        for (int i = 0; i < subset.length; i++) {
+            if ((subset[i] & ~set[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -8,11 +8,19 @@ import java.io.Serializable;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * A message is identified by its origin src and the sequence number sn that src gave it,
+ * counting from 0, so equal payloads broadcast twice remain two messages.
+ */
 public class ReliableBroadcastMessage implements KompicsEvent, Serializable, PatternExtractor<Class<Object>, KompicsEvent> {
+    public final NetAddress src;
+    public final long sn;
     public final KompicsEvent payload;
     public final Set<NetAddress> nodes;
 
-    public ReliableBroadcastMessage(KompicsEvent payload, Set<NetAddress> nodes) {
+    public ReliableBroadcastMessage(NetAddress src, long sn, KompicsEvent payload, Set<NetAddress> nodes) {
+        this.src = src;
+        this.sn = sn;
         this.payload = payload;
         this.nodes = nodes;
     }
@@ -33,12 +41,12 @@ public class ReliableBroadcastMessage implements KompicsEvent, Serializable, Pat
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ReliableBroadcastMessage that = (ReliableBroadcastMessage) o;
-        return payload.equals(that.payload) &&
-                nodes.equals(that.nodes);
+        return sn == that.sn &&
+                src.equals(that.src);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(payload, nodes);
+        return Objects.hash(src, sn);
     }
 }
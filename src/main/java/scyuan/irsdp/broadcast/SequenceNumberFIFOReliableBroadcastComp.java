@@ -3,7 +3,7 @@ package scyuan.irsdp.broadcast;
 import scyuan.irsdp.link.NetAddress;
 import se.sics.kompics.*;
 
-import java.util.*;
+import java.util.Set;
 
 /**
  *
@@ -33,27 +33,34 @@ import java.util.*;
  *         pending := pending \ {(s, m, sn)};
  *         trigger [ frb, Deliver | s, m ];
  *
+ * pending is split per sender into a ring buffer indexed by sn, sized to
+ * the gap between next[s] and the highest sn received from s. A delivery
+ * stores m in its slot and then drains the contiguous run starting at
+ * next[s], so each message is handled O(1) times. next is a long[] indexed
+ * by Ranks.
+ *
  */
 public class SequenceNumberFIFOReliableBroadcastComp extends ComponentDefinition {
     private final Negative<FIFOReliableBroadcast> frb = provides(FIFOReliableBroadcast.class);
     private final Positive<ReliableBroadcast> rb = requires(ReliableBroadcast.class);
 
     private final NetAddress self;
-    private final Set<NetAddress> all;
+    private final Ranks ranks;
 
     private long lsn;
-    private Set<FIFOReliableBroadcastMessage> pending;
-    private Map<NetAddress, Long> next;
+    private ReorderBuffer[] pending;
+    private long[] next;
 
     public SequenceNumberFIFOReliableBroadcastComp(Init init) {
         this.self = init.self;
-        this.all = new HashSet<>(init.all);
+        this.ranks = new Ranks(init.all);
 
         this.lsn = 0;
-        this.pending = new HashSet<>();
-        this.next = new HashMap<>();
-        for (NetAddress p: this.all) {
-            this.next.put(p, 1L);
+        this.pending = new ReorderBuffer[ranks.size()];
+        this.next = new long[ranks.size()];
+        for (int i = 0; i < ranks.size(); i++) {
+            this.pending[i] = new ReorderBuffer();
+            this.next[i] = 1;
         }
 
         subscribe(broadcastHandler, frb);
@@ -71,19 +78,53 @@ public class SequenceNumberFIFOReliableBroadcastComp extends ComponentDefinition
     private final ClassMatchedHandler<FIFOReliableBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<FIFOReliableBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(FIFOReliableBroadcastMessage content, BroadcastDeliver context) {
-            pending.add(content);
-            Iterator<FIFOReliableBroadcastMessage> iter = pending.iterator();
-            while (iter.hasNext()) {
-                FIFOReliableBroadcastMessage m = iter.next();
-                if (m.sn == next.get(m.src)) {
-                    next.compute(m.src, (k, v) -> v + 1L);
-                    iter.remove();
-                    trigger(new BroadcastDeliver(m.payload, m.src), frb);
-                }
+            int s = ranks.of(content.src);
+            if (s < 0 || content.sn < next[s]) {
+                return;
+            }
+
+            ReorderBuffer buffer = pending[s];
+            buffer.put(next[s], content);
+            FIFOReliableBroadcastMessage m;
+            while ((m = buffer.take(next[s])) != null) {
+                next[s] += 1;
+                trigger(new BroadcastDeliver(m.payload, m.src), frb);
             }
         }
     };
 
+    /**
+     * Messages of one sender keyed by sn, valid for next <= sn < next + capacity. The ring
+     * doubles when a message arrives beyond that range.
+     */
+    private static class ReorderBuffer {
+        private FIFOReliableBroadcastMessage[] slots = new FIFOReliableBroadcastMessage[16];
+
+        private void put(long next, FIFOReliableBroadcastMessage m) {
+            if (m.sn - next >= slots.length) {
+                FIFOReliableBroadcastMessage[] old = slots;
+                int capacity = old.length;
+                while (m.sn - next >= capacity) {
+                    capacity <<= 1;
+                }
+                slots = new FIFOReliableBroadcastMessage[capacity];
+                for (long sn = next; sn < next + old.length; sn++) {
+                    slots[(int) (sn & (capacity - 1))] = old[(int) (sn & (old.length - 1))];
+                }
+            }
+            slots[(int) (m.sn & (slots.length - 1))] = m;
+        }
+
+        private FIFOReliableBroadcastMessage take(long sn) {
+            int index = (int) (sn & (slots.length - 1));
+            FIFOReliableBroadcastMessage m = slots[index];
+            if (m != null) {
+                slots[index] = null;
+            }
+            return m;
+        }
+    }
+
     public static class Init extends se.sics.kompics.Init<SequenceNumberFIFOReliableBroadcastComp> {
         private final NetAddress self;
         private final Set<NetAddress> all;
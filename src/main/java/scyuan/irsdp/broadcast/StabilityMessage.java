@@ -0,0 +1,22 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delivered watermarks of the sender over the messages broadcast to nodes: for every origin,
+ * the sequence number below which the sender has delivered all messages of that origin to nodes.
+ */
+public class StabilityMessage implements KompicsEvent, Serializable {
+    public final Set<NetAddress> nodes;
+    public final Map<NetAddress, Long> delivered;
+
+    public StabilityMessage(Set<NetAddress> nodes, Map<NetAddress, Long> delivered) {
+        this.nodes = nodes;
+        this.delivered = delivered;
+    }
+}
@@ -0,0 +1,22 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * Acks the TreeMessage of root with sequence number sn and range end to once the receiver and every
+ * position of its range have it.
+ */
+public class TreeAck implements KompicsEvent, Serializable {
+    public final NetAddress root;
+    public final long sn;
+    public final int to;
+
+    public TreeAck(NetAddress root, long sn, int to) {
+        this.root = root;
+        this.sn = sn;
+        this.to = to;
+    }
+}
@@ -0,0 +1,311 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.EventuallyPerfectFailureDetector;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
+import scyuan.irsdp.failuredetector.Restore;
+import scyuan.irsdp.failuredetector.Suspect;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.PerfectPointToPointLink;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.SendAll;
+import scyuan.irsdp.link.SequenceWindow;
+import se.sics.kompics.*;
+
+import java.util.*;
+
+/**
+ *
+ *
+ * Tree Broadcast
+ * Implements:
+ *     BestEffortBroadcast, instance beb.
+ * Uses:
+ *     PerfectPointToPointLinks, instance pl;
+ *     PerfectFailureDetector or EventuallyPerfectFailureDetector, instance fd.
+ *
+ * upon event [ beb, Init ] do
+ *     failed := ∅;
+ *     unacked := ∅;
+ *
+ * procedure forward(s, m, lo, hi) is
+ *     forall [a, b) ∈ split([lo, hi), k) do
+ *         if exists c ∈ [a, b) such that member(s, c) !∈ failed then
+ *             c := min of such c;
+ *             unacked := unacked ∪ {(member(s, c), [TREE, s, m, c, b])};
+ *             trigger [ pl, Send | member(s, c), [TREE, s, m, c, b] ];
+ *
+ * upon event [ beb, Broadcast | m ] do
+ *     trigger [ beb, Deliver | self, m ];
+ *     forward(self, m, 1, N);
+ *
+ * upon event [ pl, Deliver | p, [TREE, s, m, from, to] ] do
+ *     trigger [ beb, Deliver | s, m ];
+ *     forward(s, m, from + 1, to);
+ *     once unacked holds no [TREE, s, m, c, b] with from < c < to do
+ *         trigger [ pl, Send | p, [TREE-ACK, s, m, to] ];
+ *
+ * upon event [ pl, Deliver | q, [TREE-ACK, s, m, to] ] do
+ *     unacked := unacked \ {(q, [TREE, s, m, c, to])};
+ *
+ * upon event [ fd, Crash | p ] or [ fd, Suspect | p ] do
+ *     failed := failed ∪ {p};
+ *     forall (p, [TREE, s, m, from, to]) ∈ unacked do
+ *         unacked := unacked \ {(p, [TREE, s, m, from, to])};
+ *         forward(s, m, from + 1, to);
+ *
+ * upon event [ fd, Restore | p ] do
+ *     failed := failed \ {p};
+ *
+ * member(s, i) is the member i places after s in rank order, so every
+ * broadcast has its own k-ary tree rooted at the sender and the interior
+ * nodes differ from sender to sender, spreading the relaying across the
+ * cluster. The sender sends k messages instead of N and a message needs
+ * about log_k(N) hops. A message carries the range of positions its
+ * receiver is responsible for, so relays never need the same view of
+ * failed: a failed member is skipped when its range is split, and its
+ * subtree is handed to the next live member of the range.
+ *
+ * A relay keeps every message it sent to a child until the child acks it,
+ * and a child acks only once its own children have, so when a child
+ * crashes or is suspected its whole range is sent again, around it, no
+ * matter how many messages were in flight. The acks carry no payload and
+ * travel one hop per relay. Receivers may see a message twice after a
+ * repair, so messages carry (s, sn) and delivered is a SequenceWindow per
+ * sender. A Broadcast to a subset of the members is sent directly, like in
+ * Basic Broadcast.
+ *
+ * The failure detector is chosen in Init: P repairs only around crashed
+ * relays, ◇P also around slow ones, at the cost of some duplicates.
+ *
+ */
+public class TreeBroadcastComp extends ComponentDefinition {
+    private final Negative<BestEffortBroadcast> beb = provides(BestEffortBroadcast.class);
+    private final Positive<PerfectPointToPointLink> pl = requires(PerfectPointToPointLink.class);
+    private final Positive<? extends PortType> fd;
+
+    private final NetAddress self;
+    private final Set<NetAddress> all;
+    private final Ranks ranks;
+    private final int fanout;
+
+    private long sn;
+    private boolean[] failed;
+    private Map<NetAddress, SequenceWindow> delivered;
+    private Map<NetAddress, ArrayDeque<Hop>> unacked;
+
+    public TreeBroadcastComp(Init init) {
+        this.fd = requires(init.detector);
+        this.self = init.self;
+        this.all = new HashSet<>(init.all);
+        this.ranks = new Ranks(init.all);
+        this.fanout = init.fanout;
+        this.sn = 0;
+        this.failed = new boolean[ranks.size()];
+        this.delivered = new HashMap<>();
+        this.unacked = new HashMap<>();
+
+        subscribe(broadcastHandler, beb);
+        subscribe(deliverHandler, pl);
+        if (init.detector == PerfectFailureDetector.class) {
+            subscribe(crashHandler, fd);
+        } else {
+            subscribe(suspectHandler, fd);
+            subscribe(restoreHandler, fd);
+        }
+    }
+
+    private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
+        @Override
+        public void handle(Broadcast event) {
+            if (!event.nodes.equals(all)) {
+                trigger(new SendAll(event.nodes, event.payload), pl);
+                return;
+            }
+            long n = sn++;
+            window(self).add(n);
+            trigger(new BroadcastDeliver(event.payload, self), beb);
+            relay(null, new TreeMessage(self, n, event.payload, 0, ranks.size()));
+        }
+    };
+
+    private final Handler<Deliver> deliverHandler = new Handler<Deliver>() {
+        @Override
+        public void handle(Deliver event) {
+            if (event.payload instanceof TreeAck) {
+                acked(event.src, (TreeAck) event.payload);
+                return;
+            }
+            if (!(event.payload instanceof TreeMessage)) {
+                trigger(new BroadcastDeliver(event.payload, event.src), beb);
+                return;
+            }
+            TreeMessage m = (TreeMessage) event.payload;
+            if (window(m.root).add(m.sn)) {
+                trigger(new BroadcastDeliver(m.payload, m.root), beb);
+            }
+            relay(event.src, m);
+        }
+    };
+
+    private final Handler<Crash> crashHandler = new Handler<Crash>() {
+        @Override
+        public void handle(Crash event) {
+            fail(event.p);
+        }
+    };
+
+    private final Handler<Suspect> suspectHandler = new Handler<Suspect>() {
+        @Override
+        public void handle(Suspect event) {
+            fail(event.p);
+        }
+    };
+
+    private final Handler<Restore> restoreHandler = new Handler<Restore>() {
+        @Override
+        public void handle(Restore event) {
+            int rank = ranks.of(event.p);
+            if (rank >= 0) {
+                failed[rank] = false;
+            }
+        }
+    };
+
+    /**
+     * Forwards m into the range below its receiver, acking it to parent right away if the range
+     * is empty or all failed. parent is null for an own broadcast.
+     */
+    private void relay(NetAddress parent, TreeMessage m) {
+        Relay r = new Relay(parent, m);
+        forward(r, m.from + 1, m.to);
+        if (r.outstanding == 0) {
+            done(r);
+        }
+    }
+
+    /**
+     * Splits the positions [lo, hi) of the tree rooted at the origin of r into k ranges and sends
+     * the message to the first live member of each.
+     */
+    private void forward(Relay r, int lo, int hi) {
+        int root = ranks.of(r.m.root);
+        int size = hi - lo;
+        if (root < 0 || size <= 0) {
+            return;
+        }
+        int chunk = (size + fanout - 1) / fanout;
+        for (int start = lo; start < hi; start += chunk) {
+            int end = Math.min(start + chunk, hi);
+            for (int c = start; c < end; c++) {
+                int rank = (root + c) % ranks.size();
+                if (!failed[rank]) {
+                    NetAddress child = ranks.get(rank);
+                    TreeMessage m = new TreeMessage(r.m.root, r.m.sn, r.m.payload, c, end);
+                    trigger(new Send(child, m), pl);
+                    unacked.computeIfAbsent(child, k -> new ArrayDeque<>()).addLast(new Hop(r, m));
+                    r.outstanding++;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void acked(NetAddress child, TreeAck ack) {
+        ArrayDeque<Hop> hops = unacked.get(child);
+        if (hops == null) {
+            return;
+        }
+        for (Iterator<Hop> it = hops.iterator(); it.hasNext(); ) {
+            Hop hop = it.next();
+            if (hop.m.sn == ack.sn && hop.m.to == ack.to && hop.m.root.equals(ack.root)) {
+                it.remove();
+                if (--hop.relay.outstanding == 0) {
+                    done(hop.relay);
+                }
+                return;
+            }
+        }
+    }
+
+    private void done(Relay r) {
+        if (r.parent != null) {
+            trigger(new Send(r.parent, new TreeAck(r.m.root, r.m.sn, r.m.to)), pl);
+        }
+    }
+
+    private void fail(NetAddress p) {
+        int rank = ranks.of(p);
+        if (rank < 0 || failed[rank]) {
+            return;
+        }
+        failed[rank] = true;
+        ArrayDeque<Hop> hops = unacked.remove(p);
+        if (hops != null) {
+            for (Hop hop : hops) {
+                hop.relay.outstanding--;
+                forward(hop.relay, hop.m.from + 1, hop.m.to);
+                if (hop.relay.outstanding == 0) {
+                    done(hop.relay);
+                }
+            }
+        }
+    }
+
+    private SequenceWindow window(NetAddress s) {
+        return delivered.computeIfAbsent(s, k -> new SequenceWindow());
+    }
+
+    /**
+     * A received message and the number of children that have not acked it yet.
+     */
+    private static class Relay {
+        final NetAddress parent;
+        final TreeMessage m;
+        int outstanding;
+
+        Relay(NetAddress parent, TreeMessage m) {
+            this.parent = parent;
+            this.m = m;
+        }
+    }
+
+    private static class Hop {
+        final Relay relay;
+        final TreeMessage m;
+
+        Hop(Relay relay, TreeMessage m) {
+            this.relay = relay;
+            this.m = m;
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<TreeBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final int fanout;
+        private Class<? extends PortType> detector = PerfectFailureDetector.class;
+
+        public Init(NetAddress self, Set<NetAddress> all, int fanout) {
+            if (fanout < 1) {
+                throw new IllegalArgumentException("fanout must be >= 1");
+            }
+            this.self = self;
+            this.all = all;
+            this.fanout = fanout;
+        }
+
+        /**
+         * The failure detector port to require, PerfectFailureDetector (the default) or
+         * EventuallyPerfectFailureDetector.
+         */
+        public Init withFailureDetector(Class<? extends PortType> detector) {
+            if (detector != PerfectFailureDetector.class && detector != EventuallyPerfectFailureDetector.class) {
+                throw new IllegalArgumentException("detector must be PerfectFailureDetector or EventuallyPerfectFailureDetector");
+            }
+            this.detector = detector;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * The sn-th broadcast of root on its way down the tree. Members are numbered by rank starting at
+ * root, and the receiver, at position from, is responsible for the positions in [from, to).
+ */
+public class TreeMessage implements KompicsEvent, Serializable {
+    public final NetAddress root;
+    public final long sn;
+    public final KompicsEvent payload;
+    public final int from;
+    public final int to;
+
+    public TreeMessage(NetAddress root, long sn, KompicsEvent payload, int from, int to) {
+        this.root = root;
+        this.sn = sn;
+        this.payload = payload;
+        this.from = from;
+        this.to = to;
+    }
+}
@@ -3,7 +3,8 @@ package scyuan.irsdp.broadcast;
 import scyuan.irsdp.link.NetAddress;
 import se.sics.kompics.*;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.Set;
 
 /**
  *
@@ -35,34 +36,40 @@ import java.util.*;
  *         V [rank(p')] := V [rank(p')] + 1;
  *         trigger [ crb, Deliver | p, m ];
  *
+ * pending is a CausalDeliveryQueue, which also holds V: messages wait per
+ * sender and only the next one of each sender is checked, again whenever
+ * the entry of V it waits on advances. A delivery drains every message it
+ * enables.
+ *
+ * The algorithm only needs the port it provides and the one it broadcasts
+ * over; subclasses pick other ones, as WaitingCausalUniformReliableBroadcastComp
+ * does with urb.
+ *
  */
 public class WaitingCausalBroadcastComp extends ComponentDefinition {
-    private final Negative<CausalOrderReliableBroadcast> crb = provides(CausalOrderReliableBroadcast.class);
-    private final Positive<ReliableBroadcast> rb = requires(ReliableBroadcast.class);
+    private final Negative<? extends PortType> crb;
+    private final Positive<? extends PortType> rb;
 
     private final NetAddress self;
-    private final Set<NetAddress> all;
+    private final Ranks ranks;
 
-    private long[] vectorClock;
     private long lsn;
-    private Set<WaitingCausalBroadcastMessage> pending;
-
-    private Map<NetAddress, Integer> rank;
+    private CausalDeliveryQueue<WaitingCausalBroadcastMessage> pending;
 
     public WaitingCausalBroadcastComp(Init init) {
-        this.self = init.self;
-        this.all = new HashSet<>(init.all);
-        this.lsn = 0;
-        this.vectorClock = new long[this.all.size()];
-        Arrays.fill(this.vectorClock, 0L);
-        this.pending = new HashSet<>();
+        this(init.self, init.all, CausalOrderReliableBroadcast.class, ReliableBroadcast.class);
+    }
 
-        this.rank = new HashMap<>();
-        NetAddress[] members = this.all.toArray(new NetAddress[0]);
-        Arrays.sort(members);
-        for (int i = 0; i < members.length; i++) {
-            this.rank.put(members[i], i);
-        }
+    /**
+     * Provides the causal broadcast on provided, on top of the reliable broadcast of required.
+     */
+    protected WaitingCausalBroadcastComp(NetAddress self, Set<NetAddress> all, Class<? extends PortType> provided, Class<? extends PortType> required) {
+        this.crb = provides(provided);
+        this.rb = requires(required);
+        this.self = self;
+        this.ranks = new Ranks(all);
+        this.lsn = 0;
+        this.pending = new CausalDeliveryQueue<>(ranks.size());
 
         subscribe(broadcastHandler, crb);
         subscribe(deliverHandler, rb);
@@ -71,8 +78,9 @@ public class WaitingCausalBroadcastComp extends ComponentDefinition {
     private final Handler<Broadcast> broadcastHandler = new Handler<Broadcast>() {
         @Override
         public void handle(Broadcast event) {
+            long[] vectorClock = pending.delivered();
             long[] vectorClockCopy = Arrays.copyOf(vectorClock, vectorClock.length);
-            vectorClockCopy[rank.get(self)] = lsn;
+            vectorClockCopy[ranks.of(self)] = lsn;
             lsn += 1;
             trigger(new Broadcast(new WaitingCausalBroadcastMessage(self, event.payload, vectorClockCopy), event.nodes, self), rb);
         }
@@ -81,28 +89,14 @@ public class WaitingCausalBroadcastComp extends ComponentDefinition {
     private final ClassMatchedHandler<WaitingCausalBroadcastMessage, BroadcastDeliver> deliverHandler = new ClassMatchedHandler<WaitingCausalBroadcastMessage, BroadcastDeliver>() {
         @Override
         public void handle(WaitingCausalBroadcastMessage content, BroadcastDeliver context) {
-            pending.add(content);
-            Iterator<WaitingCausalBroadcastMessage> iter = pending.iterator();
-            while (iter.hasNext()) {
-                WaitingCausalBroadcastMessage msg = iter.next();
-                if (lessThanOrEqual(msg.vectorClock, vectorClock)) {
-                    iter.remove();
-                    vectorClock[rank.get(msg.src)] += 1;
-                    trigger(new BroadcastDeliver(msg.payload, msg.src), crb);
-                }
+            int s = ranks.of(content.src);
+            if (s < 0 || content.vectorClock.length != ranks.size()) {
+                return;
             }
+            pending.add(s, content.vectorClock, content, msg -> trigger(new BroadcastDeliver(msg.payload, msg.src), crb));
         }
     };
 
-    private boolean lessThanOrEqual(long[] w, long[] v) {
-        for (int i = 0; i < w.length; i++) {
-            if (w[i] > v[i]) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     public static class Init extends se.sics.kompics.Init<WaitingCausalBroadcastComp> {
         private final NetAddress self;
         private final Set<NetAddress> all;
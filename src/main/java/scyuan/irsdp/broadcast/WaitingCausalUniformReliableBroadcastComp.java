@@ -0,0 +1,40 @@
+package scyuan.irsdp.broadcast;
+
+import scyuan.irsdp.link.NetAddress;
+
+import java.util.Set;
+
+/**
+ *
+ *
+ * Fail-Silent Algorithm
+ *
+ * Algorithm 3.15: Waiting Causal Broadcast, layered over uniform reliable broadcast
+ * Implements:
+ *     CausalOrderUniformReliableBroadcast, instance curb.
+ *
+ * Uses:
+ *     UniformReliableBroadcast, instance urb.
+ *
+ * Replacing rb by urb is all it takes to make the causal broadcast uniform:
+ * a message is only handed to the causal layer once urb delivers it, so
+ * whatever one process delivers, every correct process eventually gets.
+ * The algorithm itself is WaitingCausalBroadcastComp's.
+ *
+ */
+public class WaitingCausalUniformReliableBroadcastComp extends WaitingCausalBroadcastComp {
+
+    public WaitingCausalUniformReliableBroadcastComp(Init init) {
+        super(init.self, init.all, CausalOrderUniformReliableBroadcast.class, UniformReliableBroadcast.class);
+    }
+
+    public static class Init extends se.sics.kompics.Init<WaitingCausalUniformReliableBroadcastComp> {
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+
+        public Init(NetAddress self, Set<NetAddress> all) {
+            this.self = self;
+            this.all = all;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package scyuan.irsdp.broadcast;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * [WRITE, s, m] for every message of writes, all of which the sender has logged. recovery is set
+ * when the sender resends its pending messages after a crash and needs acks for them again.
+ */
+public class WriteBatch implements KompicsEvent, Serializable {
+    public final boolean recovery;
+    public final List<DataMessage> writes;
+
+    public WriteBatch(boolean recovery, List<DataMessage> writes) {
+        this.recovery = recovery;
+        this.writes = writes;
+    }
+}
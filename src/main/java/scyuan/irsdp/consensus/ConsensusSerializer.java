@@ -0,0 +1,56 @@
+package scyuan.irsdp.consensus;
+
+import io.netty.buffer.ByteBuf;
+import se.sics.kompics.network.netty.serialization.Serializer;
+
+import java.util.Optional;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Compact encoding of the consensus messages: a one byte tag followed by the fields.
+ * Values are nested through the Kompics Serializers registry.
+ *
+ */
+public class ConsensusSerializer implements Serializer {
+
+    private static final byte STATE = 1;
+
+    private final int id;
+
+    public ConsensusSerializer(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        if (o instanceof State) {
+            State s = (State) o;
+            buf.writeByte(STATE);
+            writeVarLong(buf, s.valts);
+            writeObject(buf, s.val);
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + o.getClass());
+        }
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        byte tag = buf.readByte();
+        switch (tag) {
+            case STATE: {
+                long valts = readVarLong(buf);
+                return new State(valts, (Value) readObject(buf));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package scyuan.irsdp.failuredetector;
 
 import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.Lane;
 import scyuan.irsdp.link.NetAddress;
 import scyuan.irsdp.link.PerfectPointToPointLink;
 import scyuan.irsdp.link.Send;
@@ -95,7 +96,7 @@ public class ElectLowerEpochEventualLeaderDetectorComp extends ComponentDefiniti
             epoch += 1;
             storeEpoch();
             for (NetAddress p : all) {
-                trigger(new Send(p, new HeartBeat(epoch)), pl);
+                trigger(new Send(p, new HeartBeat(epoch), Lane.CONTROL), pl);
             }
             candidates.clear();
             startTimer(delay);
@@ -112,7 +113,7 @@ public class ElectLowerEpochEventualLeaderDetectorComp extends ComponentDefiniti
                 trigger(new Trust(leader), eld);
             }
             for (NetAddress p : all) {
-                trigger(new Send(p, new HeartBeat(epoch)), pl);
+                trigger(new Send(p, new HeartBeat(epoch), Lane.CONTROL), pl);
             }
             candidates.clear();
             startTimer(delay);
@@ -2,6 +2,7 @@ package scyuan.irsdp.failuredetector;
 
 import com.google.common.collect.Sets;
 import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.Lane;
 import scyuan.irsdp.link.NetAddress;
 import scyuan.irsdp.link.PerfectPointToPointLink;
 import scyuan.irsdp.link.Send;
@@ -105,7 +106,7 @@ public class EventuallyPerfectFailureDetectorComp extends ComponentDefinition {
                     suspected.remove(p);
                     trigger(new Restore(p), epfd);
                 }
-                trigger(new Send(p, new HeartBeatRequest(seq)), pl);
+                trigger(new Send(p, new HeartBeatRequest(seq), Lane.CONTROL), pl);
             }
 
             alive.clear();
@@ -116,7 +117,7 @@ public class EventuallyPerfectFailureDetectorComp extends ComponentDefinition {
     private final ClassMatchedHandler<HeartBeatRequest, Deliver> heartBeatRequestHandler = new ClassMatchedHandler<>() {
         @Override
         public void handle(HeartBeatRequest content, Deliver context) {
-            trigger(new Send(context.src, new HeartBeatReply(content.seq)), pl);
+            trigger(new Send(context.src, new HeartBeatReply(content.seq), Lane.CONTROL), pl);
         }
     };
 
@@ -1,6 +1,7 @@
 package scyuan.irsdp.failuredetector;
 
 import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.Lane;
 import scyuan.irsdp.link.NetAddress;
 import scyuan.irsdp.link.PerfectPointToPointLink;
 import scyuan.irsdp.link.Send;
@@ -84,7 +85,7 @@ public class PerfectFailureDetectorComp extends ComponentDefinition {
                     detected.add(p);
                     trigger(new Crash(p), pfd);
                 }
-                trigger(new Send(p, new HeartBeatRequest(seq)), pl);
+                trigger(new Send(p, new HeartBeatRequest(seq), Lane.CONTROL), pl);
             }
             alive.clear();
             startTimer();
@@ -94,7 +95,7 @@ public class PerfectFailureDetectorComp extends ComponentDefinition {
     ClassMatchedHandler<HeartBeatRequest, Deliver> heartBeatRequestHandler = new ClassMatchedHandler<HeartBeatRequest, Deliver>() {
         @Override
         public void handle(HeartBeatRequest content, Deliver context) {
-            trigger(new Send(context.src, new HeartBeatReply(content.seq)), pl);
+            trigger(new Send(context.src, new HeartBeatReply(content.seq), Lane.CONTROL), pl);
         }
     };
 
@@ -0,0 +1,22 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * Cumulative acknowledgement of the stubborn link: every Frame of sender incarnation to with seq
+ * below next has arrived at receiver incarnation epoch.
+ */
+public class Ack implements KompicsEvent, Serializable {
+
+    public final long epoch;
+    public final long to;
+    public final long next;
+
+    public Ack(long epoch, long to, long next) {
+        this.epoch = epoch;
+        this.to = to;
+        this.next = next;
+    }
+}
@@ -0,0 +1,16 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+public class Congestion implements KompicsEvent, Serializable {
+
+    public final NetAddress dest;
+    public final boolean congested;
+
+    public Congestion(NetAddress dest, boolean congested) {
+        this.dest = dest;
+        this.congested = congested;
+    }
+}
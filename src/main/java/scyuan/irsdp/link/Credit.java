@@ -0,0 +1,11 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * Standalone carrier for Message.acks when there is no data to piggyback them on.
+ */
+public class Credit implements KompicsEvent, Serializable {
+}
@@ -0,0 +1,17 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * Envelope of the fair-loss link, kept apart from Deliver so both links can share one Network.
+ */
+public class Datagram implements KompicsEvent, Serializable {
+
+    public final KompicsEvent payload;
+
+    public Datagram(KompicsEvent payload) {
+        this.payload = payload;
+    }
+}
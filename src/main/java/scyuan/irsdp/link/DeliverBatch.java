@@ -0,0 +1,17 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class DeliverBatch implements KompicsEvent, Serializable {
+
+    public final NetAddress src;
+    public final List<KompicsEvent> payloads;
+
+    public DeliverBatch(NetAddress src, List<KompicsEvent> payloads) {
+        this.src = src;
+        this.payloads = payloads;
+    }
+}
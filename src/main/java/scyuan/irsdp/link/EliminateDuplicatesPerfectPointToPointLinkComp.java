@@ -0,0 +1,146 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ *
+ * Algorithm 2.2: Eliminate Duplicates
+ * Implements:
+ *     PerfectPointToPointLinks, instance pl.
+ * Uses:
+ *     StubbornPointToPointLinks, instance sl.
+ *
+ * upon event < pl, Init > do
+ *     delivered := ∅;
+ *
+ * upon event < pl, Send | q, m > do
+ *     trigger < sl, Send | q, m >;
+ *
+ * upon event < sl, Deliver | p, m > do
+ *     if m !∈ delivered then
+ *         delivered := delivered ∪ {m};
+ *         trigger < pl, Deliver | p, m >;
+ *
+ * Messages are numbered per destination, so delivered is kept as one
+ * SequenceWindow per sender instead of a set of every message ever seen.
+ * Lanes are ignored: over UDP there is no stream for DATA to block.
+ *
+ * A window that slides gives up the numbers it passes, so duplicateWindow
+ * must be at least the sendWindow of the stubborn link below. The stubborn
+ * link keeps no more than sendWindow messages unacknowledged, and it only
+ * acknowledges what it has delivered here, so a message always arrives
+ * less than sendWindow past the lowest one still missing. The window then
+ * never slides over a message that is still being retransmitted.
+ *
+ * The numbering restarts with each incarnation of the sender, which stamps
+ * its messages with an epoch that grows across restarts. A newer epoch
+ * replaces the sender's window, and messages of an older one are dropped.
+ *
+ */
+public class EliminateDuplicatesPerfectPointToPointLinkComp extends ComponentDefinition {
+
+    private final Negative<PerfectPointToPointLink> pl = provides(PerfectPointToPointLink.class);
+    private final Positive<StubbornPointToPointLink> sl = requires(StubbornPointToPointLink.class);
+
+    private final long epoch;
+    private final int duplicateWindow;
+    private final Map<NetAddress, Long> sn;
+    private final Map<NetAddress, Incarnation> delivered;
+
+    public EliminateDuplicatesPerfectPointToPointLinkComp() {
+        this(new Init());
+    }
+
+    public EliminateDuplicatesPerfectPointToPointLinkComp(Init init) {
+        this.epoch = init.epoch;
+        this.duplicateWindow = init.duplicateWindow;
+        this.sn = new HashMap<>();
+        this.delivered = new HashMap<>();
+
+        subscribe(sendHandler, pl);
+        subscribe(sendAllHandler, pl);
+        subscribe(deliverHandler, sl);
+    }
+
+    Handler<Send> sendHandler = new Handler<Send>() {
+        @Override
+        public void handle(Send event) {
+            send(event.dest, event.payload);
+        }
+    };
+
+    Handler<SendAll> sendAllHandler = new Handler<SendAll>() {
+        @Override
+        public void handle(SendAll event) {
+            for (NetAddress q : event.dests) {
+                send(q, event.payload);
+            }
+        }
+    };
+
+    ClassMatchedHandler<Sequenced, Deliver> deliverHandler = new ClassMatchedHandler<Sequenced, Deliver>() {
+        @Override
+        public void handle(Sequenced content, Deliver context) {
+            Incarnation sender = delivered.get(context.src);
+            if (sender != null && content.epoch < sender.epoch) {
+                return;
+            }
+            if (sender == null || content.epoch > sender.epoch) {
+                sender = new Incarnation(content.epoch, duplicateWindow);
+                delivered.put(context.src, sender);
+            }
+            if (sender.window.add(content.sn)) {
+                trigger(new Deliver(context.src, content.payload), pl);
+            }
+        }
+    };
+
+    private void send(NetAddress q, KompicsEvent payload) {
+        long next = sn.getOrDefault(q, 0L);
+        sn.put(q, next + 1);
+        trigger(new Send(q, new Sequenced(epoch, next, payload)), sl);
+    }
+
+    private static class Incarnation {
+        private final long epoch;
+        private final SequenceWindow window;
+
+        private Incarnation(long epoch, int duplicateWindow) {
+            this.epoch = epoch;
+            this.window = new SequenceWindow(duplicateWindow);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<EliminateDuplicatesPerfectPointToPointLinkComp> {
+        private long epoch = System.currentTimeMillis();
+        private int duplicateWindow = 1 << 16;
+
+        /**
+         * Identify this incarnation by epoch, which must grow across restarts of the same process.
+         * Defaults to the wall clock at creation.
+         */
+        public Init withEpoch(long epoch) {
+            if (epoch < 1) {
+                throw new IllegalArgumentException("epoch must be positive");
+            }
+            this.epoch = epoch;
+            return this;
+        }
+
+        /**
+         * Track up to duplicateWindow out-of-order sequence numbers per sender. It must not be smaller
+         * than the sendWindow of the stubborn link underneath.
+         */
+        public Init withDuplicateWindow(int duplicateWindow) {
+            if (duplicateWindow < 64 || duplicateWindow > 1 << 30) {
+                throw new IllegalArgumentException("duplicateWindow must be between 64 and 2^30");
+            }
+            this.duplicateWindow = duplicateWindow;
+            return this;
+        }
+    }
+}
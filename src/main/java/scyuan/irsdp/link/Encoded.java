@@ -0,0 +1,18 @@
+package scyuan.irsdp.link;
+
+import io.netty.buffer.ByteBuf;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * A link envelope that has already been serialized, as WireFormat.writeObject would write it.
+ * The buffer is read-only and shared by every Message that carries it; LinkSerializer copies
+ * the bytes in place of encoding the envelope again, so the receiver decodes the envelope itself.
+ */
+public class Encoded implements KompicsEvent {
+
+    public final ByteBuf bytes;
+
+    public Encoded(ByteBuf bytes) {
+        this.bytes = bytes;
+    }
+}
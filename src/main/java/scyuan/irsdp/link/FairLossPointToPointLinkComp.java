@@ -0,0 +1,50 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.*;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+
+/**
+ *
+ *
+ * Fair-loss links map directly onto UDP datagrams: each Send becomes one
+ * Message over Transport.UDP, which the network may drop, duplicate or
+ * reorder, and each Datagram received is delivered as is.
+ *
+ */
+public class FairLossPointToPointLinkComp extends ComponentDefinition {
+
+    private final Negative<FairLossPointToPointLink> fll = provides(FairLossPointToPointLink.class);
+    private final Positive<Network> net = requires(Network.class);
+
+    private NetAddress self;
+
+    public FairLossPointToPointLinkComp(Init init) {
+        this.self = init.self;
+
+        subscribe(sendHandler, fll);
+        subscribe(datagramHandler, net);
+    }
+
+    Handler<Send> sendHandler = new Handler<Send>() {
+        @Override
+        public void handle(Send event) {
+            trigger(new Message(self, event.dest, Transport.UDP, new Datagram(event.payload)), net);
+        }
+    };
+
+    ClassMatchedHandler<Datagram, Message> datagramHandler = new ClassMatchedHandler<Datagram, Message>() {
+        @Override
+        public void handle(Datagram content, Message context) {
+            trigger(new Deliver(context.getSource(), content.payload), fll);
+        }
+    };
+
+    public static class Init extends se.sics.kompics.Init<FairLossPointToPointLinkComp> {
+        public final NetAddress self;
+
+        public Init(NetAddress self) {
+            this.self = self;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * One slice of a serialized link envelope. Fragments of the same envelope share the id
+ * and are sent in index order; length is the size of the whole envelope.
+ */
+public class Fragment implements KompicsEvent, Serializable {
+
+    public final long id;
+    public final int index;
+    public final int count;
+    public final int length;
+    public final byte[] data;
+
+    public Fragment(long id, int index, int count, int length, byte[] data) {
+        this.id = id;
+        this.index = index;
+        this.count = count;
+        this.length = length;
+        this.data = data;
+    }
+}
@@ -0,0 +1,25 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * A stubborn link payload, numbered per (sender, receiver) pair starting at 0.
+ * The numbering belongs to one incarnation of each end: epoch is the sender's,
+ * to is the receiver's as last heard by the sender, or 0 before any Ack.
+ */
+public class Frame implements KompicsEvent, Serializable {
+
+    public final long epoch;
+    public final long to;
+    public final long seq;
+    public final KompicsEvent payload;
+
+    public Frame(long epoch, long to, long seq, KompicsEvent payload) {
+        this.epoch = epoch;
+        this.to = to;
+        this.seq = seq;
+        this.payload = payload;
+    }
+}
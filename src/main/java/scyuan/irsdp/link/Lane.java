@@ -0,0 +1,10 @@
+package scyuan.irsdp.link;
+
+/**
+ * Selects how the perfect link schedules a Send.
+ * CONTROL traffic skips the batching and flow control queues, so it never waits behind DATA.
+ */
+public enum Lane {
+    DATA,
+    CONTROL
+}
@@ -0,0 +1,78 @@
+package scyuan.irsdp.link;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ *
+ * Log-linear histogram in the style of HdrHistogram: values below 32 get a
+ * bucket each, above that every power of two is split into 32 equal buckets,
+ * so any recorded value is reported within about 3%. Values are clamped to
+ * 2^40. record() only increments an array slot and never allocates.
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_BITS - SUB_BITS + 1) * SUB);
+
+    public void record(long value) {
+        counts.incrementAndGet(index(Math.min(Math.max(value, 0), MAX_VALUE)));
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * The lower bound of the bucket holding the q-th quantile, 0 <= q <= 1; 0 when empty.
+     */
+    public long quantile(double q) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    public long max() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return lowerBound(i);
+            }
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((value >>> shift) - SUB);
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB) {
+            return index;
+        }
+        int shift = index / SUB - 1;
+        return (long) (index % SUB + SUB) << shift;
+    }
+}
@@ -0,0 +1,259 @@
+package scyuan.irsdp.link;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ *
+ * Counters of one perfect link endpoint: wire Messages and bytes per peer,
+ * the depth of the outbound queue per peer, round trip times per peer,
+ * envelopes lost to out of place fragments per peer, and payloads sent and delivered per payload class.
+ *
+ * The link records into it from its handlers, and LinkSerializer records the
+ * encoded size of every Message it writes or reads for a registered address;
+ * byte counts stay at zero when Messages are not serialized. Recording only
+ * bumps LongAdders and histogram slots, so the hot path does not allocate once
+ * a peer or payload class has been seen. getPeers() and getPayloads() copy
+ * the current values into snapshots, and the same data is exported over JMX.
+ *
+ */
+public class LinkMetrics implements LinkMetricsMXBean {
+
+    private static final ConcurrentMap<NetAddress, LinkMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private final ObjectName name;
+    private final ConcurrentMap<NetAddress, Peer> peers;
+    private final ConcurrentMap<Class<?>, Payload> payloads;
+
+    private LinkMetrics(ObjectName name) {
+        this.name = name;
+        this.peers = new ConcurrentHashMap<>();
+        this.payloads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Create the metrics of the link at self and export them over JMX.
+     */
+    public static LinkMetrics register(NetAddress self) {
+        try {
+            ObjectName name = new ObjectName("scyuan.irsdp:type=LinkMetrics,node=" + ObjectName.quote(self.toString()));
+            LinkMetrics metrics = new LinkMetrics(name);
+            if (REGISTRY.putIfAbsent(self, metrics) != null) {
+                throw new IllegalStateException(self + " already has link metrics");
+            }
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return metrics;
+        } catch (JMException e) {
+            REGISTRY.remove(self);
+            throw new IllegalStateException("Cannot export link metrics of " + self, e);
+        }
+    }
+
+    public static void unregister(NetAddress self) {
+        LinkMetrics metrics = REGISTRY.remove(self);
+        if (metrics == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(metrics.name)) {
+                server.unregisterMBean(metrics.name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unexport link metrics of " + self, e);
+        }
+    }
+
+    /**
+     * The metrics registered for address, or null.
+     */
+    public static LinkMetrics of(NetAddress address) {
+        return REGISTRY.get(address);
+    }
+
+    void messageSent(NetAddress dest) {
+        peer(dest).messagesSent.increment();
+    }
+
+    void messageReceived(NetAddress src) {
+        peer(src).messagesReceived.increment();
+    }
+
+    void bytesSent(NetAddress dest, int bytes) {
+        peer(dest).bytesSent.add(bytes);
+    }
+
+    void bytesReceived(NetAddress src, int bytes) {
+        peer(src).bytesReceived.add(bytes);
+    }
+
+    void queueDepth(NetAddress dest, int depth) {
+        peer(dest).queueDepth = depth;
+    }
+
+    void fragmentDropped(NetAddress src) {
+        peer(src).fragmentsDropped.increment();
+    }
+
+    void roundTrip(NetAddress peer, long micros) {
+        peer(peer).rtt.record(micros);
+    }
+
+    void payloadSent(Class<?> type) {
+        payload(type).sent.increment();
+    }
+
+    void payloadDelivered(Class<?> type) {
+        payload(type).delivered.increment();
+    }
+
+    @Override
+    public List<PeerStats> getPeers() {
+        List<PeerStats> stats = new ArrayList<>(peers.size());
+        peers.forEach((address, p) -> stats.add(new PeerStats(address.toString(),
+                p.messagesSent.sum(), p.messagesReceived.sum(), p.bytesSent.sum(), p.bytesReceived.sum(), p.queueDepth,
+                p.fragmentsDropped.sum(), p.rtt.count(), p.rtt.quantile(0.5), p.rtt.quantile(0.99), p.rtt.max())));
+        return stats;
+    }
+
+    @Override
+    public List<PayloadStats> getPayloads() {
+        List<PayloadStats> stats = new ArrayList<>(payloads.size());
+        payloads.forEach((type, p) -> stats.add(new PayloadStats(type.getName(), p.sent.sum(), p.delivered.sum())));
+        return stats;
+    }
+
+    private Peer peer(NetAddress address) {
+        Peer peer = peers.get(address);
+        return peer != null ? peer : peers.computeIfAbsent(address, k -> new Peer());
+    }
+
+    private Payload payload(Class<?> type) {
+        Payload payload = payloads.get(type);
+        return payload != null ? payload : payloads.computeIfAbsent(type, k -> new Payload());
+    }
+
+    private static class Peer {
+        private final LongAdder messagesSent = new LongAdder();
+        private final LongAdder messagesReceived = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder fragmentsDropped = new LongAdder();
+        private final LatencyHistogram rtt = new LatencyHistogram();
+        private volatile int queueDepth;
+    }
+
+    private static class Payload {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+    }
+
+    public static class PeerStats {
+        private final String peer;
+        private final long messagesSent;
+        private final long messagesReceived;
+        private final long bytesSent;
+        private final long bytesReceived;
+        private final int queueDepth;
+        private final long fragmentsDropped;
+        private final long rttCount;
+        private final long rttP50Micros;
+        private final long rttP99Micros;
+        private final long rttMaxMicros;
+
+        @ConstructorProperties({"peer", "messagesSent", "messagesReceived", "bytesSent", "bytesReceived", "queueDepth",
+                "fragmentsDropped", "rttCount", "rttP50Micros", "rttP99Micros", "rttMaxMicros"})
+        public PeerStats(String peer, long messagesSent, long messagesReceived, long bytesSent, long bytesReceived, int queueDepth,
+                         long fragmentsDropped, long rttCount, long rttP50Micros, long rttP99Micros, long rttMaxMicros) {
+            this.peer = peer;
+            this.messagesSent = messagesSent;
+            this.messagesReceived = messagesReceived;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+            this.queueDepth = queueDepth;
+            this.fragmentsDropped = fragmentsDropped;
+            this.rttCount = rttCount;
+            this.rttP50Micros = rttP50Micros;
+            this.rttP99Micros = rttP99Micros;
+            this.rttMaxMicros = rttMaxMicros;
+        }
+
+        public String getPeer() {
+            return peer;
+        }
+
+        public long getMessagesSent() {
+            return messagesSent;
+        }
+
+        public long getMessagesReceived() {
+            return messagesReceived;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getFragmentsDropped() {
+            return fragmentsDropped;
+        }
+
+        public long getRttCount() {
+            return rttCount;
+        }
+
+        public long getRttP50Micros() {
+            return rttP50Micros;
+        }
+
+        public long getRttP99Micros() {
+            return rttP99Micros;
+        }
+
+        public long getRttMaxMicros() {
+            return rttMaxMicros;
+        }
+    }
+
+    public static class PayloadStats {
+        private final String type;
+        private final long sent;
+        private final long delivered;
+
+        @ConstructorProperties({"type", "sent", "delivered"})
+        public PayloadStats(String type, long sent, long delivered) {
+            this.type = type;
+            this.sent = sent;
+            this.delivered = delivered;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package scyuan.irsdp.link;
+
+import java.util.List;
+
+/**
+ * JMX view of LinkMetrics, registered as scyuan.irsdp:type=LinkMetrics,node="address".
+ */
+public interface LinkMetricsMXBean {
+
+    List<LinkMetrics.PeerStats> getPeers();
+
+    List<LinkMetrics.PayloadStats> getPayloads();
+}
@@ -0,0 +1,211 @@
+package scyuan.irsdp.link;
+
+import io.netty.buffer.ByteBuf;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Compact encoding of the link events: a one byte tag followed by the fields.
+ * Payloads are nested through the Kompics Serializers registry.
+ *
+ */
+public class LinkSerializer implements Serializer {
+
+    private static final byte ADDRESS = 1;
+    private static final byte HEADER = 2;
+    private static final byte MESSAGE = 3;
+    private static final byte DELIVER = 4;
+    private static final byte DELIVER_BATCH = 5;
+    private static final byte CREDIT = 6;
+    private static final byte FRAGMENT = 7;
+    private static final byte DATAGRAM = 8;
+    private static final byte FRAME = 9;
+    private static final byte ACK = 10;
+    private static final byte SEQUENCED = 11;
+
+    private static final Transport[] TRANSPORTS = Transport.values();
+    private static final Lane[] LANES = Lane.values();
+
+    private final int id;
+
+    public LinkSerializer(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        if (o instanceof NetAddress) {
+            buf.writeByte(ADDRESS);
+            writeAddress(buf, (NetAddress) o);
+        } else if (o instanceof NetHeader) {
+            buf.writeByte(HEADER);
+            writeHeader(buf, (NetHeader) o);
+        } else if (o instanceof Message) {
+            Message m = (Message) o;
+            int start = buf.writerIndex();
+            buf.writeByte(MESSAGE);
+            writeHeader(buf, m.header);
+            buf.writeByte(m.lane.ordinal());
+            writeVarInt(buf, m.acks);
+            writeUnsignedVarLong(buf, m.epoch);
+            writeVarLong(buf, m.seq);
+            writeUnsignedVarLong(buf, m.stamp);
+            writeUnsignedVarLong(buf, m.echo);
+            if (m.payload instanceof Encoded) {
+                ByteBuf bytes = ((Encoded) m.payload).bytes;
+                buf.writeBytes(bytes, bytes.readerIndex(), bytes.readableBytes());
+            } else {
+                writeObject(buf, m.payload);
+            }
+            LinkMetrics metrics = LinkMetrics.of(m.header.src);
+            if (metrics != null) {
+                metrics.bytesSent(m.header.dst, buf.writerIndex() - start);
+            }
+        } else if (o instanceof Deliver) {
+            Deliver d = (Deliver) o;
+            buf.writeByte(DELIVER);
+            writeAddress(buf, d.src);
+            writeObject(buf, d.payload);
+        } else if (o instanceof DeliverBatch) {
+            DeliverBatch b = (DeliverBatch) o;
+            buf.writeByte(DELIVER_BATCH);
+            writeAddress(buf, b.src);
+            writeVarInt(buf, b.payloads.size());
+            for (KompicsEvent payload : b.payloads) {
+                writeObject(buf, payload);
+            }
+        } else if (o instanceof Credit) {
+            buf.writeByte(CREDIT);
+        } else if (o instanceof Fragment) {
+            Fragment f = (Fragment) o;
+            buf.writeByte(FRAGMENT);
+            writeVarLong(buf, f.id);
+            writeVarInt(buf, f.index);
+            writeVarInt(buf, f.count);
+            writeVarInt(buf, f.length);
+            writeVarInt(buf, f.data.length);
+            buf.writeBytes(f.data);
+        } else if (o instanceof Datagram) {
+            buf.writeByte(DATAGRAM);
+            writeObject(buf, ((Datagram) o).payload);
+        } else if (o instanceof Frame) {
+            Frame f = (Frame) o;
+            buf.writeByte(FRAME);
+            writeUnsignedVarLong(buf, f.epoch);
+            writeUnsignedVarLong(buf, f.to);
+            writeUnsignedVarLong(buf, f.seq);
+            writeObject(buf, f.payload);
+        } else if (o instanceof Ack) {
+            Ack a = (Ack) o;
+            buf.writeByte(ACK);
+            writeUnsignedVarLong(buf, a.epoch);
+            writeUnsignedVarLong(buf, a.to);
+            writeUnsignedVarLong(buf, a.next);
+        } else if (o instanceof Sequenced) {
+            Sequenced s = (Sequenced) o;
+            buf.writeByte(SEQUENCED);
+            writeUnsignedVarLong(buf, s.epoch);
+            writeUnsignedVarLong(buf, s.sn);
+            writeObject(buf, s.payload);
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + o.getClass());
+        }
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        int start = buf.readerIndex();
+        byte tag = buf.readByte();
+        switch (tag) {
+            case ADDRESS:
+                return readAddress(buf);
+            case HEADER:
+                return readHeader(buf);
+            case MESSAGE: {
+                NetHeader header = readHeader(buf);
+                Lane lane = LANES[buf.readUnsignedByte()];
+                int acks = readVarInt(buf);
+                long epoch = readUnsignedVarLong(buf);
+                long seq = readVarLong(buf);
+                long stamp = readUnsignedVarLong(buf);
+                long echo = readUnsignedVarLong(buf);
+                KompicsEvent payload = (KompicsEvent) readObject(buf);
+                LinkMetrics metrics = LinkMetrics.of(header.dst);
+                if (metrics != null) {
+                    metrics.bytesReceived(header.src, buf.readerIndex() - start);
+                }
+                return new Message(header.src, header.dst, header.proto, payload, lane, acks, epoch, seq, stamp, echo);
+            }
+            case DELIVER: {
+                NetAddress src = readAddress(buf);
+                return new Deliver(src, (KompicsEvent) readObject(buf));
+            }
+            case DELIVER_BATCH: {
+                NetAddress src = readAddress(buf);
+                int size = readVarInt(buf);
+                List<KompicsEvent> payloads = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    payloads.add((KompicsEvent) readObject(buf));
+                }
+                return new DeliverBatch(src, payloads);
+            }
+            case CREDIT:
+                return new Credit();
+            case FRAGMENT: {
+                long fragmentId = readVarLong(buf);
+                int index = readVarInt(buf);
+                int count = readVarInt(buf);
+                int length = readVarInt(buf);
+                byte[] data = new byte[readVarInt(buf)];
+                buf.readBytes(data);
+                return new Fragment(fragmentId, index, count, length, data);
+            }
+            case DATAGRAM:
+                return new Datagram((KompicsEvent) readObject(buf));
+            case FRAME: {
+                long epoch = readUnsignedVarLong(buf);
+                long to = readUnsignedVarLong(buf);
+                long seq = readUnsignedVarLong(buf);
+                return new Frame(epoch, to, seq, (KompicsEvent) readObject(buf));
+            }
+            case ACK: {
+                long epoch = readUnsignedVarLong(buf);
+                long to = readUnsignedVarLong(buf);
+                return new Ack(epoch, to, readUnsignedVarLong(buf));
+            }
+            case SEQUENCED: {
+                long epoch = readUnsignedVarLong(buf);
+                long sn = readUnsignedVarLong(buf);
+                return new Sequenced(epoch, sn, (KompicsEvent) readObject(buf));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    private void writeHeader(ByteBuf buf, NetHeader header) {
+        writeAddress(buf, header.src);
+        writeAddress(buf, header.dst);
+        buf.writeByte(header.proto.ordinal());
+    }
+
+    private NetHeader readHeader(ByteBuf buf) {
+        NetAddress src = readAddress(buf);
+        NetAddress dst = readAddress(buf);
+        return new NetHeader(src, dst, TRANSPORTS[buf.readUnsignedByte()]);
+    }
+}
@@ -0,0 +1,170 @@
+package scyuan.irsdp.link;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import se.sics.kompics.network.Msg;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ *
+ *
+ * In-memory switch shared by the LocalNetworkComp instances of one JVM.
+ *
+ * Messages are routed by destination address. Optionally every message is
+ * serialized and decoded again, so the receiver gets its own copy and the CPU
+ * cost of the wire format is paid, and the switch can add a fixed one-way
+ * latency, limit the bandwidth of every directed link, and drop UDP messages
+ * at random; TCP messages are never dropped, as perfect links expect. Every
+ * directed link draws from its own Random seeded from the drop seed and the
+ * link, so a seeded run drops the same messages whatever the thread
+ * interleaving. Per directed link, messages arrive in the order they were
+ * sent.
+ *
+ */
+public class LocalNetwork implements AutoCloseable {
+
+    private final ConcurrentMap<NetAddress, Consumer<Msg<?, ?>>> nodes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Link, long[]> busyUntil = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Link, Random> drops = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private long latencyNanos = 0;
+    private long bytesPerSecond = 0;
+    private double dropRate = 0.0;
+    private boolean serialize = false;
+    private long seed = 0;
+
+    public LocalNetwork() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "local-network");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public LocalNetwork withLatency(long latencyMs) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        return this;
+    }
+
+    /**
+     * Limits every directed link to bytesPerSecond; implies serialization to measure message size.
+     */
+    public LocalNetwork withBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.serialize = true;
+        return this;
+    }
+
+    /**
+     * Drops every UDP message with probability dropRate.
+     */
+    public LocalNetwork withDropRate(double dropRate, long seed) {
+        this.dropRate = dropRate;
+        this.seed = seed;
+        return this;
+    }
+
+    public LocalNetwork withSerialization() {
+        this.serialize = true;
+        return this;
+    }
+
+    /**
+     * Routes the messages for address to node, normally LocalNetworkComp::receive.
+     */
+    void register(NetAddress address, Consumer<Msg<?, ?>> node) {
+        if (nodes.putIfAbsent(address, node) != null) {
+            throw new IllegalStateException(address + " is already registered");
+        }
+    }
+
+    void unregister(NetAddress address, Consumer<Msg<?, ?>> node) {
+        nodes.remove(address, node);
+    }
+
+    void route(Msg<NetAddress, ?> msg) {
+        if (dropRate > 0 && msg.getProtocol() == Transport.UDP) {
+            Link link = new Link(msg.getSource(), msg.getDestination());
+            if (drops.computeIfAbsent(link, k -> new Random(seed * 31 + k.hashCode())).nextDouble() < dropRate) {
+                return;
+            }
+        }
+
+        Msg<?, ?> delivered = msg;
+        long delayNanos = latencyNanos;
+        if (serialize) {
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+            try {
+                Serializers.toBinary(msg, buf);
+                delayNanos += transmissionDelay(msg, buf.readableBytes());
+                delivered = (Msg<?, ?>) Serializers.fromBinary(buf, Optional.empty());
+            } finally {
+                buf.release();
+            }
+        }
+
+        NetAddress dst = msg.getDestination();
+        if (delayNanos <= 0) {
+            deliver(dst, delivered);
+        } else {
+            final Msg<?, ?> copy = delivered;
+            scheduler.schedule(() -> deliver(dst, copy), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long transmissionDelay(Msg<NetAddress, ?> msg, int bytes) {
+        if (bytesPerSecond <= 0) {
+            return 0;
+        }
+
+        long[] until = busyUntil.computeIfAbsent(new Link(msg.getSource(), msg.getDestination()), k -> new long[1]);
+        synchronized (until) {
+            long now = System.nanoTime();
+            long start = Math.max(now, until[0]);
+            until[0] = start + TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+            return until[0] - now;
+        }
+    }
+
+    private void deliver(NetAddress dst, Msg<?, ?> msg) {
+        Consumer<Msg<?, ?>> node = nodes.get(dst);
+        if (node != null) {
+            node.accept(msg);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Link {
+        private final NetAddress src;
+        private final NetAddress dst;
+
+        private Link(NetAddress src, NetAddress dst) {
+            this.src = src;
+            this.dst = dst;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Link that = (Link) o;
+            return src.equals(that.src) && dst.equals(that.dst);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * src.hashCode() + dst.hashCode();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Handler;
+import se.sics.kompics.Negative;
+import se.sics.kompics.network.Msg;
+import se.sics.kompics.network.Network;
+
+import java.util.function.Consumer;
+
+/**
+ *
+ *
+ * Network provider that routes messages through a LocalNetwork instead of sockets,
+ * so that many nodes of a stack can run in one JVM on real wall-clock time.
+ *
+ */
+public class LocalNetworkComp extends ComponentDefinition {
+
+    private final Negative<Network> net = provides(Network.class);
+
+    private final NetAddress self;
+    private final LocalNetwork network;
+    private final Consumer<Msg<?, ?>> receiver = this::receive;
+
+    public LocalNetworkComp(Init init) {
+        this.self = init.self;
+        this.network = init.network;
+        this.network.register(self, receiver);
+
+        subscribe(msgHandler, net);
+    }
+
+    private final Handler<Msg> msgHandler = new Handler<Msg>() {
+        @Override
+        public void handle(Msg event) {
+            network.route(event);
+        }
+    };
+
+    void receive(Msg<?, ?> msg) {
+        trigger(msg, net);
+    }
+
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        network.unregister(self, receiver);
+    }
+
+    public static class Init extends se.sics.kompics.Init<LocalNetworkComp> {
+        private final NetAddress self;
+        private final LocalNetwork network;
+
+        public Init(NetAddress self, LocalNetwork network) {
+            this.self = self;
+            this.network = network;
+        }
+    }
+}
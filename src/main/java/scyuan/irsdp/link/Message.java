@@ -8,11 +8,54 @@ import se.sics.kompics.network.Transport;
 
 public class Message extends NetMessage implements PatternExtractor<Class<Object>, KompicsEvent> {
 
+    /**
+     * seq of Messages that are not numbered by the perfect link and never dropped as duplicates.
+     */
+    public static final long UNSEQUENCED = -1;
+
     public final KompicsEvent payload;
+    public final Lane lane;
+    public final int acks;
+    public final long epoch;
+    public final long seq;
+    public final long stamp;
+    public final long echo;
 
     public Message(NetAddress src, NetAddress dst, KompicsEvent payload) {
-        super(src, dst, Transport.TCP);
+        this(src, dst, Transport.TCP, payload);
+    }
+
+    public Message(NetAddress src, NetAddress dst, Transport protocol, KompicsEvent payload) {
+        this(src, dst, protocol, payload, Lane.DATA, 0);
+    }
+
+    public Message(NetAddress src, NetAddress dst, Transport protocol, KompicsEvent payload, Lane lane, int acks) {
+        this(src, dst, protocol, payload, lane, acks, UNSEQUENCED);
+    }
+
+    public Message(NetAddress src, NetAddress dst, Transport protocol, KompicsEvent payload, Lane lane, int acks, long seq) {
+        this(src, dst, protocol, payload, lane, acks, 0, seq);
+    }
+
+    /**
+     * epoch identifies the incarnation of src that numbered the Message; seq restarts from 0 with every epoch.
+     */
+    public Message(NetAddress src, NetAddress dst, Transport protocol, KompicsEvent payload, Lane lane, int acks, long epoch, long seq) {
+        this(src, dst, protocol, payload, lane, acks, epoch, seq, 0, 0);
+    }
+
+    /**
+     * stamp is the sender's clock in microseconds, echo a stamp received from dst plus the time it was held; 0 when unused.
+     */
+    public Message(NetAddress src, NetAddress dst, Transport protocol, KompicsEvent payload, Lane lane, int acks, long epoch, long seq, long stamp, long echo) {
+        super(src, dst, protocol);
         this.payload = payload;
+        this.lane = lane;
+        this.acks = acks;
+        this.epoch = epoch;
+        this.seq = seq;
+        this.stamp = stamp;
+        this.echo = echo;
     }
 
     @Override
@@ -49,6 +92,12 @@ public class Message extends NetMessage implements PatternExtractor<Class<Object
         return MoreObjects.toStringHelper(this)
                 .add("header", this.header)
                 .add("payload", this.payload)
+                .add("lane", this.lane)
+                .add("acks", this.acks)
+                .add("epoch", this.epoch)
+                .add("seq", this.seq)
+                .add("stamp", this.stamp)
+                .add("echo", this.echo)
                 .toString();
     }
 }
@@ -10,9 +10,12 @@ import se.sics.kompics.PortType;
  *     Name: PerfectPointToPointLinks, instance pl.
  * Events:
  *     Request: < pl, Send | q, m > : Requests to send message m to process q.
+ *     Request: < pl, SendAll | Q, m > : Requests to send message m to every process in Q.
  *     Indication: < pl, Deliver | p, m >: Delivers message m sent by process p.
+ *     Indication: < pl, Congestion | q, c >: Reports whether sends to process q are backing up (flow control only).
+ *     Indication: < pl, Rejected | q, m >: Reports that m was not sent to q because the queue for q is full (flow control only).
  * Properties:
- *     PL1: Reliable delivery: If a correct process p sends a message m to a correct process q, then q eventually delivers m.
+ *     PL1: Reliable delivery: If a correct process p sends a message m to a correct process q, and m is not Rejected, then q eventually delivers m.
  *     PL2: No duplication: No message is delivered by a process more than once.
  *     PL3: No creation: If some process q delivers a message m with sender p, then m was previously sent to q by process p.
  *
@@ -20,7 +23,10 @@ import se.sics.kompics.PortType;
 public class PerfectPointToPointLink extends PortType {
     {
         request(Send.class);
+        request(SendAll.class);
         indication(Deliver.class);
+        indication(Congestion.class);
+        indication(Rejected.class);
     }
 
 }
@@ -1,40 +1,849 @@
 package scyuan.irsdp.link;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import se.sics.kompics.*;
 import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.ScheduleTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
 
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+import static scyuan.irsdp.serialization.WireFormat.readObject;
+import static scyuan.irsdp.serialization.WireFormat.writeObject;
+
+/**
+ *
+ *
+ * With batching enabled, payloads sent to the same destination are queued and
+ * shipped as one DeliverBatch envelope once batchSize payloads are waiting or
+ * the linger timer fires. The receiver unpacks the envelope and delivers the
+ * payloads in the order they were sent.
+ *
+ * With flow control enabled, every peer grants a window of credits, one per
+ * data Message. Receivers return credits in the acks field of their own
+ * Messages, or in a standalone Credit once half a window is outstanding.
+ * Without credits, Messages wait in a per-peer outbound queue; when that queue
+ * reaches its capacity a Congestion indication is raised for the peer, and it
+ * is cleared once the queue has drained to half. Everything still waiting for
+ * a peer, in the batch, the outbox and the queue, is bounded by queueLimit: a
+ * Send that finds the peer at its limit is not sent, and a Rejected
+ * indication hands the payload back, so a slow peer cannot exhaust the
+ * sender's memory. All peers must run with the same flow control setting.
+ *
+ * With fragmentation enabled, every DATA envelope is serialized once by the
+ * link into a pooled buffer. Envelopes up to fragmentSize travel as a single
+ * Fragment; larger ones are sliced as their Fragments go out, so only one
+ * fragmentSize slice is copied at a time. Envelopes to a peer wait in its
+ * outbox while an earlier one is being sliced, which keeps the per-peer
+ * order: Fragments of different envelopes are never interleaved, so a small
+ * DATA Send to a peer waits until every slice of a large envelope queued
+ * before it has gone out. Only sends on the CONTROL lane overtake it. Slices are pumped from the handler that produced them, up to
+ * PUMP_BYTES per peer, and only a peer with more than that left waits for a
+ * PumpTimeout; with flow control, slices also wait for credits. Receivers
+ * reassemble the slices into a pooled buffer and decode the envelope from
+ * there. Reassembly relies on the Fragments of a peer arriving in order and
+ * without gaps, which holds because the link only ever sends over TCP. Should
+ * a Fragment still arrive out of place, the envelope it belongs to is
+ * dropped and counted as a dropped fragment in LinkMetrics. All peers must
+ * run with fragmentation enabled for it to be used by any of them.
+ *
+ * Every Message carries a sequence number counted per destination, and the
+ * receiver drops numbers it has already seen, so a reconnect that replays
+ * part of a stream does not break PL2. Seen numbers are kept in one
+ * SequenceWindow per peer, whose size follows the reordering on the channel
+ * up to duplicateWindow. The numbering belongs to one incarnation of the
+ * sender, named by an epoch that grows across restarts: a Message from a
+ * newer epoch starts a fresh window for its sender, and one from an older
+ * epoch is dropped.
+ *
+ * With metrics enabled, the link records LinkMetrics for its address. Each
+ * Message then carries a stamp of the sender's clock, and the next Message
+ * back echoes it, corrected for the time it was held, giving one round trip
+ * sample per exchange without synchronized clocks.
+ *
+ * A SendAll to several peers is serialized once into a read-only buffer that
+ * every outgoing Message shares; LinkSerializer copies those bytes into each
+ * channel instead of encoding the payload again. Batching and fragmentation
+ * already serialize per peer, so with either enabled a SendAll is handled as
+ * one Send per peer. So it is until IrsdpSerializers has registered the
+ * LinkSerializer for Message: Encoded is not Serializable, and only that
+ * serializer knows how to write it.
+ *
+ * Sends on the CONTROL lane bypass both queues and are written to the network
+ * immediately, ahead of any DATA still waiting in the link. They neither use
+ * nor return credits.
+ *
+ * Sends addressed to self never reach the network: they are delivered
+ * locally, in the order they were sent.
+ *
+ */
 public class PerfectPointToPointLinkComp extends ComponentDefinition {
 
     private final Negative<PerfectPointToPointLink> pl = provides(PerfectPointToPointLink.class);
     private final Positive<Network> net = requires(Network.class);
+    private final Positive<Timer> timer = requires(Timer.class);
 
     private NetAddress self;
 
+    private final int batchSize;
+    private final long lingerMs;
+    private final Map<NetAddress, List<KompicsEvent>> outbound;
+
+    private final int window;
+    private final int queueCapacity;
+    private final int queueLimit;
+    private final Map<NetAddress, Peer> peers;
+
+    private final int duplicateWindow;
+    private final long epoch;
+    private final Map<NetAddress, Channel> channels;
+
+    private static final int PUMP_BYTES = 1 << 20;
+
+    private final int fragmentSize;
+    private final Map<NetAddress, Outbox> outboxes;
+    private final Map<NetAddress, Reassembly> reassemblies;
+    private long nextFragmentId;
+    private boolean pumpScheduled;
+
+    private final LinkMetrics metrics;
+    private final long startNanos;
+
+    private final BooleanSupplier encodable;
+
+    private UUID timerId;
+
     public PerfectPointToPointLinkComp(Init init) {
         this.self = init.self;
+        this.batchSize = init.batchSize;
+        this.lingerMs = init.lingerMs;
+        this.outbound = new HashMap<>();
+        this.window = init.window;
+        this.queueCapacity = init.queueCapacity;
+        this.queueLimit = init.queueLimit;
+        this.peers = new HashMap<>();
+        this.duplicateWindow = init.duplicateWindow;
+        this.epoch = init.epoch;
+        this.channels = new HashMap<>();
+        this.fragmentSize = init.fragmentSize;
+        this.outboxes = new HashMap<>();
+        this.reassemblies = new HashMap<>();
+        this.nextFragmentId = 0;
+        this.pumpScheduled = false;
+        this.metrics = init.metrics ? LinkMetrics.register(self) : null;
+        this.startNanos = System.nanoTime();
+        this.encodable = init.encodable;
+
         subscribe(sendHandler, pl);
+        subscribe(sendAllHandler, pl);
+        subscribe(encodedHandler, net);
         subscribe(deliverHandler, net);
+        subscribe(deliverBatchHandler, net);
+        if (isBatching()) {
+            subscribe(startHandler, control);
+            subscribe(lingerHandler, timer);
+        }
+        if (isFlowControlled()) {
+            subscribe(creditHandler, net);
+        }
+        if (isFragmenting()) {
+            subscribe(fragmentHandler, net);
+            subscribe(pumpHandler, timer);
+        }
     }
 
+    Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(lingerMs, lingerMs);
+            LingerTimeout timeout = new LingerTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
     Handler<Send> sendHandler = new Handler<Send>() {
         @Override
         public void handle(Send event) {
-            trigger(new Message(self, event.dest, new Deliver(self, event.payload)), net);
+            send(event.dest, event.payload, event.lane);
+        }
+    };
+
+    Handler<SendAll> sendAllHandler = new Handler<SendAll>() {
+        @Override
+        public void handle(SendAll event) {
+            if (event.lane == Lane.CONTROL || isBatching() || isFragmenting() || event.dests.size() < 2 || !encodable.getAsBoolean()) {
+                for (NetAddress q : event.dests) {
+                    send(q, event.payload, event.lane);
+                }
+                return;
+            }
+
+            Encoded encoded = null;
+            for (NetAddress q : event.dests) {
+                if (q.equals(self)) {
+                    send(q, event.payload, event.lane);
+                    continue;
+                }
+                if (isFull(q)) {
+                    trigger(new Rejected(q, event.payload), pl);
+                    continue;
+                }
+                if (metrics != null) {
+                    metrics.payloadSent(event.payload.getClass());
+                }
+                if (encoded == null) {
+                    encoded = encode(new Deliver(self, event.payload));
+                }
+                enqueue(q, encoded);
+            }
+        }
+    };
+
+    Handler<LingerTimeout> lingerHandler = new Handler<LingerTimeout>() {
+        @Override
+        public void handle(LingerTimeout event) {
+            for (Map.Entry<NetAddress, List<KompicsEvent>> entry : outbound.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    flush(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    };
+
+    Handler<PumpTimeout> pumpHandler = new Handler<PumpTimeout>() {
+        @Override
+        public void handle(PumpTimeout event) {
+            pumpScheduled = false;
+            for (Map.Entry<NetAddress, Outbox> entry : outboxes.entrySet()) {
+                pump(entry.getKey(), entry.getValue());
+            }
         }
     };
 
     ClassMatchedHandler<Deliver, Message> deliverHandler = new ClassMatchedHandler<Deliver, Message>() {
         @Override
         public void handle(Deliver content, Message context) {
-            trigger(content, pl);
+            if (!accept(context)) {
+                return;
+            }
+            received(context);
+            deliver(content);
+        }
+    };
+
+    ClassMatchedHandler<DeliverBatch, Message> deliverBatchHandler = new ClassMatchedHandler<DeliverBatch, Message>() {
+        @Override
+        public void handle(DeliverBatch content, Message context) {
+            if (!accept(context)) {
+                return;
+            }
+            received(context);
+            deliverAll(content);
+        }
+    };
+
+    ClassMatchedHandler<Fragment, Message> fragmentHandler = new ClassMatchedHandler<Fragment, Message>() {
+        @Override
+        public void handle(Fragment content, Message context) {
+            assert context.getProtocol() == Transport.TCP : "Fragments need an ordered, lossless channel";
+            if (!accept(context)) {
+                return;
+            }
+            received(context);
+            KompicsEvent envelope = reassemble(context.getSource(), content);
+            if (envelope instanceof DeliverBatch) {
+                deliverAll((DeliverBatch) envelope);
+            } else if (envelope != null) {
+                deliver((Deliver) envelope);
+            }
+        }
+    };
+
+    ClassMatchedHandler<Encoded, Message> encodedHandler = new ClassMatchedHandler<Encoded, Message>() {
+        @Override
+        public void handle(Encoded content, Message context) {
+            if (!accept(context)) {
+                return;
+            }
+            received(context);
+            deliver((Deliver) readObject(content.bytes.duplicate()));
         }
     };
 
+    ClassMatchedHandler<Credit, Message> creditHandler = new ClassMatchedHandler<Credit, Message>() {
+        @Override
+        public void handle(Credit content, Message context) {
+            if (!accept(context)) {
+                return;
+            }
+            grant(context.getSource(), context.acks);
+        }
+    };
+
+    private void send(NetAddress dest, KompicsEvent payload, Lane lane) {
+        if (lane == Lane.DATA && !dest.equals(self) && isFull(dest)) {
+            trigger(new Rejected(dest, payload), pl);
+            return;
+        }
+        if (metrics != null) {
+            metrics.payloadSent(payload.getClass());
+        }
+
+        if (dest.equals(self)) {
+            deliver(new Deliver(self, payload));
+            return;
+        }
+
+        if (lane == Lane.CONTROL) {
+            trigger(message(dest, new Deliver(self, payload), Lane.CONTROL, 0), net);
+            return;
+        }
+
+        if (!isBatching()) {
+            emit(dest, new Deliver(self, payload));
+            return;
+        }
+
+        List<KompicsEvent> queue = outbound.computeIfAbsent(dest, k -> new ArrayList<>(batchSize));
+        queue.add(payload);
+        if (queue.size() >= batchSize) {
+            flush(dest, queue);
+        } else {
+            updateQueueDepth(dest);
+        }
+    }
+
+    private Encoded encode(KompicsEvent envelope) {
+        ByteBuf buf = Unpooled.buffer();
+        writeObject(buf, envelope);
+        return new Encoded(buf.asReadOnly());
+    }
+
+    private void flush(NetAddress dest, List<KompicsEvent> queue) {
+        if (queue.size() == 1) {
+            emit(dest, new Deliver(self, queue.get(0)));
+        } else {
+            emit(dest, new DeliverBatch(self, new ArrayList<>(queue)));
+        }
+        queue.clear();
+        updateQueueDepth(dest);
+    }
+
+    private void deliverAll(DeliverBatch batch) {
+        for (KompicsEvent payload : batch.payloads) {
+            deliver(new Deliver(batch.src, payload));
+        }
+    }
+
+    private void deliver(Deliver deliver) {
+        if (metrics != null) {
+            metrics.payloadDelivered(deliver.payload.getClass());
+        }
+        trigger(deliver, pl);
+    }
+
+    private void emit(NetAddress dest, KompicsEvent envelope) {
+        if (!isFragmenting()) {
+            enqueue(dest, envelope);
+            return;
+        }
+
+        Outbox outbox = outboxes.computeIfAbsent(dest, k -> new Outbox());
+        outbox.waiting.add(envelope);
+        pump(dest, outbox);
+    }
+
+    /**
+     * Sends the envelopes waiting for dest in order, slicing a large one as its Fragments go out,
+     * until PUMP_BYTES have been sent or, with flow control, the peer has no credits left.
+     */
+    private void pump(NetAddress dest, Outbox outbox) {
+        int budget = PUMP_BYTES;
+        while (budget > 0) {
+            if (outbox.current == null) {
+                KompicsEvent envelope = outbox.waiting.poll();
+                if (envelope == null) {
+                    break;
+                }
+                ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+                try {
+                    Serializers.toBinary(envelope, buf);
+                } catch (RuntimeException e) {
+                    buf.release();
+                    throw e;
+                }
+                int length = buf.readableBytes();
+                long id = nextFragmentId++;
+                if (length <= fragmentSize) {
+                    try {
+                        enqueue(dest, new Fragment(id, 0, 1, length, readBytes(buf, length)));
+                    } finally {
+                        buf.release();
+                    }
+                    budget -= length;
+                    continue;
+                }
+                outbox.current = new Slicing(id, buf, (length + fragmentSize - 1) / fragmentSize);
+            }
+            if (isFlowControlled()) {
+                Peer peer = peer(dest);
+                if (peer.credits == 0 || !peer.queue.isEmpty()) {
+                    updateQueueDepth(dest);
+                    return;
+                }
+            }
+            Slicing slicing = outbox.current;
+            int length = Math.min(fragmentSize, slicing.buf.readableBytes());
+            enqueue(dest, new Fragment(slicing.id, slicing.next++, slicing.count, slicing.length, readBytes(slicing.buf, length)));
+            budget -= length;
+            if (slicing.next == slicing.count) {
+                slicing.buf.release();
+                outbox.current = null;
+            }
+        }
+        if (outbox.current != null || !outbox.waiting.isEmpty()) {
+            schedulePump();
+        }
+        updateQueueDepth(dest);
+    }
+
+    private KompicsEvent reassemble(NetAddress src, Fragment fragment) {
+        if (fragment.count == 1) {
+            return decode(Unpooled.wrappedBuffer(fragment.data));
+        }
+
+        Reassembly reassembly = reassemblies.get(src);
+        if (fragment.index == 0) {
+            if (reassembly != null) {
+                // the rest of the previous envelope never came
+                reassembly.buf.release();
+                fragmentDropped(src);
+            }
+            reassembly = new Reassembly(fragment.id, PooledByteBufAllocator.DEFAULT.buffer(fragment.length));
+            reassemblies.put(src, reassembly);
+        } else if (reassembly == null || reassembly.id != fragment.id) {
+            fragmentDropped(src);
+            return null;
+        }
+
+        reassembly.buf.writeBytes(fragment.data);
+        if (fragment.index < fragment.count - 1) {
+            return null;
+        }
+
+        reassemblies.remove(src);
+        try {
+            return decode(reassembly.buf);
+        } finally {
+            reassembly.buf.release();
+        }
+    }
+
+    private void fragmentDropped(NetAddress src) {
+        if (metrics != null) {
+            metrics.fragmentDropped(src);
+        }
+    }
+
+    private KompicsEvent decode(ByteBuf buf) {
+        return (KompicsEvent) Serializers.fromBinary(buf, Optional.empty());
+    }
+
+    private byte[] readBytes(ByteBuf buf, int length) {
+        byte[] data = new byte[length];
+        buf.readBytes(data);
+        return data;
+    }
+
+    private void schedulePump() {
+        if (!pumpScheduled) {
+            pumpScheduled = true;
+            ScheduleTimeout st = new ScheduleTimeout(0);
+            st.setTimeoutEvent(new PumpTimeout(st));
+            trigger(st, timer);
+        }
+    }
+
+    private void enqueue(NetAddress dest, KompicsEvent envelope) {
+        if (!isFlowControlled()) {
+            trigger(message(dest, envelope, Lane.DATA, 0), net);
+            return;
+        }
+
+        Peer peer = peer(dest);
+        if (peer.credits > 0 && peer.queue.isEmpty()) {
+            transmit(dest, peer, envelope);
+        } else {
+            peer.queue.add(envelope);
+            if (!peer.congested && peer.queue.size() >= queueCapacity) {
+                peer.congested = true;
+                trigger(new Congestion(dest, true), pl);
+            }
+        }
+        updateQueueDepth(dest);
+    }
+
+    private void transmit(NetAddress dest, Peer peer, KompicsEvent envelope) {
+        peer.credits -= 1;
+        trigger(message(dest, envelope, Lane.DATA, peer.takeAcks()), net);
+    }
+
+    private Message message(NetAddress dest, KompicsEvent payload, Lane lane, int acks) {
+        Channel channel = channel(dest);
+        if (metrics == null) {
+            return new Message(self, dest, Transport.TCP, payload, lane, acks, epoch, channel.nextSeq++);
+        }
+        metrics.messageSent(dest);
+        long now = micros();
+        return new Message(self, dest, Transport.TCP, payload, lane, acks, epoch, channel.nextSeq++, now, channel.takeEcho(now));
+    }
+
+    /**
+     * Drops duplicates and, with metrics enabled, counts the Message and picks up its stamps.
+     */
+    private boolean accept(Message context) {
+        NetAddress src = context.getSource();
+        Channel channel = channel(src);
+        if (context.seq != Message.UNSEQUENCED) {
+            if (context.epoch < channel.epoch) {
+                return false;
+            }
+            if (context.epoch > channel.epoch) {
+                channel.epoch = context.epoch;
+                channel.delivered = new SequenceWindow(duplicateWindow);
+            }
+            if (!channel.delivered.add(context.seq)) {
+                return false;
+            }
+        }
+        if (metrics != null) {
+            long now = micros();
+            metrics.messageReceived(src);
+            if (context.echo > 0) {
+                metrics.roundTrip(src, now - context.echo);
+            }
+            if (context.stamp > 0) {
+                channel.stamp = context.stamp;
+                channel.stampedAt = now;
+            }
+        }
+        return true;
+    }
+
+    private long micros() {
+        return (System.nanoTime() - startNanos) / 1000 + 1;
+    }
+
+    private void updateQueueDepth(NetAddress dest) {
+        if (metrics != null) {
+            metrics.queueDepth(dest, pending(dest));
+        }
+    }
+
+    /**
+     * Payloads, envelopes and slices still held in the link for dest.
+     */
+    private int pending(NetAddress dest) {
+        List<KompicsEvent> batch = outbound.get(dest);
+        Peer peer = peers.get(dest);
+        Outbox outbox = outboxes.get(dest);
+        return (batch == null ? 0 : batch.size()) + (peer == null ? 0 : peer.queue.size())
+                + (outbox == null ? 0 : outbox.size());
+    }
+
+    private boolean isFull(NetAddress dest) {
+        return isFlowControlled() && pending(dest) >= queueLimit;
+    }
+
+    private Channel channel(NetAddress address) {
+        return channels.computeIfAbsent(address, k -> new Channel(duplicateWindow));
+    }
+
+    private void received(Message context) {
+        if (!isFlowControlled() || context.lane == Lane.CONTROL) {
+            return;
+        }
+
+        NetAddress src = context.getSource();
+        if (context.acks > 0) {
+            grant(src, context.acks);
+        }
+        Peer peer = peer(src);
+        peer.unacked += 1;
+        if (peer.unacked >= (window + 1) / 2) {
+            trigger(message(src, new Credit(), Lane.CONTROL, peer.takeAcks()), net);
+        }
+    }
+
+    private void grant(NetAddress dest, int acks) {
+        Peer peer = peer(dest);
+        peer.credits += acks;
+        while (peer.credits > 0 && !peer.queue.isEmpty()) {
+            transmit(dest, peer, peer.queue.poll());
+        }
+        if (peer.congested && peer.queue.size() <= queueCapacity / 2) {
+            peer.congested = false;
+            trigger(new Congestion(dest, false), pl);
+        }
+        Outbox outbox = outboxes.get(dest);
+        if (outbox != null) {
+            pump(dest, outbox);
+        }
+        updateQueueDepth(dest);
+    }
+
+    private Peer peer(NetAddress address) {
+        return peers.computeIfAbsent(address, k -> new Peer(window));
+    }
+
+    private boolean isBatching() {
+        return batchSize > 1;
+    }
+
+    private boolean isFlowControlled() {
+        return window > 0;
+    }
+
+    private boolean isFragmenting() {
+        return fragmentSize > 0;
+    }
+
+    private static boolean isLinkSerializerRegistered() {
+        return Serializers.lookupSerializer(Message.class) instanceof LinkSerializer;
+    }
+
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
+        }
+        for (Reassembly reassembly : reassemblies.values()) {
+            reassembly.buf.release();
+        }
+        reassemblies.clear();
+        for (Outbox outbox : outboxes.values()) {
+            if (outbox.current != null) {
+                outbox.current.buf.release();
+            }
+        }
+        outboxes.clear();
+        if (metrics != null) {
+            LinkMetrics.unregister(self);
+        }
+    }
+
+    private static class Channel {
+        private long nextSeq;
+        private long epoch;
+        private SequenceWindow delivered;
+        private long stamp;
+        private long stampedAt;
+
+        private Channel(int duplicateWindow) {
+            this.nextSeq = 0;
+            this.epoch = 0;
+            this.delivered = new SequenceWindow(duplicateWindow);
+            this.stamp = 0;
+            this.stampedAt = 0;
+        }
+
+        private long takeEcho(long now) {
+            if (stamp == 0) {
+                return 0;
+            }
+            long echo = stamp + (now - stampedAt);
+            stamp = 0;
+            return echo;
+        }
+    }
+
+    private static class Reassembly {
+        private final long id;
+        private final ByteBuf buf;
+
+        private Reassembly(long id, ByteBuf buf) {
+            this.id = id;
+            this.buf = buf;
+        }
+    }
+
+    private static class Slicing {
+        private final long id;
+        private final ByteBuf buf;
+        private final int length;
+        private final int count;
+        private int next;
+
+        private Slicing(long id, ByteBuf buf, int count) {
+            this.id = id;
+            this.buf = buf;
+            this.length = buf.readableBytes();
+            this.count = count;
+            this.next = 0;
+        }
+    }
+
+    private static class Outbox {
+        private final Deque<KompicsEvent> waiting = new ArrayDeque<>();
+        private Slicing current;
+
+        /**
+         * Envelopes and slices still to be sent.
+         */
+        private int size() {
+            return waiting.size() + (current == null ? 0 : current.count - current.next);
+        }
+    }
+
+    private static class Peer {
+        private int credits;
+        private int unacked;
+        private boolean congested;
+        private final Deque<KompicsEvent> queue;
+
+        private Peer(int credits) {
+            this.credits = credits;
+            this.unacked = 0;
+            this.congested = false;
+            this.queue = new ArrayDeque<>();
+        }
+
+        private int takeAcks() {
+            int acks = unacked;
+            unacked = 0;
+            return acks;
+        }
+    }
+
+    public static class LingerTimeout extends Timeout {
+        public LingerTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class PumpTimeout extends Timeout {
+        public PumpTimeout(ScheduleTimeout request) {
+            super(request);
+        }
+    }
+
     public static class Init extends se.sics.kompics.Init<PerfectPointToPointLinkComp> {
         private final NetAddress self;
+        private int batchSize = 1;
+        private long lingerMs = 0;
+        private int window = 0;
+        private int queueCapacity = 0;
+        private int queueLimit = 0;
+        private int fragmentSize = 0;
+        private int duplicateWindow = 1 << 16;
+        private long epoch = System.currentTimeMillis();
+        private boolean metrics = false;
+        private BooleanSupplier encodable = PerfectPointToPointLinkComp::isLinkSerializerRegistered;
 
         public Init(NetAddress self) {
             this.self = self;
         }
+
+        /**
+         * Coalesce sends per destination, flushing after batchSize payloads or lingerMs.
+         * The Timer port must be connected when batching is enabled.
+         */
+        public Init withBatching(int batchSize, long lingerMs) {
+            if (batchSize < 1 || lingerMs <= 0) {
+                throw new IllegalArgumentException("batchSize must be >= 1 and lingerMs > 0");
+            }
+            this.batchSize = batchSize;
+            this.lingerMs = lingerMs;
+            return this;
+        }
+
+        /**
+         * Allow at most window unacknowledged Messages per peer and signal Congestion
+         * once queueCapacity Messages wait for credits. At most 4 * queueCapacity
+         * sends are held per peer; see the three-argument variant.
+         */
+        public Init withFlowControl(int window, int queueCapacity) {
+            return withFlowControl(window, queueCapacity, 4 * queueCapacity);
+        }
+
+        /**
+         * Like withFlowControl(window, queueCapacity), holding at most queueLimit sends per
+         * peer; further sends to that peer are answered with Rejected until it drains.
+         */
+        public Init withFlowControl(int window, int queueCapacity, int queueLimit) {
+            if (window < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("window and queueCapacity must be >= 1");
+            }
+            if (queueLimit < queueCapacity) {
+                throw new IllegalArgumentException("queueLimit must be >= queueCapacity");
+            }
+            this.window = window;
+            this.queueCapacity = queueCapacity;
+            this.queueLimit = queueLimit;
+            return this;
+        }
+
+        /**
+         * Track up to duplicateWindow out-of-order sequence numbers per peer when dropping duplicates.
+         */
+        public Init withDuplicateWindow(int duplicateWindow) {
+            if (duplicateWindow < 64 || duplicateWindow > 1 << 30) {
+                throw new IllegalArgumentException("duplicateWindow must be between 64 and 2^30");
+            }
+            this.duplicateWindow = duplicateWindow;
+            return this;
+        }
+
+        /**
+         * Identify this incarnation by epoch, which must grow across restarts of the same process.
+         * Defaults to the wall clock at creation.
+         */
+        public Init withEpoch(long epoch) {
+            if (epoch < 1) {
+                throw new IllegalArgumentException("epoch must be positive");
+            }
+            this.epoch = epoch;
+            return this;
+        }
+
+        /**
+         * Record LinkMetrics for this link and export them over JMX.
+         */
+        public Init withMetrics() {
+            this.metrics = true;
+            return this;
+        }
+
+        /**
+         * Serialize DATA envelopes in the link and split those larger than fragmentSize bytes.
+         * The Timer port must be connected when fragmentation is enabled.
+         */
+        public Init withFragmentation(int fragmentSize) {
+            if (fragmentSize < 1) {
+                throw new IllegalArgumentException("fragmentSize must be >= 1");
+            }
+            this.fragmentSize = fragmentSize;
+            return this;
+        }
+
+        /**
+         * Replace the check, made on every SendAll, of whether a shared Encoded payload can be written.
+         * Defaults to asking Serializers whether LinkSerializer handles Message.
+         */
+        Init withEncodable(BooleanSupplier encodable) {
+            this.encodable = Objects.requireNonNull(encodable);
+            return this;
+        }
     }
 }
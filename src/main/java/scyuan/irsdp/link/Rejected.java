@@ -0,0 +1,19 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * Reports that payload was not sent to dest because the outbound queue for dest was full.
+ */
+public class Rejected implements KompicsEvent, Serializable {
+
+    public final NetAddress dest;
+    public final KompicsEvent payload;
+
+    public Rejected(NetAddress dest, KompicsEvent payload) {
+        this.dest = dest;
+        this.payload = payload;
+    }
+}
@@ -8,9 +8,15 @@ public class Send implements KompicsEvent, Serializable {
 
     public final NetAddress dest;
     public final KompicsEvent payload;
+    public final Lane lane;
 
     public Send(NetAddress dest, KompicsEvent payload) {
+        this(dest, payload, Lane.DATA);
+    }
+
+    public Send(NetAddress dest, KompicsEvent payload, Lane lane) {
         this.dest = dest;
         this.payload = payload;
+        this.lane = lane;
     }
 }
@@ -0,0 +1,27 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Send of one payload to several processes. The link encodes the payload once and
+ * writes the same bytes to every destination.
+ */
+public class SendAll implements KompicsEvent, Serializable {
+
+    public final Collection<NetAddress> dests;
+    public final KompicsEvent payload;
+    public final Lane lane;
+
+    public SendAll(Collection<NetAddress> dests, KompicsEvent payload) {
+        this(dests, payload, Lane.DATA);
+    }
+
+    public SendAll(Collection<NetAddress> dests, KompicsEvent payload, Lane lane) {
+        this.dests = dests;
+        this.payload = payload;
+        this.lane = lane;
+    }
+}
@@ -0,0 +1,116 @@
+package scyuan.irsdp.link;
+
+import java.util.Arrays;
+
+/**
+ *
+ *
+ * Duplicate filter for the sequence numbers of one sender. Every number below
+ * next() has been seen; the numbers seen above it are kept in a ring of bits
+ * that grows to cover the distance between the lowest missing number and the
+ * highest one seen, so memory follows the amount of reordering rather than the
+ * number of messages.
+ *
+ * The ring never grows beyond limit bits. A number that would need more makes
+ * the window slide forward, and the missing numbers it passes are given up:
+ * they count as seen if they arrive later.
+ *
+ */
+public class SequenceWindow {
+
+    private final int limit;
+    private long next;
+    private long[] words;
+
+    public SequenceWindow() {
+        this(1 << 30);
+    }
+
+    public SequenceWindow(int limit) {
+        if (limit < 64 || limit > 1 << 30) {
+            throw new IllegalArgumentException("limit must be between 64 and 2^30");
+        }
+        this.limit = limit;
+        this.next = 0;
+        this.words = new long[1];
+    }
+
+    /**
+     * Records seq and returns whether it was seen for the first time.
+     */
+    public boolean add(long seq) {
+        if (seq < next) {
+            return false;
+        }
+        if (seq - next >= limit) {
+            skipTo(seq - limit + 1);
+        }
+        if (seq - next >= bits()) {
+            grow((int) (seq - next + 1));
+        }
+        if (get(seq)) {
+            return false;
+        }
+        set(seq);
+        while (get(next)) {
+            clear(next);
+            next++;
+        }
+        return true;
+    }
+
+    public boolean contains(long seq) {
+        return seq < next || (seq - next < bits() && get(seq));
+    }
+
+    /**
+     * The lowest sequence number not seen yet.
+     */
+    public long next() {
+        return next;
+    }
+
+    private void skipTo(long target) {
+        if (target - next >= bits()) {
+            Arrays.fill(words, 0L);
+            next = target;
+            return;
+        }
+        while (next < target) {
+            clear(next);
+            next++;
+        }
+    }
+
+    private void grow(int needed) {
+        int size = Integer.highestOneBit(needed - 1) << 1;
+        long[] old = words;
+        int oldBits = bits();
+        words = new long[size >>> 6];
+        for (long seq = next; seq < next + oldBits; seq++) {
+            int index = (int) (seq & (oldBits - 1));
+            if ((old[index >>> 6] & (1L << index)) != 0) {
+                set(seq);
+            }
+        }
+    }
+
+    private int bits() {
+        return words.length << 6;
+    }
+
+    private boolean get(long seq) {
+        int index = (int) (seq & (bits() - 1));
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(long seq) {
+        int index = (int) (seq & (bits() - 1));
+        words[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(long seq) {
+        int index = (int) (seq & (bits() - 1));
+        words[index >>> 6] &= ~(1L << index);
+    }
+}
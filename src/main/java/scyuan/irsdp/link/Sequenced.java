@@ -0,0 +1,22 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.KompicsEvent;
+
+import java.io.Serializable;
+
+/**
+ * A perfect link payload numbered per (sender, receiver) pair, so the receiver can drop duplicates.
+ * The numbering restarts with every incarnation of the sender, identified by epoch.
+ */
+public class Sequenced implements KompicsEvent, Serializable {
+
+    public final long epoch;
+    public final long sn;
+    public final KompicsEvent payload;
+
+    public Sequenced(long epoch, long sn, KompicsEvent payload) {
+        this.epoch = epoch;
+        this.sn = sn;
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,25 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.PortType;
+
+/**
+ *
+ *
+ * Module 2.2: Interface and properties of stubborn point-to-point links
+ * Module:
+ *     Name: StubbornPointToPointLinks, instance sl.
+ * Events:
+ *     Request: < sl, Send | q, m > : Requests to send message m to process q.
+ *     Indication: < sl, Deliver | p, m >: Delivers message m sent by process p.
+ * Properties:
+ *     SL1: Stubborn delivery: If a correct process p sends a message m once to a correct process q, then q delivers m an infinite number of times.
+ *     SL2: No creation: If some process q delivers a message m with sender p, then m was previously sent to q by process p.
+ *
+ */
+public class StubbornPointToPointLink extends PortType {
+    {
+        request(Send.class);
+        indication(Deliver.class);
+    }
+
+}
@@ -0,0 +1,320 @@
+package scyuan.irsdp.link;
+
+import se.sics.kompics.*;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+
+import java.util.*;
+
+/**
+ *
+ *
+ * Algorithm 2.1: Retransmit Forever
+ * Implements:
+ *     StubbornPointToPointLinks, instance sl.
+ * Uses:
+ *     FairLossPointToPointLinks, instance fll.
+ *
+ * upon event < sl, Init > do
+ *     sent := ∅;
+ *     starttimer(Δ);
+ *
+ * upon event < Timeout > do
+ *     forall (q, m) ∈ sent do
+ *         trigger < fll, Send | q, m >;
+ *     starttimer(Δ);
+ *
+ * upon event < sl, Send | q, m > do
+ *     trigger < fll, Send | q, m >;
+ *     sent := sent ∪ {(q, m)};
+ *
+ * upon event < fll, Deliver | p, m > do
+ *     trigger < sl, Deliver | p, m >;
+ *
+ * Instead of resending all of sent on every timeout, each message is wrapped
+ * in a Frame numbered per destination and retransmitted only until the
+ * destination acknowledges it. Receivers answer with a cumulative Ack of the
+ * lowest seq they are still missing, coalesced to one Ack per sender per
+ * tick. Retransmission deadlines live in a hashed TimingWheel advanced by a
+ * single periodic timeout, so there is no timer per message. Every Frame that
+ * arrives is delivered, duplicates included; removing them is left to the
+ * layer above.
+ *
+ * Each incarnation of the component picks an epoch that grows across restarts.
+ * Frames carry the sender's epoch and the receiver's as last acknowledged, and
+ * Acks carry both back, so a numbering only ever covers one incarnation of
+ * each end. A receiver that sees a newer sender epoch starts a fresh window
+ * and only counts Frames addressed to its own epoch; a sender that sees a
+ * newer receiver epoch renumbers its unacknowledged Frames from 0 and resends
+ * them. Frames sent before the first Ack are addressed to 0: they are
+ * delivered but not counted, and come again once renumbered. Frames
+ * addressed to an older receiver epoch, and stale Frames and Acks of older
+ * sender incarnations, are dropped. Frames more
+ * than reorderWindow past the lowest missing one are delivered but not
+ * counted, so the window stays bounded without acknowledging a hole.
+ *
+ * At most sendWindow Frames per destination are unacknowledged at a time;
+ * further Sends wait in order and are numbered once Acks make room. Every
+ * Frame therefore arrives less than sendWindow past the lowest one its
+ * receiver still misses, which lets a duplicate filter of that size above
+ * this link keep every hole open until it is filled.
+ *
+ */
+public class StubbornPointToPointLinkComp extends ComponentDefinition {
+
+    private final Negative<StubbornPointToPointLink> sl = provides(StubbornPointToPointLink.class);
+    private final Positive<FairLossPointToPointLink> fll = requires(FairLossPointToPointLink.class);
+    private final Positive<Timer> timer = requires(Timer.class);
+
+    private NetAddress self;
+
+    private final long epoch;
+    private final long retransmitMs;
+    private final int reorderWindow;
+    private final int sendWindow;
+    private final TimingWheel<Pending> wheel;
+    private final Map<NetAddress, Outgoing> outgoing;
+    private final Map<NetAddress, Incoming> incoming;
+    private final Set<NetAddress> ackPending;
+
+    private UUID timerId;
+
+    public StubbornPointToPointLinkComp(Init init) {
+        this.self = init.self;
+        this.epoch = init.epoch;
+        this.retransmitMs = init.retransmitMs;
+        this.reorderWindow = init.reorderWindow;
+        this.sendWindow = init.sendWindow;
+        this.wheel = new TimingWheel<>(init.slots, init.tickMs);
+        this.outgoing = new HashMap<>();
+        this.incoming = new HashMap<>();
+        this.ackPending = new LinkedHashSet<>();
+
+        subscribe(startHandler, control);
+        subscribe(tickHandler, timer);
+        subscribe(sendHandler, sl);
+        subscribe(frameHandler, fll);
+        subscribe(ackHandler, fll);
+    }
+
+    Handler<Start> startHandler = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(wheel.getTickMs(), wheel.getTickMs());
+            TickTimeout timeout = new TickTimeout(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timer);
+            timerId = timeout.getTimeoutId();
+        }
+    };
+
+    Handler<TickTimeout> tickHandler = new Handler<TickTimeout>() {
+        @Override
+        public void handle(TickTimeout event) {
+            for (NetAddress p : ackPending) {
+                Incoming in = incoming.get(p);
+                trigger(new Send(p, new Ack(epoch, in.epoch, in.window.next())), fll);
+            }
+            ackPending.clear();
+            wheel.advance(pending -> retransmit(pending));
+        }
+    };
+
+    Handler<Send> sendHandler = new Handler<Send>() {
+        @Override
+        public void handle(Send event) {
+            offer(event.dest, outgoing.computeIfAbsent(event.dest, k -> new Outgoing(0)), event.payload);
+        }
+    };
+
+    ClassMatchedHandler<Frame, Deliver> frameHandler = new ClassMatchedHandler<Frame, Deliver>() {
+        @Override
+        public void handle(Frame content, Deliver context) {
+            Incoming in = incoming.get(context.src);
+            if (in != null && content.epoch < in.epoch) {
+                return;
+            }
+            if (in == null || content.epoch > in.epoch) {
+                in = new Incoming(content.epoch, reorderWindow);
+                incoming.put(context.src, in);
+            }
+            if (content.to == epoch && content.seq - in.window.next() < reorderWindow) {
+                in.window.add(content.seq);
+            }
+            ackPending.add(context.src);
+            if (content.to == 0 || content.to == epoch) {
+                trigger(new Deliver(context.src, content.payload), sl);
+            }
+        }
+    };
+
+    ClassMatchedHandler<Ack, Deliver> ackHandler = new ClassMatchedHandler<Ack, Deliver>() {
+        @Override
+        public void handle(Ack content, Deliver context) {
+            Outgoing out = outgoing.get(context.src);
+            if (out == null || content.to != epoch || content.epoch < out.peer) {
+                return;
+            }
+            if (content.epoch > out.peer) {
+                renumber(context.src, out, content.epoch);
+                return;
+            }
+            out.acked = Math.max(out.acked, content.next);
+            while (!out.unacked.isEmpty() && out.unacked.peek().seq < out.acked) {
+                out.unacked.poll();
+            }
+            while (!out.waiting.isEmpty() && out.unacked.size() < sendWindow) {
+                transmit(context.src, out, out.waiting.poll());
+            }
+        }
+    };
+
+    private void offer(NetAddress dest, Outgoing out, KompicsEvent payload) {
+        if (out.waiting.isEmpty() && out.unacked.size() < sendWindow) {
+            transmit(dest, out, payload);
+        } else {
+            out.waiting.add(payload);
+        }
+    }
+
+    private void transmit(NetAddress dest, Outgoing out, KompicsEvent payload) {
+        Frame frame = new Frame(epoch, out.peer, out.nextSeq++, payload);
+        out.unacked.add(frame);
+        trigger(new Send(dest, frame), fll);
+        wheel.schedule(new Pending(dest, out, frame), retransmitMs);
+    }
+
+    /**
+     * The destination answered from a new incarnation, which has counted none of our Frames: number the
+     * unacknowledged ones afresh for it, ahead of the waiting ones. Their old Pendings die on the wheel.
+     */
+    private void renumber(NetAddress dest, Outgoing old, long peer) {
+        Outgoing out = new Outgoing(peer);
+        outgoing.put(dest, out);
+        for (Frame frame : old.unacked) {
+            offer(dest, out, frame.payload);
+        }
+        for (KompicsEvent payload : old.waiting) {
+            offer(dest, out, payload);
+        }
+    }
+
+    private void retransmit(Pending pending) {
+        Outgoing out = outgoing.get(pending.dest);
+        if (pending.out != out || pending.frame.seq < out.acked) {
+            return;
+        }
+        trigger(new Send(pending.dest, pending.frame), fll);
+        wheel.schedule(pending, retransmitMs);
+    }
+
+    @Override
+    public void tearDown() {
+        if (timerId != null) {
+            trigger(new CancelPeriodicTimeout(timerId), timer);
+        }
+    }
+
+    private static class Outgoing {
+        private final long peer;
+        private long nextSeq = 0;
+        private long acked = 0;
+        private final Deque<Frame> unacked = new ArrayDeque<>();
+        private final Deque<KompicsEvent> waiting = new ArrayDeque<>();
+
+        private Outgoing(long peer) {
+            this.peer = peer;
+        }
+    }
+
+    private static class Incoming {
+        private final long epoch;
+        private final SequenceWindow window;
+
+        private Incoming(long epoch, int reorderWindow) {
+            this.epoch = epoch;
+            this.window = new SequenceWindow(reorderWindow);
+        }
+    }
+
+    private static class Pending {
+        private final NetAddress dest;
+        private final Outgoing out;
+        private final Frame frame;
+
+        private Pending(NetAddress dest, Outgoing out, Frame frame) {
+            this.dest = dest;
+            this.out = out;
+            this.frame = frame;
+        }
+    }
+
+    public static class TickTimeout extends Timeout {
+        public TickTimeout(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    public static class Init extends se.sics.kompics.Init<StubbornPointToPointLinkComp> {
+        public final NetAddress self;
+        private long epoch = System.currentTimeMillis();
+        private int reorderWindow = 1 << 16;
+        private int sendWindow = 1 << 16;
+        private long tickMs = 10;
+        private int slots = 512;
+        private long retransmitMs = 200;
+
+        public Init(NetAddress self) {
+            this.self = self;
+        }
+
+        /**
+         * Resend unacknowledged frames every retransmitMs, checked on a wheel of slots ticks of tickMs each.
+         */
+        public Init withRetransmission(long retransmitMs, long tickMs, int slots) {
+            if (tickMs < 1 || slots < 1 || retransmitMs < tickMs) {
+                throw new IllegalArgumentException("need tickMs >= 1, slots >= 1 and retransmitMs >= tickMs");
+            }
+            this.retransmitMs = retransmitMs;
+            this.tickMs = tickMs;
+            this.slots = slots;
+            return this;
+        }
+
+        /**
+         * Identify this incarnation by epoch, which must grow across restarts of the same process.
+         * Defaults to the wall clock at creation.
+         */
+        public Init withEpoch(long epoch) {
+            if (epoch < 1) {
+                throw new IllegalArgumentException("epoch must be positive");
+            }
+            this.epoch = epoch;
+            return this;
+        }
+
+        /**
+         * Count at most reorderWindow Frames past the lowest one still missing from each sender.
+         */
+        public Init withReorderWindow(int reorderWindow) {
+            if (reorderWindow < 64 || reorderWindow > 1 << 30) {
+                throw new IllegalArgumentException("reorderWindow must be between 64 and 2^30");
+            }
+            this.reorderWindow = reorderWindow;
+            return this;
+        }
+
+        /**
+         * Keep at most sendWindow Frames unacknowledged per destination, holding later Sends until Acks make room.
+         */
+        public Init withSendWindow(int sendWindow) {
+            if (sendWindow < 1) {
+                throw new IllegalArgumentException("sendWindow must be >= 1");
+            }
+            this.sendWindow = sendWindow;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package scyuan.irsdp.link;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ *
+ *
+ * Hashed timing wheel. Items are hashed into one of slots buckets by their expiry tick
+ * and carry the number of full turns left; every advance() visits a single bucket.
+ * Scheduling and expiring are O(1), and a component needs only one periodic timeout
+ * to drive any number of pending deadlines. There is no cancel: callers check on
+ * expiry whether the item still matters.
+ *
+ */
+public class TimingWheel<T> {
+
+    private final long tickMs;
+    private final List<ArrayDeque<Entry<T>>> buckets;
+    private long tick;
+    private int size;
+
+    public TimingWheel(int slots, long tickMs) {
+        if (slots < 1 || tickMs < 1) {
+            throw new IllegalArgumentException("slots and tickMs must be >= 1");
+        }
+        this.tickMs = tickMs;
+        this.buckets = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.tick = 0;
+        this.size = 0;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Expire item after delayMs, rounded up to whole ticks (at least one).
+     */
+    public void schedule(T item, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        int slots = buckets.size();
+        buckets.get((int) ((tick + ticks) % slots)).add(new Entry<>(item, (ticks - 1) / slots));
+        size++;
+    }
+
+    /**
+     * Move one tick forward and hand every item that expires on it to expired.
+     */
+    public void advance(Consumer<T> expired) {
+        tick++;
+        ArrayDeque<Entry<T>> bucket = buckets.get((int) (tick % buckets.size()));
+        for (int n = bucket.size(); n > 0; n--) {
+            Entry<T> entry = bucket.poll();
+            if (entry.rounds == 0) {
+                size--;
+                expired.accept(entry.item);
+            } else {
+                entry.rounds--;
+                bucket.add(entry);
+            }
+        }
+    }
+
+    private static class Entry<T> {
+        private final T item;
+        private long rounds;
+
+        private Entry(T item, long rounds) {
+            this.item = item;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package scyuan.irsdp.serialization;
+
+import scyuan.irsdp.broadcast.*;
+import scyuan.irsdp.consensus.ConsensusSerializer;
+import scyuan.irsdp.consensus.State;
+import scyuan.irsdp.link.*;
+import scyuan.irsdp.sharedmemory.SharedMemorySerializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+/**
+ *
+ *
+ * Registers the compact serializers with Kompics. Call register() once before
+ * the network component is created; types that are not listed here keep
+ * falling back to Java serialization.
+ *
+ */
+public final class IrsdpSerializers {
+
+    public static final int LINK_ID = 100;
+    public static final int BROADCAST_ID = 101;
+    public static final int CONSENSUS_ID = 102;
+    public static final int SHARED_MEMORY_ID = 103;
+
+    private static final String LINK = "irsdpLink";
+    private static final String BROADCAST = "irsdpBroadcast";
+    private static final String CONSENSUS = "irsdpConsensus";
+    private static final String SHARED_MEMORY = "irsdpSharedMemory";
+
+    private static boolean registered = false;
+
+    private IrsdpSerializers() {
+    }
+
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+
+        Serializers.register(new LinkSerializer(LINK_ID), LINK);
+        Serializers.register(NetAddress.class, LINK);
+        Serializers.register(NetHeader.class, LINK);
+        Serializers.register(Message.class, LINK);
+        Serializers.register(Deliver.class, LINK);
+        Serializers.register(DeliverBatch.class, LINK);
+        Serializers.register(Credit.class, LINK);
+        Serializers.register(Fragment.class, LINK);
+        Serializers.register(Datagram.class, LINK);
+        Serializers.register(Frame.class, LINK);
+        Serializers.register(Ack.class, LINK);
+        Serializers.register(Sequenced.class, LINK);
+
+        Serializers.register(new BroadcastSerializer(BROADCAST_ID), BROADCAST);
+        Serializers.register(ReliableBroadcastMessage.class, BROADCAST);
+        Serializers.register(FIFOReliableBroadcastMessage.class, BROADCAST);
+        Serializers.register(WaitingCausalBroadcastMessage.class, BROADCAST);
+        Serializers.register(CausalOrderReliableBroadcastMessage.class, BROADCAST);
+        Serializers.register(StabilityMessage.class, BROADCAST);
+        Serializers.register(GossipMessage.class, BROADCAST);
+        Serializers.register(DataMessage.class, BROADCAST);
+        Serializers.register(DigestMessage.class, BROADCAST);
+        Serializers.register(PullMessage.class, BROADCAST);
+        Serializers.register(WriteBatch.class, BROADCAST);
+        Serializers.register(AckBatch.class, BROADCAST);
+        Serializers.register(TreeMessage.class, BROADCAST);
+        Serializers.register(TreeAck.class, BROADCAST);
+        Serializers.register(BroadcastBatch.class, BROADCAST);
+
+        Serializers.register(new ConsensusSerializer(CONSENSUS_ID), CONSENSUS);
+        Serializers.register(State.class, CONSENSUS);
+
+        Serializers.register(new SharedMemorySerializer(SHARED_MEMORY_ID), SHARED_MEMORY);
+        SharedMemorySerializer.registerTypes(SHARED_MEMORY);
+
+        registered = true;
+    }
+}
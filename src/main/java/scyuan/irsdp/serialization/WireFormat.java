@@ -0,0 +1,130 @@
+package scyuan.irsdp.serialization;
+
+import io.netty.buffer.ByteBuf;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *
+ *
+ * Primitive encodings shared by the serializers of this project.
+ *
+ * Integers are written as LEB128 varints (signed values zigzag encoded first),
+ * addresses as a length-prefixed IP followed by the port, and nested objects are
+ * handed back to the Kompics Serializers registry behind a presence flag.
+ * Decoded IPv4 addresses are interned so every message from the same peer
+ * shares a single NetAddress instance.
+ *
+ */
+public final class WireFormat {
+
+    private static final ConcurrentMap<Long, NetAddress> ADDRESSES = new ConcurrentHashMap<>();
+
+    private WireFormat() {
+    }
+
+    public static void writeUnsignedVarLong(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    public static long readUnsignedVarLong(ByteBuf buf) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("malformed varint");
+            }
+        }
+    }
+
+    public static void writeVarLong(ByteBuf buf, long value) {
+        writeUnsignedVarLong(buf, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readVarLong(ByteBuf buf) {
+        long raw = readUnsignedVarLong(buf);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public static void writeVarInt(ByteBuf buf, int value) {
+        writeUnsignedVarLong(buf, value & 0xFFFFFFFFL);
+    }
+
+    public static int readVarInt(ByteBuf buf) {
+        return (int) readUnsignedVarLong(buf);
+    }
+
+    public static void writeAddress(ByteBuf buf, NetAddress address) {
+        byte[] ip = address.getIp().getAddress();
+        buf.writeByte(ip.length);
+        buf.writeBytes(ip);
+        buf.writeShort(address.getPort());
+    }
+
+    public static NetAddress readAddress(ByteBuf buf) {
+        int length = buf.readUnsignedByte();
+        if (length == 4) {
+            long key = (buf.readUnsignedInt() << 16) | buf.readUnsignedShort();
+            NetAddress address = ADDRESSES.get(key);
+            if (address == null) {
+                address = ADDRESSES.computeIfAbsent(key, WireFormat::ipv4Address);
+            }
+            return address;
+        }
+        byte[] ip = new byte[length];
+        buf.readBytes(ip);
+        return newAddress(ip, buf.readUnsignedShort());
+    }
+
+    public static void writeNullableAddress(ByteBuf buf, NetAddress address) {
+        buf.writeBoolean(address != null);
+        if (address != null) {
+            writeAddress(buf, address);
+        }
+    }
+
+    public static NetAddress readNullableAddress(ByteBuf buf) {
+        return buf.readBoolean() ? readAddress(buf) : null;
+    }
+
+    public static void writeObject(ByteBuf buf, Object o) {
+        buf.writeBoolean(o != null);
+        if (o != null) {
+            Serializers.toBinary(o, buf);
+        }
+    }
+
+    public static Object readObject(ByteBuf buf) {
+        return buf.readBoolean() ? Serializers.fromBinary(buf, Optional.empty()) : null;
+    }
+
+    private static NetAddress ipv4Address(long key) {
+        int ip = (int) (key >>> 16);
+        byte[] bytes = new byte[]{(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip};
+        return newAddress(bytes, (int) (key & 0xFFFF));
+    }
+
+    private static NetAddress newAddress(byte[] ip, int port) {
+        try {
+            return new NetAddress(InetAddress.getByAddress(ip), port);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
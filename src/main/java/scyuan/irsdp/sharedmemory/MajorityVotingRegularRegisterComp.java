@@ -171,7 +171,7 @@ public class MajorityVotingRegularRegisterComp extends ComponentDefinition {
         return value;
     }
 
-    private static class ValueMessage implements KompicsEvent, Serializable {
+    static class ValueMessage implements KompicsEvent, Serializable {
         public final long r;
         public final long ts;
         public final Object val;
@@ -183,7 +183,7 @@ public class MajorityVotingRegularRegisterComp extends ComponentDefinition {
         }
     }
 
-    private static class AckMessage implements KompicsEvent, Serializable {
+    static class AckMessage implements KompicsEvent, Serializable {
         public final long ts;
 
         public AckMessage(long ts) {
@@ -191,7 +191,7 @@ public class MajorityVotingRegularRegisterComp extends ComponentDefinition {
         }
     }
 
-    private static class ReadMessage implements KompicsEvent, Serializable {
+    static class ReadMessage implements KompicsEvent, Serializable {
         public final long rid;
 
         public ReadMessage(long rid) {
@@ -199,7 +199,7 @@ public class MajorityVotingRegularRegisterComp extends ComponentDefinition {
         }
     }
 
-    private static class WriteMessage implements KompicsEvent, Serializable {
+    static class WriteMessage implements KompicsEvent, Serializable {
         public final long wts;
         public final Object v;
 
@@ -152,12 +152,12 @@ public class ReadImposeWriteAllAtomicRegisterComp extends ComponentDefinition {
         }
     }
 
-    private static class AckMessage implements KompicsEvent, Serializable {
+    static class AckMessage implements KompicsEvent, Serializable {
 
     }
 
 
-    private static class WriteMessage implements KompicsEvent, Serializable {
+    static class WriteMessage implements KompicsEvent, Serializable {
         public final TimeValueTuple timeValueTuple;
 
         public WriteMessage(TimeValueTuple timeValueTuple) {
@@ -156,10 +156,10 @@ public class ReadImposeWriteConsultAllAtomicRegisterComp extends ComponentDefini
         }
     }
 
-    private static class AckMessage implements KompicsEvent, Serializable {
+    static class AckMessage implements KompicsEvent, Serializable {
     }
 
-    private static class WriteMessage implements KompicsEvent, Serializable {
+    static class WriteMessage implements KompicsEvent, Serializable {
         public final long ts;
         public final long ws;
         public final Object val;
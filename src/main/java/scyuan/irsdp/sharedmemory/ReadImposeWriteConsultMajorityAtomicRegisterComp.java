@@ -208,7 +208,7 @@ public class ReadImposeWriteConsultMajorityAtomicRegisterComp extends ComponentD
         return r;
     }
 
-    private static class ValueMessage implements KompicsEvent, Serializable {
+    static class ValueMessage implements KompicsEvent, Serializable {
         public final long rid;
         public final long ts;
         public final long wr;
@@ -222,7 +222,7 @@ public class ReadImposeWriteConsultMajorityAtomicRegisterComp extends ComponentD
         }
     }
 
-    private static class ReadMessage implements KompicsEvent, Serializable {
+    static class ReadMessage implements KompicsEvent, Serializable {
         public final long rid;
 
         public ReadMessage(long rid) {
@@ -230,7 +230,7 @@ public class ReadImposeWriteConsultMajorityAtomicRegisterComp extends ComponentD
         }
     }
 
-    private static class AckMessage implements KompicsEvent, Serializable {
+    static class AckMessage implements KompicsEvent, Serializable {
         public final long rid;
 
         public AckMessage(long rid) {
@@ -238,7 +238,7 @@ public class ReadImposeWriteConsultMajorityAtomicRegisterComp extends ComponentD
         }
     }
 
-    private static class WriteMessage implements KompicsEvent, Serializable {
+    static class WriteMessage implements KompicsEvent, Serializable {
         public final long rid;
         public final long ts;
         public final long wr;
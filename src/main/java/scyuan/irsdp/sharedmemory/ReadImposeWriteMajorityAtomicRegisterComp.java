@@ -188,7 +188,7 @@ public class ReadImposeWriteMajorityAtomicRegisterComp extends ComponentDefiniti
         return new TimeValueTuple(timestamp, value);
     }
 
-    private static class ValueMessage implements KompicsEvent, Serializable {
+    static class ValueMessage implements KompicsEvent, Serializable {
         public final long rid;
         public final long ts;
         public final Object val;
@@ -200,7 +200,7 @@ public class ReadImposeWriteMajorityAtomicRegisterComp extends ComponentDefiniti
         }
     }
 
-    private static class ReadMessage implements KompicsEvent, Serializable {
+    static class ReadMessage implements KompicsEvent, Serializable {
         public final long rid;
 
         public ReadMessage(long rid) {
@@ -208,7 +208,7 @@ public class ReadImposeWriteMajorityAtomicRegisterComp extends ComponentDefiniti
         }
     }
 
-    private static class AckMessage implements KompicsEvent, Serializable {
+    static class AckMessage implements KompicsEvent, Serializable {
         public final long rid;
 
         public AckMessage(long rid) {
@@ -216,7 +216,7 @@ public class ReadImposeWriteMajorityAtomicRegisterComp extends ComponentDefiniti
         }
     }
 
-    private static class WriteMessage implements KompicsEvent, Serializable {
+    static class WriteMessage implements KompicsEvent, Serializable {
         public final long rid;
         public final long ts;
         public final Object val;
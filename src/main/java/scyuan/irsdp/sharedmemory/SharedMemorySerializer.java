@@ -0,0 +1,227 @@
+package scyuan.irsdp.sharedmemory;
+
+import io.netty.buffer.ByteBuf;
+import se.sics.kompics.network.netty.serialization.Serializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+import java.util.Optional;
+
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+/**
+ *
+ *
+ * Compact encoding of the register messages: a one byte tag followed by the fields. Register
+ * values are nested through the Kompics Serializers registry. The tags are grouped by the
+ * algorithm sending them, since every algorithm has its own private message classes.
+ *
+ */
+public class SharedMemorySerializer implements Serializer {
+
+    private static final byte READ = 1;
+    private static final byte VALUE = 2;
+    private static final byte WRITE = 3;
+    private static final byte ACK = 4;
+    private static final byte REGULAR_VALUE = 5;
+    private static final byte REGULAR_ACK = 6;
+    private static final byte REGULAR_READ = 7;
+    private static final byte REGULAR_WRITE = 8;
+    private static final byte IMPOSE_ALL_ACK = 9;
+    private static final byte IMPOSE_ALL_WRITE = 10;
+    private static final byte CONSULT_ALL_ACK = 11;
+    private static final byte CONSULT_ALL_WRITE = 12;
+    private static final byte IMPOSE_MAJORITY_VALUE = 13;
+    private static final byte IMPOSE_MAJORITY_READ = 14;
+    private static final byte IMPOSE_MAJORITY_ACK = 15;
+    private static final byte IMPOSE_MAJORITY_WRITE = 16;
+    private static final byte PLAIN_ACK = 17;
+    private static final byte PLAIN_WRITE = 18;
+
+    private final int id;
+
+    public SharedMemorySerializer(int id) {
+        this.id = id;
+    }
+
+    /**
+     * The message classes are package-private, so their registration lives here.
+     */
+    public static void registerTypes(String serializerName) {
+        Serializers.register(ReadImposeWriteConsultMajorityAtomicRegisterComp.ReadMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteConsultMajorityAtomicRegisterComp.ValueMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteConsultMajorityAtomicRegisterComp.WriteMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteConsultMajorityAtomicRegisterComp.AckMessage.class, serializerName);
+        Serializers.register(MajorityVotingRegularRegisterComp.ValueMessage.class, serializerName);
+        Serializers.register(MajorityVotingRegularRegisterComp.AckMessage.class, serializerName);
+        Serializers.register(MajorityVotingRegularRegisterComp.ReadMessage.class, serializerName);
+        Serializers.register(MajorityVotingRegularRegisterComp.WriteMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteAllAtomicRegisterComp.AckMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteAllAtomicRegisterComp.WriteMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteConsultAllAtomicRegisterComp.AckMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteMajorityAtomicRegisterComp.AckMessage.class, serializerName);
+        Serializers.register(ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage.class, serializerName);
+        Serializers.register(AckMessage.class, serializerName);
+        Serializers.register(Write.class, serializerName);
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        if (o instanceof ReadImposeWriteConsultMajorityAtomicRegisterComp.ReadMessage) {
+            ReadImposeWriteConsultMajorityAtomicRegisterComp.ReadMessage m = (ReadImposeWriteConsultMajorityAtomicRegisterComp.ReadMessage) o;
+            buf.writeByte(READ);
+            writeVarLong(buf, m.rid);
+        } else if (o instanceof ReadImposeWriteConsultMajorityAtomicRegisterComp.ValueMessage) {
+            ReadImposeWriteConsultMajorityAtomicRegisterComp.ValueMessage m = (ReadImposeWriteConsultMajorityAtomicRegisterComp.ValueMessage) o;
+            buf.writeByte(VALUE);
+            writeVarLong(buf, m.rid);
+            writeVarLong(buf, m.ts);
+            writeVarLong(buf, m.wr);
+            writeObject(buf, m.val);
+        } else if (o instanceof ReadImposeWriteConsultMajorityAtomicRegisterComp.WriteMessage) {
+            ReadImposeWriteConsultMajorityAtomicRegisterComp.WriteMessage m = (ReadImposeWriteConsultMajorityAtomicRegisterComp.WriteMessage) o;
+            buf.writeByte(WRITE);
+            writeVarLong(buf, m.rid);
+            writeVarLong(buf, m.ts);
+            writeVarLong(buf, m.wr);
+            writeObject(buf, m.val);
+        } else if (o instanceof ReadImposeWriteConsultMajorityAtomicRegisterComp.AckMessage) {
+            ReadImposeWriteConsultMajorityAtomicRegisterComp.AckMessage m = (ReadImposeWriteConsultMajorityAtomicRegisterComp.AckMessage) o;
+            buf.writeByte(ACK);
+            writeVarLong(buf, m.rid);
+        } else if (o instanceof MajorityVotingRegularRegisterComp.ValueMessage) {
+            MajorityVotingRegularRegisterComp.ValueMessage m = (MajorityVotingRegularRegisterComp.ValueMessage) o;
+            buf.writeByte(REGULAR_VALUE);
+            writeVarLong(buf, m.r);
+            writeVarLong(buf, m.ts);
+            writeObject(buf, m.val);
+        } else if (o instanceof MajorityVotingRegularRegisterComp.AckMessage) {
+            buf.writeByte(REGULAR_ACK);
+            writeVarLong(buf, ((MajorityVotingRegularRegisterComp.AckMessage) o).ts);
+        } else if (o instanceof MajorityVotingRegularRegisterComp.ReadMessage) {
+            buf.writeByte(REGULAR_READ);
+            writeVarLong(buf, ((MajorityVotingRegularRegisterComp.ReadMessage) o).rid);
+        } else if (o instanceof MajorityVotingRegularRegisterComp.WriteMessage) {
+            MajorityVotingRegularRegisterComp.WriteMessage m = (MajorityVotingRegularRegisterComp.WriteMessage) o;
+            buf.writeByte(REGULAR_WRITE);
+            writeVarLong(buf, m.wts);
+            writeObject(buf, m.v);
+        } else if (o instanceof ReadImposeWriteAllAtomicRegisterComp.AckMessage) {
+            buf.writeByte(IMPOSE_ALL_ACK);
+        } else if (o instanceof ReadImposeWriteAllAtomicRegisterComp.WriteMessage) {
+            ReadImposeWriteAllAtomicRegisterComp.WriteMessage m = (ReadImposeWriteAllAtomicRegisterComp.WriteMessage) o;
+            buf.writeByte(IMPOSE_ALL_WRITE);
+            writeVarLong(buf, m.timeValueTuple.timestamp);
+            writeObject(buf, m.timeValueTuple.value);
+        } else if (o instanceof ReadImposeWriteConsultAllAtomicRegisterComp.AckMessage) {
+            buf.writeByte(CONSULT_ALL_ACK);
+        } else if (o instanceof ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage) {
+            ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage m = (ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage) o;
+            buf.writeByte(CONSULT_ALL_WRITE);
+            writeVarLong(buf, m.ts);
+            writeVarLong(buf, m.ws);
+            writeObject(buf, m.val);
+        } else if (o instanceof ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage) {
+            ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage m = (ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage) o;
+            buf.writeByte(IMPOSE_MAJORITY_VALUE);
+            writeVarLong(buf, m.rid);
+            writeVarLong(buf, m.ts);
+            writeObject(buf, m.val);
+        } else if (o instanceof ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage) {
+            buf.writeByte(IMPOSE_MAJORITY_READ);
+            writeVarLong(buf, ((ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage) o).rid);
+        } else if (o instanceof ReadImposeWriteMajorityAtomicRegisterComp.AckMessage) {
+            buf.writeByte(IMPOSE_MAJORITY_ACK);
+            writeVarLong(buf, ((ReadImposeWriteMajorityAtomicRegisterComp.AckMessage) o).rid);
+        } else if (o instanceof ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage) {
+            ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage m = (ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage) o;
+            buf.writeByte(IMPOSE_MAJORITY_WRITE);
+            writeVarLong(buf, m.rid);
+            writeVarLong(buf, m.ts);
+            writeObject(buf, m.val);
+        } else if (o instanceof AckMessage) {
+            buf.writeByte(PLAIN_ACK);
+        } else if (o instanceof Write) {
+            buf.writeByte(PLAIN_WRITE);
+            writeObject(buf, ((Write) o).value);
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + o.getClass());
+        }
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        byte tag = buf.readByte();
+        switch (tag) {
+            case READ:
+                return new ReadImposeWriteConsultMajorityAtomicRegisterComp.ReadMessage(readVarLong(buf));
+            case VALUE: {
+                long rid = readVarLong(buf);
+                long ts = readVarLong(buf);
+                long wr = readVarLong(buf);
+                return new ReadImposeWriteConsultMajorityAtomicRegisterComp.ValueMessage(rid, ts, wr, readObject(buf));
+            }
+            case WRITE: {
+                long rid = readVarLong(buf);
+                long ts = readVarLong(buf);
+                long wr = readVarLong(buf);
+                return new ReadImposeWriteConsultMajorityAtomicRegisterComp.WriteMessage(rid, ts, wr, readObject(buf));
+            }
+            case ACK:
+                return new ReadImposeWriteConsultMajorityAtomicRegisterComp.AckMessage(readVarLong(buf));
+            case REGULAR_VALUE: {
+                long r = readVarLong(buf);
+                long ts = readVarLong(buf);
+                return new MajorityVotingRegularRegisterComp.ValueMessage(r, ts, readObject(buf));
+            }
+            case REGULAR_ACK:
+                return new MajorityVotingRegularRegisterComp.AckMessage(readVarLong(buf));
+            case REGULAR_READ:
+                return new MajorityVotingRegularRegisterComp.ReadMessage(readVarLong(buf));
+            case REGULAR_WRITE: {
+                long wts = readVarLong(buf);
+                return new MajorityVotingRegularRegisterComp.WriteMessage(wts, readObject(buf));
+            }
+            case IMPOSE_ALL_ACK:
+                return new ReadImposeWriteAllAtomicRegisterComp.AckMessage();
+            case IMPOSE_ALL_WRITE: {
+                long timestamp = readVarLong(buf);
+                return new ReadImposeWriteAllAtomicRegisterComp.WriteMessage(new TimeValueTuple(timestamp, readObject(buf)));
+            }
+            case CONSULT_ALL_ACK:
+                return new ReadImposeWriteConsultAllAtomicRegisterComp.AckMessage();
+            case CONSULT_ALL_WRITE: {
+                long ts = readVarLong(buf);
+                long ws = readVarLong(buf);
+                return new ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage(ts, ws, readObject(buf));
+            }
+            case IMPOSE_MAJORITY_VALUE: {
+                long rid = readVarLong(buf);
+                long ts = readVarLong(buf);
+                return new ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage(rid, ts, readObject(buf));
+            }
+            case IMPOSE_MAJORITY_READ:
+                return new ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage(readVarLong(buf));
+            case IMPOSE_MAJORITY_ACK:
+                return new ReadImposeWriteMajorityAtomicRegisterComp.AckMessage(readVarLong(buf));
+            case IMPOSE_MAJORITY_WRITE: {
+                long rid = readVarLong(buf);
+                long ts = readVarLong(buf);
+                return new ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage(rid, ts, readObject(buf));
+            }
+            case PLAIN_ACK:
+                return new AckMessage();
+            case PLAIN_WRITE:
+                return new Write(readObject(buf));
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+}
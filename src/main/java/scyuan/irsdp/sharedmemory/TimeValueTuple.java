@@ -1,8 +1,9 @@
 package scyuan.irsdp.sharedmemory;
 
+import java.io.Serializable;
 import java.util.Objects;
 
-public class TimeValueTuple {
+public class TimeValueTuple implements Serializable {
     public final long timestamp;
     public final Object value;
 
@@ -0,0 +1,216 @@
+package scyuan.irsdp.storage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ *
+ *
+ * Append-only log of records kept in memory-mapped segment files. A record is
+ * framed as its length, the CRC32C of its bytes and the bytes themselves; a
+ * segment is mapped whole when it is created, so an append is a copy into the
+ * mapping and the unwritten tail of a segment reads as length 0.
+ *
+ * A record that does not fit in the active segment rolls the log to a new one,
+ * named after the position of its first byte, and truncateBefore deletes whole
+ * segments. Records are durable once force() returns. Opening a log scans
+ * every segment sequentially and stops at the first empty or corrupt frame,
+ * so a record torn by a crash is dropped and overwritten by the next append.
+ *
+ */
+public class MappedLog implements Closeable {
+
+    private static final int HEADER = 8;
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final TreeMap<Long, Segment> segments;
+    private final List<Segment> unforced;
+    private final CRC32C crc;
+
+    private Segment active;
+    private long forces;
+
+    public MappedLog(Path dir, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER) {
+            throw new IllegalArgumentException("segmentSize must be larger than " + HEADER);
+        }
+        this.dir = Files.createDirectories(dir);
+        this.segmentSize = segmentSize;
+        this.segments = new TreeMap<>();
+        this.unforced = new ArrayList<>();
+        this.crc = new CRC32C();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                segments.put(base, open(base));
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.limit = scan(segment.map);
+        }
+        this.active = segments.isEmpty() ? roll(0) : segments.lastEntry().getValue();
+    }
+
+    /**
+     * Appends the readable bytes of record, which must not be empty, without consuming them and
+     * returns the position of the record.
+     */
+    public long append(ByteBuf record) throws IOException {
+        int length = record.readableBytes();
+        if (length == 0) {
+            throw new IllegalArgumentException("record is empty");
+        }
+        if (HEADER + length > segmentSize) {
+            throw new IllegalArgumentException("record of " + length + " bytes does not fit in a segment");
+        }
+        if (active.limit + HEADER + length > active.map.capacity()) {
+            active = roll(active.base + active.map.capacity());
+        }
+        int offset = active.limit;
+        crc.reset();
+        crc.update(record.nioBuffer());
+        MappedByteBuffer map = active.map;
+        map.putInt(offset + 4, (int) crc.getValue());
+        record.getBytes(record.readerIndex(), map.duplicate().position(offset + HEADER).limit(offset + HEADER + length));
+        map.putInt(offset, length);
+        active.limit = offset + HEADER + length;
+        if (unforced.isEmpty() || unforced.get(unforced.size() - 1) != active) {
+            unforced.add(active);
+        }
+        return active.base + offset;
+    }
+
+    /**
+     * Makes every record appended so far durable.
+     */
+    public void force() {
+        if (unforced.isEmpty()) {
+            return;
+        }
+        for (Segment segment : unforced) {
+            segment.map.force();
+        }
+        unforced.clear();
+        forces++;
+    }
+
+    /**
+     * The number of force() calls that had records to make durable.
+     */
+    public long forces() {
+        return forces;
+    }
+
+    /**
+     * The position the next record would be appended at if it fits in the active segment.
+     */
+    public long position() {
+        return active.base + active.limit;
+    }
+
+    /**
+     * Deletes the segments that hold only records before position. The active segment is kept.
+     */
+    public void truncateBefore(long position) throws IOException {
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest.base + oldest.map.capacity() > position) {
+                break;
+            }
+            segments.pollFirstEntry();
+            unforced.remove(oldest);
+            oldest.channel.close();
+            Files.delete(dir.resolve(String.format("%020d%s", oldest.base, SUFFIX)));
+        }
+    }
+
+    /**
+     * Passes every record and its position to consumer in append order. The buffers are
+     * read-only views of the mapping, valid until the log is closed.
+     */
+    public void replay(ObjLongConsumer<ByteBuf> consumer) {
+        for (Segment segment : segments.values()) {
+            MappedByteBuffer map = segment.map;
+            int offset = 0;
+            while (offset < segment.limit) {
+                int length = map.getInt(offset);
+                consumer.accept(Unpooled.wrappedBuffer(map.duplicate().position(offset + HEADER).limit(offset + HEADER + length).slice()).asReadOnly(),
+                        segment.base + offset);
+                offset += HEADER + length;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    private Segment roll(long base) throws IOException {
+        Segment segment = open(base);
+        segments.put(base, segment);
+        return segment;
+    }
+
+    private Segment open(long base) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(String.format("%020d%s", base, SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() > 0 ? channel.size() : segmentSize;
+        return new Segment(base, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * The offset of the first empty or corrupt frame of map.
+     */
+    private int scan(MappedByteBuffer map) {
+        int offset = 0;
+        while (offset + HEADER <= map.capacity()) {
+            int length = map.getInt(offset);
+            if (length <= 0 || length > map.capacity() - offset - HEADER) {
+                break;
+            }
+            crc.reset();
+            crc.update(map.duplicate().position(offset + HEADER).limit(offset + HEADER + length));
+            if ((int) crc.getValue() != map.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER + length;
+        }
+        return offset;
+    }
+
+    private static class Segment {
+        final long base;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+        int limit;
+
+        Segment(long base, FileChannel channel, MappedByteBuffer map) {
+            this.base = base;
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+}
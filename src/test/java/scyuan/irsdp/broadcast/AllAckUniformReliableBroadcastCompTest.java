@@ -0,0 +1,127 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AllAckUniformReliableBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+
+    /**
+     * A majority of acks is not enough: m is delivered on the ack of the last correct process, and the
+     * copies that come after change nothing.
+     */
+    @Test
+    public void allAckTest() {
+        TestContext<AllAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        ReliableBroadcastMessage m = new ReliableBroadcastMessage(self, 0, new HeartBeat(1), all);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), urb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 0, 1), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 1), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), urb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 1, 2), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A crash takes the process out of the awaited set: a message it had not acked is delivered at
+     * once, and later messages are delivered without its ack.
+     */
+    @Test
+    public void crashTest() {
+        TestContext<AllAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        Negative<PerfectFailureDetector> pfd = comp.getNegative(PerfectFailureDetector.class);
+        ReliableBroadcastMessage m = new ReliableBroadcastMessage(b, 0, new HeartBeat(1), all);
+        ReliableBroadcastMessage next = new ReliableBroadcastMessage(b, 1, new HeartBeat(2), all);
+
+        tc.body()
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == m && bc.src.equals(b), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new Crash(c), pfd)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 1), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(next, b), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == next && bc.src.equals(b), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(next, self), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 2), urb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A repeated ack of the same process is counted once and relays nothing, and an ack that arrives
+     * after the delivery neither relays nor delivers again.
+     */
+    @Test
+    public void duplicateAndLateAckTest() {
+        TestContext<AllAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        ReliableBroadcastMessage m = new ReliableBroadcastMessage(c, 0, new HeartBeat(1), all);
+        ReliableBroadcastMessage next = new ReliableBroadcastMessage(c, 1, new HeartBeat(2), all);
+
+        tc.body()
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == m && bc.src.equals(c), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 1), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .trigger(new BroadcastDeliver(next, c), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == next && bc.src.equals(c), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<AllAckUniformReliableBroadcastComp> newContext() {
+        return TestContext.newInstance(AllAckUniformReliableBroadcastComp.class, new AllAckUniformReliableBroadcastComp.Init(self, all));
+    }
+
+    private boolean isData(Broadcast bc, NetAddress src, long sn, long epoch) {
+        if (!bc.src.equals(src) || !bc.nodes.equals(all) || !(bc.payload instanceof ReliableBroadcastMessage)) {
+            return false;
+        }
+        ReliableBroadcastMessage m = (ReliableBroadcastMessage) bc.payload;
+        return m.src.equals(src) && m.sn == sn && m.payload instanceof HeartBeat && ((HeartBeat) m.payload).epoch == epoch;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
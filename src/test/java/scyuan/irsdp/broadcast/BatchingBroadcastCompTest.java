@@ -0,0 +1,144 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BatchingBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress other = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, other));
+
+    @Test
+    public void maxBatchTest() {
+        TestContext<BatchingBroadcastComp> tc = TestContext.newInstance(BatchingBroadcastComp.class, new BatchingBroadcastComp.Init(ReliableBroadcast.class, 1000, 3));
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> up = comp.getPositive(ReliableBroadcast.class);
+        Negative<ReliableBroadcast> down = comp.getNegative(ReliableBroadcast.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(1), all, self), up)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), up)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), up)
+                .expect(Broadcast.class, (Broadcast b) -> isBatch(b, all, self, 1, 2, 3), down, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A batch only holds broadcasts to the same nodes from the same src, and a batch of one is sent
+     * without the envelope.
+     */
+    @Test
+    public void flushOnChangeTest() {
+        TestContext<BatchingBroadcastComp> tc = TestContext.newInstance(BatchingBroadcastComp.class, new BatchingBroadcastComp.Init(ReliableBroadcast.class, 1000, 16));
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> up = comp.getPositive(ReliableBroadcast.class);
+        Negative<ReliableBroadcast> down = comp.getNegative(ReliableBroadcast.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        Set<NetAddress> others = Collections.singleton(other);
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(1), all, self), up)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), up)
+                .trigger(new Broadcast(new HeartBeat(3), others, self), up)
+                .expect(Broadcast.class, (Broadcast b) -> isBatch(b, all, self, 1, 2), down, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(4), others, other), up)
+                .expect(Broadcast.class, (Broadcast b) -> isSingle(b, others, self, 3), down, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void lingerTest() {
+        TestContext<BatchingBroadcastComp> tc = TestContext.newInstance(BatchingBroadcastComp.class, new BatchingBroadcastComp.Init(ReliableBroadcast.class, 1000, 16));
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> up = comp.getPositive(ReliableBroadcast.class);
+        Negative<ReliableBroadcast> down = comp.getNegative(ReliableBroadcast.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> spt.getPeriod() == 1000, timer, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(1), all, self), up)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), up)
+                .trigger(linger(), timer)
+                .expect(Broadcast.class, (Broadcast b) -> isBatch(b, all, self, 1, 2), down, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), up)
+                .trigger(linger(), timer)
+                .expect(Broadcast.class, (Broadcast b) -> isSingle(b, all, self, 3), down, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void unpackOnDeliverTest() {
+        TestContext<BatchingBroadcastComp> tc = TestContext.newInstance(BatchingBroadcastComp.class, new BatchingBroadcastComp.Init(ReliableBroadcast.class, 1000, 16));
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> up = comp.getPositive(ReliableBroadcast.class);
+        Negative<ReliableBroadcast> down = comp.getNegative(ReliableBroadcast.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        List<KompicsEvent> payloads = Arrays.asList(new HeartBeat(1), new HeartBeat(2));
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new BroadcastDeliver(new BroadcastBatch(payloads), other), down)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, other, 1), up, Direction.OUT)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, other, 2), up, Direction.OUT)
+                .trigger(new BroadcastDeliver(new HeartBeat(3), self), down)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 3), up, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private static BatchingBroadcastComp.LingerTimeout linger() {
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(1000, 1000);
+        BatchingBroadcastComp.LingerTimeout timeout = new BatchingBroadcastComp.LingerTimeout(spt);
+        spt.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private static boolean isBatch(Broadcast b, Set<NetAddress> nodes, NetAddress src, long... epochs) {
+        if (!b.nodes.equals(nodes) || !b.src.equals(src) || !(b.payload instanceof BroadcastBatch)) {
+            return false;
+        }
+        List<KompicsEvent> payloads = ((BroadcastBatch) b.payload).payloads;
+        if (payloads.size() != epochs.length) {
+            return false;
+        }
+        for (int i = 0; i < epochs.length; i++) {
+            if (!(payloads.get(i) instanceof HeartBeat) || ((HeartBeat) payloads.get(i)).epoch != epochs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSingle(Broadcast b, Set<NetAddress> nodes, NetAddress src, long epoch) {
+        return b.nodes.equals(nodes) && b.src.equals(src) && b.payload instanceof HeartBeat && ((HeartBeat) b.payload).epoch == epoch;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
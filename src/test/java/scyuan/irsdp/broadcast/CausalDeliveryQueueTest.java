@@ -0,0 +1,31 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CausalDeliveryQueueTest {
+
+    @Test
+    public void test() {
+        CausalDeliveryQueue<String> queue = new CausalDeliveryQueue<>(3);
+        List<String> delivered = new ArrayList<>();
+
+        // c0 depends on a0 and b0, b0 depends on a0; a0 arrives last
+        queue.add(2, new long[]{1, 1, 0}, "c0", delivered::add);
+        queue.add(0, new long[]{1, 0, 0}, "a1", delivered::add);
+        queue.add(1, new long[]{1, 0, 0}, "b0", delivered::add);
+        assertTrue(delivered.isEmpty());
+
+        queue.add(0, new long[]{0, 0, 0}, "a0", delivered::add);
+        assertEquals(Arrays.asList("a0", "a1", "b0", "c0"), delivered);
+        assertArrayEquals(new long[]{2, 1, 1}, queue.delivered());
+
+        queue.add(0, new long[]{0, 0, 0}, "a0", delivered::add);
+        assertEquals(4, delivered.size());
+    }
+}
@@ -0,0 +1,147 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.FairLossPointToPointLink;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EagerProbabilisticBroadcastCompTest {
+
+    private static final int FANOUT = 2;
+    private static final int ROUNDS = 2;
+
+    private final List<NetAddress> members = new ArrayList<>();
+    private final Set<NetAddress> all;
+    private final NetAddress self;
+
+    public EagerProbabilisticBroadcastCompTest() {
+        for (int i = 0; i < 5; i++) {
+            members.add(new NetAddress(InetAddress.getLoopbackAddress(), 12346 + i));
+        }
+        all = new HashSet<>(members);
+        self = members.get(0);
+    }
+
+    /**
+     * Each broadcast is delivered locally, numbered, and gossiped with ROUNDS rounds to exactly FANOUT
+     * distinct other processes.
+     */
+    @Test
+    public void broadcastTest() {
+        TestContext<EagerProbabilisticBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ProbabilisticBroadcast> pb = comp.getPositive(ProbabilisticBroadcast.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Set<NetAddress> targets = new HashSet<>();
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), pb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 1), pb, Direction.OUT);
+        expectGossip(tc, fll, targets, self, 0, ROUNDS);
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(2), all, self), pb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 2), pb, Direction.OUT);
+        expectGossip(tc, fll, new HashSet<>(), self, 1, ROUNDS);
+
+        assertTrue(tc.check());
+        assertEquals(FANOUT, targets.size());
+    }
+
+    /**
+     * A GOSSIP with rounds left is delivered once and forwarded to FANOUT targets with one round
+     * less, every time it arrives; one in its last round is delivered but not forwarded.
+     */
+    @Test
+    public void forwardTest() {
+        TestContext<EagerProbabilisticBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ProbabilisticBroadcast> pb = comp.getPositive(ProbabilisticBroadcast.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        NetAddress origin = members.get(3);
+        NetAddress p = members.get(1);
+        GossipMessage first = new GossipMessage(origin, 0, new HeartBeat(1), ROUNDS);
+
+        tc.body()
+                .trigger(new Deliver(p, first), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, origin, 1), pb, Direction.OUT);
+        expectGossip(tc, fll, new HashSet<>(), origin, 0, ROUNDS - 1);
+        tc.body().trigger(new Deliver(members.get(2), first), fll);
+        expectGossip(tc, fll, new HashSet<>(), origin, 0, ROUNDS - 1);
+        tc.body()
+                .trigger(new Deliver(p, new GossipMessage(origin, 1, new HeartBeat(2), 1)), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, origin, 2), pb, Direction.OUT)
+                .trigger(new Deliver(p, new GossipMessage(origin, 2, new HeartBeat(3), 1)), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, origin, 3), pb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Copies of (src, sn) in their last round, the own broadcasts included, are never delivered twice.
+     */
+    @Test
+    public void duplicateTest() {
+        TestContext<EagerProbabilisticBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ProbabilisticBroadcast> pb = comp.getPositive(ProbabilisticBroadcast.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        NetAddress origin = members.get(4);
+        NetAddress p = members.get(2);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), pb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 1), pb, Direction.OUT);
+        expectGossip(tc, fll, new HashSet<>(), self, 0, ROUNDS);
+        tc.body()
+                .trigger(new Deliver(p, new GossipMessage(self, 0, new HeartBeat(1), 1)), fll)
+                .trigger(new Deliver(p, new GossipMessage(origin, 0, new HeartBeat(2), 1)), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, origin, 2), pb, Direction.OUT)
+                .trigger(new Deliver(members.get(1), new GossipMessage(origin, 0, new HeartBeat(2), 1)), fll)
+                .trigger(new Deliver(p, new GossipMessage(origin, 0, new HeartBeat(2), 1)), fll)
+                .trigger(new Deliver(p, new GossipMessage(origin, 1, new HeartBeat(3), 1)), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, origin, 3), pb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<EagerProbabilisticBroadcastComp> newContext() {
+        return TestContext.newInstance(EagerProbabilisticBroadcastComp.class, new EagerProbabilisticBroadcastComp.Init(self, all, FANOUT, ROUNDS, 64));
+    }
+
+    /**
+     * Expects FANOUT Sends of [GOSSIP, src, sn, rounds] to distinct processes other than self, collected in targets.
+     */
+    private void expectGossip(TestContext<EagerProbabilisticBroadcastComp> tc, Negative<FairLossPointToPointLink> fll, Set<NetAddress> targets,
+                              NetAddress src, long sn, int rounds) {
+        for (int i = 0; i < FANOUT; i++) {
+            tc.body().expect(Send.class, (Send s) -> isGossip(s, src, sn, rounds) && !s.dest.equals(self) && targets.add(s.dest), fll, Direction.OUT);
+        }
+    }
+
+    private static boolean isGossip(Send s, NetAddress src, long sn, int rounds) {
+        if (!(s.payload instanceof GossipMessage)) {
+            return false;
+        }
+        GossipMessage m = (GossipMessage) s.payload;
+        return m.src.equals(src) && m.sn == sn && m.rounds == rounds;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
@@ -0,0 +1,67 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.link.NetAddress;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class GossipTargetsTest {
+
+    /**
+     * Every pick returns min(k, N - 1) distinct members other than self, for fanouts below, at and
+     * above the number of other processes.
+     */
+    @Test
+    public void pickTest() {
+        for (int n : new int[]{1, 2, 5, 40}) {
+            List<NetAddress> all = addresses(n);
+            NetAddress self = all.get(n / 2);
+            GossipTargets targets = new GossipTargets(self, all, new Random(n));
+            for (int k : new int[]{0, 1, 3, n - 1, n, n + 5}) {
+                for (int round = 0; round < 50; round++) {
+                    int picked = targets.pick(k);
+                    assertEquals(Math.max(0, Math.min(k, n - 1)), picked);
+                    Set<NetAddress> distinct = new HashSet<>();
+                    for (int i = 0; i < picked; i++) {
+                        NetAddress t = targets.get(i);
+                        assertNotEquals(self, t);
+                        assertTrue(all.contains(t));
+                        assertTrue(distinct.add(t));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks of one target spread over all other processes rather than sticking to a few.
+     */
+    @Test
+    public void coverageTest() {
+        List<NetAddress> all = addresses(10);
+        NetAddress self = all.get(0);
+        GossipTargets targets = new GossipTargets(self, all, new Random(1));
+        Set<NetAddress> seen = new HashSet<>();
+        for (int round = 0; round < 1000; round++) {
+            targets.pick(1);
+            seen.add(targets.get(0));
+        }
+        assertEquals(9, seen.size());
+        assertFalse(seen.contains(self));
+    }
+
+    private static List<NetAddress> addresses(int n) {
+        List<NetAddress> all = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            all.add(new NetAddress(InetAddress.getLoopbackAddress(), 12346 + i));
+        }
+        return all;
+    }
+}
@@ -0,0 +1,156 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.FairLossPointToPointLink;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LazyProbabilisticBroadcastCompTest {
+
+    private static final int STORE_SIZE = 4;
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+
+    /**
+     * DATA 1 and 3 of b are lost on upb: a digest covering [0, 5) pulls exactly those two numbers,
+     * the answers are delivered once, and a later digest of the same range pulls nothing.
+     */
+    @Test
+    public void repairTest() {
+        TestContext<LazyProbabilisticBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ProbabilisticBroadcast> pb = comp.getPositive(ProbabilisticBroadcast.class);
+        Negative<ProbabilisticBroadcast> upb = comp.getNegative(ProbabilisticBroadcast.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(9), all, self), pb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 0, 9), upb, Direction.OUT);
+        for (int sn : new int[]{0, 2, 4}) {
+            tc.body()
+                    .trigger(new BroadcastDeliver(new DataMessage(b, sn, new HeartBeat(sn)), b), upb)
+                    .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, sn), pb, Direction.OUT);
+        }
+        tc.body()
+                .trigger(new Deliver(c, digest(b, 0, 5)), fll)
+                .expect(Send.class, (Send s) -> isPull(s, c, b, 1, 3), fll, Direction.OUT)
+                .trigger(new Deliver(c, new DataMessage(b, 3, new HeartBeat(3))), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 3), pb, Direction.OUT)
+                .trigger(new Deliver(c, new DataMessage(b, 1, new HeartBeat(1))), fll)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 1), pb, Direction.OUT)
+                .trigger(new Deliver(c, new DataMessage(b, 1, new HeartBeat(1))), fll)
+                .trigger(new BroadcastDeliver(new DataMessage(b, 3, new HeartBeat(3)), b), upb)
+                .trigger(new Deliver(c, digest(b, 0, 5)), fll)
+                .trigger(new Deliver(c, digest(c, 0, 2)), fll)
+                .expect(Send.class, (Send s) -> isPull(s, c, c, 0, 1), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * The store keeps the last STORE_SIZE messages of every origin: a pull is answered for the ones
+     * still stored only, and the digest advertises the range that is left.
+     */
+    @Test
+    public void storeEvictionTest() {
+        TestContext<LazyProbabilisticBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ProbabilisticBroadcast> pb = comp.getPositive(ProbabilisticBroadcast.class);
+        Negative<ProbabilisticBroadcast> upb = comp.getNegative(ProbabilisticBroadcast.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        int received = STORE_SIZE + 2;
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(tick(), timer);
+        for (int sn = 0; sn < received; sn++) {
+            int epoch = sn;
+            tc.body()
+                    .trigger(new BroadcastDeliver(new DataMessage(b, sn, new HeartBeat(sn)), b), upb)
+                    .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, epoch), pb, Direction.OUT);
+        }
+        tc.body()
+                .trigger(new Deliver(c, new PullMessage(b, new long[]{0, 1, 2, 5})), fll)
+                .expect(Send.class, (Send s) -> isData(s, c, b, 2), fll, Direction.OUT)
+                .expect(Send.class, (Send s) -> isData(s, c, b, 5), fll, Direction.OUT)
+                .trigger(new Deliver(c, new PullMessage(c, new long[]{0})), fll)
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isDigest(s, b, received - STORE_SIZE, received), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<LazyProbabilisticBroadcastComp> newContext() {
+        return TestContext.newInstance(LazyProbabilisticBroadcastComp.class, new LazyProbabilisticBroadcastComp.Init(self, all, 1, 10, STORE_SIZE, 64));
+    }
+
+    private static LazyProbabilisticBroadcastComp.DigestTimeout tick() {
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(10, 10);
+        LazyProbabilisticBroadcastComp.DigestTimeout timeout = new LazyProbabilisticBroadcastComp.DigestTimeout(spt);
+        spt.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private static DigestMessage digest(NetAddress src, long from, long to) {
+        return new DigestMessage(Collections.singletonMap(src, new long[]{from, to}));
+    }
+
+    private boolean isData(Broadcast bc, NetAddress src, long sn, long epoch) {
+        if (!bc.src.equals(src) || !bc.nodes.equals(all) || !(bc.payload instanceof DataMessage)) {
+            return false;
+        }
+        DataMessage m = (DataMessage) bc.payload;
+        return m.src.equals(src) && m.sn == sn && m.payload instanceof HeartBeat && ((HeartBeat) m.payload).epoch == epoch;
+    }
+
+    private static boolean isData(Send s, NetAddress dest, NetAddress src, long sn) {
+        if (!s.dest.equals(dest) || !(s.payload instanceof DataMessage)) {
+            return false;
+        }
+        DataMessage m = (DataMessage) s.payload;
+        return m.src.equals(src) && m.sn == sn && ((HeartBeat) m.payload).epoch == sn;
+    }
+
+    private static boolean isPull(Send s, NetAddress dest, NetAddress src, long... sns) {
+        if (!s.dest.equals(dest) || !(s.payload instanceof PullMessage)) {
+            return false;
+        }
+        PullMessage m = (PullMessage) s.payload;
+        return m.src.equals(src) && Arrays.equals(m.sns, sns);
+    }
+
+    private boolean isDigest(Send s, NetAddress src, long from, long to) {
+        if (s.dest.equals(self) || !(s.payload instanceof DigestMessage)) {
+            return false;
+        }
+        DigestMessage m = (DigestMessage) s.payload;
+        return m.ranges.size() == 1 && Arrays.equals(m.ranges.get(src), new long[]{from, to});
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
@@ -0,0 +1,146 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LazyReliableBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+    private final Set<NetAddress> pair = new HashSet<>(Arrays.asList(self, c));
+
+    /**
+     * Messages of (c, all) are pruned below the lowest watermark of the correct processes in all, and
+     * the watermarks for all do not prune (c, pair): the crash of c relays only what is left of both.
+     */
+    @Test
+    public void pruneTest() {
+        TestContext<LazyReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> rb = comp.getPositive(ReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        Negative<PerfectFailureDetector> pfd = comp.getNegative(PerfectFailureDetector.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        ReliableBroadcastMessage m0 = new ReliableBroadcastMessage(c, 0, new HeartBeat(1), all);
+        ReliableBroadcastMessage m1 = new ReliableBroadcastMessage(c, 1, new HeartBeat(2), all);
+        ReliableBroadcastMessage p0 = new ReliableBroadcastMessage(c, 0, new HeartBeat(3), pair);
+        ReliableBroadcastMessage other = new ReliableBroadcastMessage(b, 0, new HeartBeat(4), all);
+        Set<ReliableBroadcastMessage> relayed = new HashSet<>();
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new BroadcastDeliver(m0, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 1), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m1, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 2), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(p0, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 3), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(other, b), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 4), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(stability(all, c, 2), self), beb)
+                .trigger(new BroadcastDeliver(stability(all, c, 1), b), beb)
+                .trigger(new BroadcastDeliver(stability(all, c, 2), c), beb)
+                .trigger(new Crash(c), pfd)
+                .expect(Broadcast.class, (Broadcast bc) -> isRelay(bc, c, m1, p0) && relayed.add((ReliableBroadcastMessage) bc.payload), beb, Direction.OUT)
+                .expect(Broadcast.class, (Broadcast bc) -> isRelay(bc, c, m1, p0) && relayed.add((ReliableBroadcastMessage) bc.payload), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+        assertEquals(2, relayed.size());
+    }
+
+    /**
+     * Without the watermark of b nothing is stable, so the crash of c relays its whole store in order;
+     * messages of c that arrive after the crash are relayed as they are delivered.
+     */
+    @Test
+    public void crashRelayTest() {
+        TestContext<LazyReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<ReliableBroadcast> rb = comp.getPositive(ReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        Negative<PerfectFailureDetector> pfd = comp.getNegative(PerfectFailureDetector.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        ReliableBroadcastMessage m0 = new ReliableBroadcastMessage(c, 0, new HeartBeat(1), all);
+        ReliableBroadcastMessage m1 = new ReliableBroadcastMessage(c, 1, new HeartBeat(2), all);
+        ReliableBroadcastMessage m2 = new ReliableBroadcastMessage(c, 2, new HeartBeat(3), all);
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new BroadcastDeliver(m1, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 2), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m0, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 1), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m0, b), beb)
+                .trigger(tick(), timer)
+                .expect(Broadcast.class, (Broadcast bc) -> isStability(bc, c, 2), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(stability(all, c, 2), self), beb)
+                .trigger(new BroadcastDeliver(stability(all, c, 2), c), beb)
+                .trigger(new Crash(c), pfd)
+                .expect(Broadcast.class, (Broadcast bc) -> isRelay(bc, c, m0), beb, Direction.OUT)
+                .expect(Broadcast.class, (Broadcast bc) -> isRelay(bc, c, m1), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m2, b), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 3), rb, Direction.OUT)
+                .expect(Broadcast.class, (Broadcast bc) -> isRelay(bc, c, m2), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<LazyReliableBroadcastComp> newContext() {
+        return TestContext.newInstance(LazyReliableBroadcastComp.class, new LazyReliableBroadcastComp.Init(self, all, 10).withDedupWindow(64));
+    }
+
+    private static LazyReliableBroadcastComp.StabilityTimeout tick() {
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(10, 10);
+        LazyReliableBroadcastComp.StabilityTimeout timeout = new LazyReliableBroadcastComp.StabilityTimeout(spt);
+        spt.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private static StabilityMessage stability(Set<NetAddress> nodes, NetAddress src, long next) {
+        return new StabilityMessage(nodes, Collections.singletonMap(src, next));
+    }
+
+    private boolean isStability(Broadcast bc, NetAddress src, long next) {
+        if (!bc.src.equals(self) || !bc.nodes.equals(all) || !(bc.payload instanceof StabilityMessage)) {
+            return false;
+        }
+        StabilityMessage m = (StabilityMessage) bc.payload;
+        return m.nodes.equals(all) && m.delivered.equals(Collections.singletonMap(src, next));
+    }
+
+    private static boolean isRelay(Broadcast bc, NetAddress src, ReliableBroadcastMessage... candidates) {
+        if (!bc.src.equals(src)) {
+            return false;
+        }
+        for (ReliableBroadcastMessage m : candidates) {
+            if (bc.payload == m && bc.nodes.equals(m.nodes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
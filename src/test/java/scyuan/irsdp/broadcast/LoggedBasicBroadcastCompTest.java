@@ -0,0 +1,115 @@
+package scyuan.irsdp.broadcast;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.StubbornPointToPointLink;
+import scyuan.irsdp.serialization.IrsdpSerializers;
+import scyuan.irsdp.storage.MappedLog;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.ScheduleTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static scyuan.irsdp.serialization.WireFormat.*;
+
+public class LoggedBasicBroadcastCompTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress other = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, other));
+
+    @Test
+    public void replayOnStartTest() throws IOException {
+        IrsdpSerializers.register();
+        Path dir = folder.getRoot().toPath();
+        try (MappedLog log = new MappedLog(dir, 1 << 16)) {
+            log.append(record(other, 0, new HeartBeat(1)));
+            log.append(record(self, 0, new HeartBeat(2)));
+            log.force();
+        }
+
+        TestContext<LoggedBasicBroadcastComp> tc = TestContext.newInstance(LoggedBasicBroadcastComp.class, new LoggedBasicBroadcastComp.Init(self, all, dir));
+        Component comp = tc.getComponentUnderTest();
+        Positive<LoggedBestEffortBroadcast> lbeb = comp.getPositive(LoggedBestEffortBroadcast.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, other, 1), lbeb, Direction.OUT)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, self, 2), lbeb, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), lbeb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(Send.class, (Send s) -> isData(s, 1), sl, Direction.OUT)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, self, 3), lbeb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void groupCommitTest() {
+        IrsdpSerializers.register();
+        Path dir = folder.getRoot().toPath();
+
+        TestContext<LoggedBasicBroadcastComp> tc = TestContext.newInstance(LoggedBasicBroadcastComp.class, new LoggedBasicBroadcastComp.Init(self, all, dir).withGroupCommit(2, 1000));
+        Component comp = tc.getComponentUnderTest();
+        Positive<LoggedBestEffortBroadcast> lbeb = comp.getPositive(LoggedBestEffortBroadcast.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), lbeb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> st.getDelay() == 1000, timer, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), lbeb)
+                .expect(Send.class, (Send s) -> isData(s, 0), sl, Direction.OUT)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, self, 1), lbeb, Direction.OUT)
+                .expect(Send.class, (Send s) -> isData(s, 1), sl, Direction.OUT)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, self, 2), lbeb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private static LoggedBasicBroadcastComp.FlushTimeout flush() {
+        ScheduleTimeout st = new ScheduleTimeout(0);
+        LoggedBasicBroadcastComp.FlushTimeout timeout = new LoggedBasicBroadcastComp.FlushTimeout(st);
+        st.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private boolean isData(Send s, long sn) {
+        return s.dest.equals(other) && s.payload instanceof DataMessage
+                && ((DataMessage) s.payload).src.equals(self) && ((DataMessage) s.payload).sn == sn;
+    }
+
+    private static boolean isHeartBeat(LoggedDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+
+    private static ByteBuf record(NetAddress src, long sn, HeartBeat payload) {
+        ByteBuf buf = Unpooled.buffer();
+        writeAddress(buf, src);
+        writeUnsignedVarLong(buf, sn);
+        writeObject(buf, payload);
+        return buf;
+    }
+}
@@ -0,0 +1,178 @@
+package scyuan.irsdp.broadcast;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.FairLossPointToPointLink;
+import scyuan.irsdp.link.FairLossPointToPointLinkComp;
+import scyuan.irsdp.link.LocalNetwork;
+import scyuan.irsdp.link.LocalNetworkComp;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.StubbornPointToPointLink;
+import scyuan.irsdp.link.StubbornPointToPointLinkComp;
+import se.sics.kompics.*;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.timer.Timer;
+import se.sics.kompics.timer.java.JavaTimer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class LoggedMajorityAckGroupCommitTest {
+
+    private static final int NODES = 3;
+    private static final int MESSAGES = 500;
+
+    private static final int[] MAX_BATCHES = {1, 16, 256};
+    private static final long[] LINGERS_MS = {0, 2};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Every node broadcasts MESSAGES messages to all over stubborn links on a local network, once per
+     * withGroupCommit setting; each run ends when every node delivered all of them. Reports delivered
+     * messages per second and per force of the logs.
+     */
+    @Test
+    public void groupCommitSweep() throws InterruptedException, IOException {
+        for (int maxBatch : MAX_BATCHES) {
+            for (long lingerMs : LINGERS_MS) {
+                Path dir = folder.newFolder("batch-" + maxBatch + "-linger-" + lingerMs).toPath();
+                List<Component> urbs = new ArrayList<>();
+                long nanos = run(maxBatch, lingerMs, dir, urbs);
+
+                long forces = 0;
+                for (Component urb : urbs) {
+                    forces += ((LoggedMajorityAckUniformReliableBroadcastComp) urb.getComponent()).forces();
+                }
+                long delivered = (long) NODES * NODES * MESSAGES;
+                assertTrue(forces > 0);
+                log.info("maxBatch {} linger {} ms: {} msg/s, {} msg/force", maxBatch, lingerMs,
+                        delivered * TimeUnit.SECONDS.toNanos(1) / nanos, delivered / forces);
+            }
+        }
+    }
+
+    private static long run(int maxBatch, long lingerMs, Path dir, List<Component> urbs) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(NODES);
+        try (LocalNetwork network = new LocalNetwork()) {
+            long start = System.nanoTime();
+            Kompics.createAndStart(Cluster.class, new Cluster.Init(network, maxBatch, lingerMs, dir, urbs, done), 4);
+            try {
+                assertTrue(done.await(60, TimeUnit.SECONDS));
+                return System.nanoTime() - start;
+            } finally {
+                Kompics.shutdown();
+            }
+        }
+    }
+
+    public static class Cluster extends ComponentDefinition {
+
+        public Cluster(Init init) {
+            Set<NetAddress> all = new HashSet<>();
+            for (int i = 0; i < NODES; i++) {
+                all.add(new NetAddress(InetAddress.getLoopbackAddress(), 21000 + i));
+            }
+
+            for (NetAddress self : all) {
+                Component timer = create(JavaTimer.class, se.sics.kompics.Init.NONE);
+                Component net = create(LocalNetworkComp.class, new LocalNetworkComp.Init(self, init.network));
+                Component fll = create(FairLossPointToPointLinkComp.class, new FairLossPointToPointLinkComp.Init(self));
+                Component sl = create(StubbornPointToPointLinkComp.class, new StubbornPointToPointLinkComp.Init(self));
+                Component urb = create(LoggedMajorityAckUniformReliableBroadcastComp.class,
+                        new LoggedMajorityAckUniformReliableBroadcastComp.Init(self, all, init.dir.resolve(Integer.toString(self.getPort())))
+                                .withGroupCommit(init.maxBatch, init.lingerMs));
+                Component driver = create(Driver.class, new Driver.Init(self, all, init.done));
+                connect(fll.getNegative(Network.class), net.getPositive(Network.class));
+                connect(sl.getNegative(FairLossPointToPointLink.class), fll.getPositive(FairLossPointToPointLink.class));
+                connect(sl.getNegative(Timer.class), timer.getPositive(Timer.class));
+                connect(urb.getNegative(StubbornPointToPointLink.class), sl.getPositive(StubbornPointToPointLink.class));
+                connect(urb.getNegative(Timer.class), timer.getPositive(Timer.class));
+                connect(driver.getNegative(LoggedUniformReliableBroadcast.class), urb.getPositive(LoggedUniformReliableBroadcast.class));
+                init.urbs.add(urb);
+            }
+        }
+
+        public static class Init extends se.sics.kompics.Init<Cluster> {
+            private final LocalNetwork network;
+            private final int maxBatch;
+            private final long lingerMs;
+            private final Path dir;
+            private final List<Component> urbs;
+            private final CountDownLatch done;
+
+            public Init(LocalNetwork network, int maxBatch, long lingerMs, Path dir, List<Component> urbs, CountDownLatch done) {
+                this.network = network;
+                this.maxBatch = maxBatch;
+                this.lingerMs = lingerMs;
+                this.dir = dir;
+                this.urbs = urbs;
+                this.done = done;
+            }
+        }
+    }
+
+    public static class Driver extends ComponentDefinition {
+        private final Positive<LoggedUniformReliableBroadcast> lurb = requires(LoggedUniformReliableBroadcast.class);
+
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final CountDownLatch done;
+        private long delivered;
+
+        public Driver(Init init) {
+            this.self = init.self;
+            this.all = init.all;
+            this.done = init.done;
+            this.delivered = 0;
+
+            subscribe(startHandler, control);
+            subscribe(deliverHandler, lurb);
+        }
+
+        private final Handler<Start> startHandler = new Handler<Start>() {
+            @Override
+            public void handle(Start event) {
+                for (int i = 0; i < MESSAGES; i++) {
+                    trigger(new Broadcast(new HeartBeat(i), all, self), lurb);
+                }
+            }
+        };
+
+        private final Handler<LoggedDeliver> deliverHandler = new Handler<LoggedDeliver>() {
+            @Override
+            public void handle(LoggedDeliver event) {
+                delivered += 1;
+                if (delivered == (long) NODES * MESSAGES) {
+                    done.countDown();
+                }
+            }
+        };
+
+        public static class Init extends se.sics.kompics.Init<Driver> {
+            private final NetAddress self;
+            private final Set<NetAddress> all;
+            private final CountDownLatch done;
+
+            public Init(NetAddress self, Set<NetAddress> all, CountDownLatch done) {
+                this.self = self;
+                this.all = all;
+                this.done = done;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.Send;
+import scyuan.irsdp.link.StubbornPointToPointLink;
+import scyuan.irsdp.serialization.IrsdpSerializers;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.ScheduleTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class LoggedMajorityAckUniformReliableBroadcastCompTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress a = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, a, b));
+
+    /**
+     * The own forced record and the WRITE of a make a majority of 3, so m is delivered at the next flush.
+     */
+    @Test
+    public void ackAggregationTest() {
+        IrsdpSerializers.register();
+        Path dir = folder.getRoot().toPath();
+
+        TestContext<LoggedMajorityAckUniformReliableBroadcastComp> tc = TestContext.newInstance(LoggedMajorityAckUniformReliableBroadcastComp.class,
+                new LoggedMajorityAckUniformReliableBroadcastComp.Init(self, all, dir));
+        Component comp = tc.getComponentUnderTest();
+        Positive<LoggedUniformReliableBroadcast> lurb = comp.getPositive(LoggedUniformReliableBroadcast.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), lurb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 0), sl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 0), sl, Direction.OUT)
+                .trigger(write(a, 0, 1), sl)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, 1), lurb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * After a restart the delivered message is announced again from the log, both pending messages
+     * are resent as recovery WRITEs, and the AckBatch of b completes the majority of the second one.
+     */
+    @Test
+    public void recoveryTest() {
+        IrsdpSerializers.register();
+        Path dir = folder.getRoot().toPath();
+
+        TestContext<LoggedMajorityAckUniformReliableBroadcastComp> tc = TestContext.newInstance(LoggedMajorityAckUniformReliableBroadcastComp.class,
+                new LoggedMajorityAckUniformReliableBroadcastComp.Init(self, all, dir));
+        Component comp = tc.getComponentUnderTest();
+        Positive<LoggedUniformReliableBroadcast> lurb = comp.getPositive(LoggedUniformReliableBroadcast.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), lurb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 0), sl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 0), sl, Direction.OUT)
+                .trigger(write(a, 0, 1), sl)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, 1), lurb, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), lurb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 1), sl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 1), sl, Direction.OUT);
+        assertTrue(tc.check());
+
+        TestContext<LoggedMajorityAckUniformReliableBroadcastComp> recovered = TestContext.newInstance(LoggedMajorityAckUniformReliableBroadcastComp.class,
+                new LoggedMajorityAckUniformReliableBroadcastComp.Init(self, all, dir));
+        comp = recovered.getComponentUnderTest();
+        lurb = comp.getPositive(LoggedUniformReliableBroadcast.class);
+        sl = comp.getNegative(StubbornPointToPointLink.class);
+        timer = comp.getNegative(Timer.class);
+
+        recovered.body()
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, 1), lurb, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, true, 0, 1), sl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, true, 0, 1), sl, Direction.OUT)
+                .trigger(new Deliver(b, new AckBatch(Collections.singletonMap(self, new long[]{0, 1}))), sl)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, 2), lurb, Direction.OUT)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), lurb)
+                .expect(ScheduleTimeout.class, (ScheduleTimeout st) -> true, timer, Direction.OUT)
+                .trigger(flush(), timer)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 2), sl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isWrite(s, false, 2), sl, Direction.OUT);
+        assertTrue(recovered.check());
+    }
+
+    /**
+     * With two processes every delivered message is also stable, so the log is cut back at every
+     * checkpoint and keeps at most the segments written since the last one, instead of all of them.
+     */
+    @Test
+    public void truncationTest() throws IOException {
+        IrsdpSerializers.register();
+        Path dir = folder.getRoot().toPath();
+        Set<NetAddress> pair = new HashSet<>(Arrays.asList(self, a));
+
+        TestContext<LoggedMajorityAckUniformReliableBroadcastComp> tc = TestContext.newInstance(LoggedMajorityAckUniformReliableBroadcastComp.class,
+                new LoggedMajorityAckUniformReliableBroadcastComp.Init(self, pair, dir).withGroupCommit(1, 0).withSegmentSize(256));
+        Component comp = tc.getComponentUnderTest();
+        Positive<LoggedUniformReliableBroadcast> lurb = comp.getPositive(LoggedUniformReliableBroadcast.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+
+        int messages = 100;
+        for (int i = 0; i < messages; i++) {
+            long sn = i;
+            tc.body()
+                    .trigger(new Broadcast(new HeartBeat(i), pair, self), lurb)
+                    .expect(Send.class, (Send s) -> s.dest.equals(a) && isWrite(s, false, sn), sl, Direction.OUT)
+                    .trigger(write(a, sn, i), sl)
+                    .expect(LoggedDeliver.class, (LoggedDeliver d) -> isHeartBeat(d, sn), lurb, Direction.OUT);
+        }
+        assertTrue(tc.check());
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() <= 3);
+        }
+    }
+
+    private static LoggedMajorityAckUniformReliableBroadcastComp.FlushTimeout flush() {
+        ScheduleTimeout st = new ScheduleTimeout(0);
+        LoggedMajorityAckUniformReliableBroadcastComp.FlushTimeout timeout = new LoggedMajorityAckUniformReliableBroadcastComp.FlushTimeout(st);
+        st.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private Deliver write(NetAddress from, long sn, long epoch) {
+        return new Deliver(from, new WriteBatch(false, Collections.singletonList(new DataMessage(self, sn, new HeartBeat(epoch)))));
+    }
+
+    private boolean isWrite(Send s, boolean recovery, long... sns) {
+        if (!(s.dest.equals(a) || s.dest.equals(b)) || !(s.payload instanceof WriteBatch)) {
+            return false;
+        }
+        WriteBatch batch = (WriteBatch) s.payload;
+        if (batch.recovery != recovery || batch.writes.size() != sns.length) {
+            return false;
+        }
+        for (int i = 0; i < sns.length; i++) {
+            if (!batch.writes.get(i).src.equals(self) || batch.writes.get(i).sn != sns[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isHeartBeat(LoggedDeliver d, long epoch) {
+        return d.src.equals(self) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
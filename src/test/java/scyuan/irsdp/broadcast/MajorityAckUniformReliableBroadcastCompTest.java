@@ -0,0 +1,129 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MajorityAckUniformReliableBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+
+    /**
+     * The own copy of m is one ack out of 3 and delivers nothing; the copy relayed by b makes a
+     * majority and delivers m, and the ack of c that comes late changes nothing.
+     */
+    @Test
+    public void majorityTest() {
+        TestContext<MajorityAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        ReliableBroadcastMessage m = new ReliableBroadcastMessage(self, 0, new HeartBeat(1), all);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), urb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 0, 1), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 1), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .trigger(new Broadcast(new HeartBeat(2), all, self), urb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 1, 2), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * The first copy of a message of b is relayed and counts as one ack. Once the message is delivered,
+     * the copies that keep coming neither relay nor deliver it again.
+     */
+    @Test
+    public void duplicateTest() {
+        TestContext<MajorityAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        ReliableBroadcastMessage m = new ReliableBroadcastMessage(b, 0, new HeartBeat(1), all);
+        ReliableBroadcastMessage next = new ReliableBroadcastMessage(c, 0, new HeartBeat(2), all);
+
+        tc.body()
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == m && bc.src.equals(b), beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 1), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(m, self), beb)
+                .trigger(new BroadcastDeliver(m, b), beb)
+                .trigger(new BroadcastDeliver(m, c), beb)
+                .trigger(new BroadcastDeliver(next, c), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == next && bc.src.equals(c), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Messages are told apart by (src, sn) alone: equal payloads from the same or different origins,
+     * acked in any order, are each delivered exactly once.
+     */
+    @Test
+    public void deliverOncePerOriginTest() {
+        TestContext<MajorityAckUniformReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<UniformReliableBroadcast> urb = comp.getPositive(UniformReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        ReliableBroadcastMessage b0 = new ReliableBroadcastMessage(b, 0, new HeartBeat(7), all);
+        ReliableBroadcastMessage b1 = new ReliableBroadcastMessage(b, 1, new HeartBeat(7), all);
+        ReliableBroadcastMessage c0 = new ReliableBroadcastMessage(c, 0, new HeartBeat(7), all);
+
+        tc.body()
+                .trigger(new BroadcastDeliver(b1, b), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == b1, beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(c0, c), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == c0, beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(b0, b), beb)
+                .expect(Broadcast.class, (Broadcast bc) -> bc.payload == b0, beb, Direction.OUT)
+                .trigger(new BroadcastDeliver(b1, self), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 7), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(c0, self), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, c, 7), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(b0, c), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 7), urb, Direction.OUT)
+                .trigger(new BroadcastDeliver(b1, c), beb)
+                .trigger(new BroadcastDeliver(c0, b), beb)
+                .trigger(new BroadcastDeliver(b0, self), beb)
+                .trigger(new Broadcast(new HeartBeat(8), all, self), urb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, self, 0, 8), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<MajorityAckUniformReliableBroadcastComp> newContext() {
+        return TestContext.newInstance(MajorityAckUniformReliableBroadcastComp.class, new MajorityAckUniformReliableBroadcastComp.Init(self).withDedupWindow(64));
+    }
+
+    private boolean isData(Broadcast bc, NetAddress src, long sn, long epoch) {
+        if (!bc.src.equals(src) || !bc.nodes.equals(all) || !(bc.payload instanceof ReliableBroadcastMessage)) {
+            return false;
+        }
+        ReliableBroadcastMessage m = (ReliableBroadcastMessage) bc.payload;
+        return m.src.equals(src) && m.sn == sn && m.payload instanceof HeartBeat && ((HeartBeat) m.payload).epoch == epoch;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
@@ -0,0 +1,150 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NoWaitingCausalBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+
+    /**
+     * Entries of past stay in every mpast until all correct processes reported watermarks above them,
+     * and are dropped once the last report is in.
+     */
+    @Test
+    public void pruneTest() {
+        TestContext<NoWaitingCausalBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<CausalOrderReliableBroadcast> crb = comp.getPositive(CausalOrderReliableBroadcast.class);
+        Negative<ReliableBroadcast> rb = comp.getNegative(ReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body().expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT);
+        deliverOwnThenB(tc, crb, rb);
+        tc.body()
+                .trigger(new BroadcastDeliver(stability(1, 1), self), beb)
+                .trigger(new BroadcastDeliver(stability(1, 1), b), beb)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), crb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, 1, 3, tuple(self, 0), tuple(b, 0)), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(stability(1, 1), c), beb)
+                .trigger(new Broadcast(new HeartBeat(4), all, self), crb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, 2, 4, tuple(self, 1)), rb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A crashed process is no longer waited for: its missing report stops holding back pruning, the
+     * reports it sends afterwards are ignored, and the next stability report goes to the correct ones.
+     */
+    @Test
+    public void crashTest() {
+        TestContext<NoWaitingCausalBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<CausalOrderReliableBroadcast> crb = comp.getPositive(CausalOrderReliableBroadcast.class);
+        Negative<ReliableBroadcast> rb = comp.getNegative(ReliableBroadcast.class);
+        Negative<BestEffortBroadcast> beb = comp.getNegative(BestEffortBroadcast.class);
+        Negative<PerfectFailureDetector> pfd = comp.getNegative(PerfectFailureDetector.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+
+        tc.body().expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT);
+        deliverOwnThenB(tc, crb, rb);
+        tc.body()
+                .trigger(new BroadcastDeliver(stability(1, 1), self), beb)
+                .trigger(new BroadcastDeliver(stability(1, 0), b), beb)
+                .trigger(new Crash(c), pfd)
+                .trigger(new BroadcastDeliver(stability(0, 0), c), beb)
+                .trigger(new Broadcast(new HeartBeat(3), all, self), crb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, 1, 3, tuple(b, 0)), rb, Direction.OUT)
+                .trigger(tick(), timer)
+                .expect(Broadcast.class, (Broadcast bc) -> isStability(bc, 1, 1), beb, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Broadcasts HeartBeat 1, delivers it back from rb, then delivers HeartBeat 2 of b that depends on
+     * it; past is [(self, 0), (b, 0)] afterwards.
+     */
+    private void deliverOwnThenB(TestContext<NoWaitingCausalBroadcastComp> tc, Positive<CausalOrderReliableBroadcast> crb, Negative<ReliableBroadcast> rb) {
+        ProcessMessageTuple own = new ProcessMessageTuple(self, 0, new HeartBeat(1));
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), crb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, 0, 1), rb, Direction.OUT)
+                .trigger(new BroadcastDeliver(new CausalOrderReliableBroadcastMessage(self, 0, new HeartBeat(1), Collections.emptyList()), self), rb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, self, 1), crb, Direction.OUT)
+                .trigger(new BroadcastDeliver(new CausalOrderReliableBroadcastMessage(b, 0, new HeartBeat(2), Collections.singletonList(own)), b), rb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, b, 2), crb, Direction.OUT);
+    }
+
+    private TestContext<NoWaitingCausalBroadcastComp> newContext() {
+        return TestContext.newInstance(NoWaitingCausalBroadcastComp.class, new NoWaitingCausalBroadcastComp.Init(self, all, 10).withDedupWindow(64));
+    }
+
+    private static NoWaitingCausalBroadcastComp.StabilityTimeout tick() {
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(10, 10);
+        NoWaitingCausalBroadcastComp.StabilityTimeout timeout = new NoWaitingCausalBroadcastComp.StabilityTimeout(spt);
+        spt.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private StabilityMessage stability(long selfNext, long bNext) {
+        Map<NetAddress, Long> marks = new HashMap<>();
+        marks.put(self, selfNext);
+        marks.put(b, bNext);
+        return new StabilityMessage(all, marks);
+    }
+
+    private boolean isStability(Broadcast bc, long selfNext, long bNext) {
+        if (!bc.src.equals(self) || !bc.nodes.equals(new HashSet<>(Arrays.asList(self, b))) || !(bc.payload instanceof StabilityMessage)) {
+            return false;
+        }
+        return ((StabilityMessage) bc.payload).delivered.equals(stability(selfNext, bNext).delivered);
+    }
+
+    /**
+     * Whether bc is the sn-th DATA of self carrying HeartBeat epoch, with exactly mpast in order.
+     */
+    private boolean isData(Broadcast bc, long sn, long epoch, ProcessMessageTuple... mpast) {
+        if (!bc.src.equals(self) || !bc.nodes.equals(all) || !(bc.payload instanceof CausalOrderReliableBroadcastMessage)) {
+            return false;
+        }
+        CausalOrderReliableBroadcastMessage m = (CausalOrderReliableBroadcastMessage) bc.payload;
+        return m.src.equals(self) && m.sn == sn && ((HeartBeat) m.payload).epoch == epoch && m.mpast.equals(Arrays.asList(mpast));
+    }
+
+    /**
+     * A tuple equal to any (p, sn) entry of past, whatever its message.
+     */
+    private static ProcessMessageTuple tuple(NetAddress p, long sn) {
+        return new ProcessMessageTuple(p, sn, null);
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
@@ -0,0 +1,134 @@
+package scyuan.irsdp.broadcast;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import scyuan.irsdp.link.NetAddress;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class RanksTest {
+
+    @Test
+    public void test() throws UnknownHostException {
+        List<NetAddress> all = addresses(70);
+        Ranks ranks = new Ranks(all);
+        assertEquals(70, ranks.size());
+        assertEquals(-1, ranks.of(new NetAddress(InetAddress.getByName("10.0.1.1"), 5000)));
+        for (NetAddress p : all) {
+            assertEquals(p, ranks.get(ranks.of(p)));
+        }
+
+        long[] correct = ranks.newBitset();
+        long[] ack = ranks.newBitset();
+        assertEquals(2, correct.length);
+        set(correct, 3);
+        set(correct, 65);
+        set(ack, 3);
+        assertFalse(Ranks.covers(ack, correct));
+        set(ack, 65);
+        assertTrue(Ranks.covers(ack, correct));
+    }
+
+    /**
+     * All-ack candeliver(m) as correct ⊆ ack[m] on bitsets and on sets of addresses, for groups of
+     * 5, 25 and 100 processes. MESSAGES messages are in flight at once: acks arrive round-robin over
+     * them, each message hearing from its processes in its own random order, and candeliver is
+     * re-checked after every ack until the message is delivered.
+     */
+    @Test
+    public void bitsetsFasterThanSets() throws UnknownHostException {
+        for (int n : new int[]{5, 25, 100}) {
+            candeliver(n, 10_000);
+        }
+    }
+
+    private static void candeliver(int n, int messages) throws UnknownHostException {
+        List<NetAddress> all = addresses(n);
+        Ranks ranks = new Ranks(all);
+        Random random = new Random(n);
+        NetAddress[][] orders = new NetAddress[messages][];
+        for (int i = 0; i < messages; i++) {
+            List<NetAddress> order = new ArrayList<>(all);
+            Collections.shuffle(order, random);
+            orders[i] = order.toArray(new NetAddress[0]);
+        }
+        NetAddress crashed = all.get(n / 2);
+
+        Set<NetAddress> correctSet = new HashSet<>(all);
+        correctSet.remove(crashed);
+        List<Set<NetAddress>> setAcks = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            setAcks.add(new HashSet<>());
+        }
+        boolean[] delivered = new boolean[messages];
+        long start = System.nanoTime();
+        int setDeliveries = 0;
+        for (int step = 0; step < n; step++) {
+            for (int i = 0; i < messages; i++) {
+                if (delivered[i]) {
+                    continue;
+                }
+                Set<NetAddress> ack = setAcks.get(i);
+                ack.add(orders[i][step]);
+                if (ack.containsAll(correctSet)) {
+                    delivered[i] = true;
+                    setDeliveries++;
+                }
+            }
+        }
+        long setNanos = System.nanoTime() - start;
+
+        long[] correct = ranks.newBitset();
+        for (NetAddress p : correctSet) {
+            set(correct, ranks.of(p));
+        }
+        long[][] bitsetAcks = new long[messages][];
+        for (int i = 0; i < messages; i++) {
+            bitsetAcks[i] = ranks.newBitset();
+        }
+        delivered = new boolean[messages];
+        start = System.nanoTime();
+        int bitsetDeliveries = 0;
+        for (int step = 0; step < n; step++) {
+            for (int i = 0; i < messages; i++) {
+                if (delivered[i]) {
+                    continue;
+                }
+                long[] ack = bitsetAcks[i];
+                set(ack, ranks.of(orders[i][step]));
+                if (Ranks.covers(ack, correct)) {
+                    delivered[i] = true;
+                    bitsetDeliveries++;
+                }
+            }
+        }
+        long bitsetNanos = System.nanoTime() - start;
+
+        assertEquals(messages, setDeliveries);
+        assertEquals(setDeliveries, bitsetDeliveries);
+        log.info("candeliver over {} processes, {} messages in flight: bitset {} ns/msg, set {} ns/msg", n, messages,
+                bitsetNanos / messages, setNanos / messages);
+    }
+
+    private static void set(long[] bits, int rank) {
+        bits[rank >>> 6] |= 1L << rank;
+    }
+
+    private static List<NetAddress> addresses(int n) throws UnknownHostException {
+        List<NetAddress> all = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            all.add(new NetAddress(InetAddress.getByName("10.0.0." + (i + 1)), 5000));
+        }
+        return all;
+    }
+}
@@ -0,0 +1,125 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.NetAddress;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SequenceNumberFIFOReliableBroadcastCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+    private final Set<NetAddress> all = new HashSet<>(Arrays.asList(self, b, c));
+
+    /**
+     * Once next of b is 15, messages 16 to 20 sit in slots that wrap around the 16-slot ring; they
+     * are held until 15 arrives and then delivered in sn order, each once. A gap of b does not hold
+     * back c, and own broadcasts are numbered from 1.
+     */
+    @Test
+    public void wrapAroundTest() {
+        TestContext<SequenceNumberFIFOReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<FIFOReliableBroadcast> frb = comp.getPositive(FIFOReliableBroadcast.class);
+        Negative<ReliableBroadcast> rb = comp.getNegative(ReliableBroadcast.class);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(7), all, self), frb)
+                .expect(Broadcast.class, (Broadcast bc) -> isData(bc, 1, 7), rb, Direction.OUT);
+        for (long sn = 1; sn < 15; sn++) {
+            receive(tc, rb, b, sn);
+            expectDelivered(tc, frb, b, sn, sn);
+        }
+        receive(tc, rb, b, 20, 18, 16, 18, 19, 17);
+        receive(tc, rb, c, 1);
+        expectDelivered(tc, frb, c, 1, 1);
+        receive(tc, rb, b, 15);
+        expectDelivered(tc, frb, b, 15, 20);
+        receive(tc, rb, b, 16, 20, 3);
+        receive(tc, rb, b, 21);
+        expectDelivered(tc, frb, b, 21, 21);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Messages far beyond next grow the ring, including while wrapped entries are held, and every
+     * held message survives the copy: all of them are delivered in sn order once the gap closes.
+     */
+    @Test
+    public void growthTest() {
+        TestContext<SequenceNumberFIFOReliableBroadcastComp> tc = newContext();
+        Component comp = tc.getComponentUnderTest();
+        Positive<FIFOReliableBroadcast> frb = comp.getPositive(FIFOReliableBroadcast.class);
+        Negative<ReliableBroadcast> rb = comp.getNegative(ReliableBroadcast.class);
+
+        for (long sn = 40; sn > 1; sn--) {
+            receive(tc, rb, b, sn);
+        }
+        receive(tc, rb, b, 1);
+        expectDelivered(tc, frb, b, 1, 40);
+        for (long sn = 1; sn < 15; sn++) {
+            receive(tc, rb, c, sn);
+            expectDelivered(tc, frb, c, sn, sn);
+        }
+        receive(tc, rb, c, 17, 30, 50);
+        for (long sn = 49; sn > 15; sn--) {
+            if (sn != 17 && sn != 30) {
+                receive(tc, rb, c, sn);
+            }
+        }
+        receive(tc, rb, c, 15);
+        expectDelivered(tc, frb, c, 15, 50);
+        receive(tc, rb, c, 51);
+        expectDelivered(tc, frb, c, 51, 51);
+
+        assertTrue(tc.check());
+    }
+
+    private TestContext<SequenceNumberFIFOReliableBroadcastComp> newContext() {
+        return TestContext.newInstance(SequenceNumberFIFOReliableBroadcastComp.class, new SequenceNumberFIFOReliableBroadcastComp.Init(self, all));
+    }
+
+    /**
+     * rb-delivers the DATA of src numbered sns, in that order; message sn carries HeartBeat sn.
+     */
+    private static void receive(TestContext<SequenceNumberFIFOReliableBroadcastComp> tc, Negative<ReliableBroadcast> rb, NetAddress src, long... sns) {
+        for (long sn : sns) {
+            tc.body().trigger(new BroadcastDeliver(new FIFOReliableBroadcastMessage(src, new HeartBeat(sn), sn), src), rb);
+        }
+    }
+
+    /**
+     * Expects the messages of src numbered from to to, in order.
+     */
+    private static void expectDelivered(TestContext<SequenceNumberFIFOReliableBroadcastComp> tc, Positive<FIFOReliableBroadcast> frb, NetAddress src, long from, long to) {
+        for (long sn = from; sn <= to; sn++) {
+            long epoch = sn;
+            tc.body().expect(BroadcastDeliver.class, (BroadcastDeliver d) -> isHeartBeat(d, src, epoch), frb, Direction.OUT);
+        }
+    }
+
+    private boolean isData(Broadcast bc, long sn, long epoch) {
+        if (!bc.src.equals(self) || !bc.nodes.equals(all) || !(bc.payload instanceof FIFOReliableBroadcastMessage)) {
+            return false;
+        }
+        FIFOReliableBroadcastMessage m = (FIFOReliableBroadcastMessage) bc.payload;
+        return m.src.equals(self) && m.sn == sn && m.payload instanceof HeartBeat && ((HeartBeat) m.payload).epoch == epoch;
+    }
+
+    private static boolean isHeartBeat(BroadcastDeliver d, NetAddress src, long epoch) {
+        return d.src.equals(src) && d.payload instanceof HeartBeat && ((HeartBeat) d.payload).epoch == epoch;
+    }
+}
@@ -0,0 +1,113 @@
+package scyuan.irsdp.broadcast;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.Crash;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.failuredetector.PerfectFailureDetector;
+import scyuan.irsdp.link.Deliver;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.PerfectPointToPointLink;
+import scyuan.irsdp.link.Send;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TreeBroadcastCompTest {
+
+    private final List<NetAddress> members = new ArrayList<>();
+    private final Set<NetAddress> all;
+    private final NetAddress self;
+
+    public TreeBroadcastCompTest() {
+        for (int i = 0; i < 5; i++) {
+            members.add(new NetAddress(InetAddress.getLoopbackAddress(), 12346 + i));
+        }
+        all = new HashSet<>(members);
+        self = members.get(0);
+    }
+
+    /**
+     * With 5 members and k = 2 the root sends to positions 1 and 3 only. As a relay at position 1 of
+     * the tree of member 4, self covers positions 2 to 4 and acks once both of its children have.
+     */
+    @Test
+    public void fanOutTest() {
+        TestContext<TreeBroadcastComp> tc = TestContext.newInstance(TreeBroadcastComp.class, new TreeBroadcastComp.Init(self, all, 2));
+        Component comp = tc.getComponentUnderTest();
+        Positive<BestEffortBroadcast> beb = comp.getPositive(BestEffortBroadcast.class);
+        Negative<PerfectPointToPointLink> pl = comp.getNegative(PerfectPointToPointLink.class);
+        NetAddress root = members.get(4);
+
+        tc.body()
+                .trigger(new Broadcast(new HeartBeat(1), all, self), beb)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> d.src.equals(self), beb, Direction.OUT)
+                .expect(Send.class, (Send s) -> isTree(s, members.get(1), self, 0, 1, 3), pl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isTree(s, members.get(3), self, 0, 3, 5), pl, Direction.OUT)
+                .trigger(new Deliver(root, new TreeMessage(root, 0, new HeartBeat(2), 1, 5)), pl)
+                .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> d.src.equals(root), beb, Direction.OUT)
+                .expect(Send.class, (Send s) -> isTree(s, members.get(1), root, 0, 2, 4), pl, Direction.OUT)
+                .expect(Send.class, (Send s) -> isTree(s, members.get(3), root, 0, 4, 5), pl, Direction.OUT)
+                .trigger(new Deliver(members.get(1), new TreeAck(root, 0, 4)), pl)
+                .trigger(new Deliver(members.get(3), new TreeAck(root, 0, 5)), pl)
+                .expect(Send.class, (Send s) -> isAck(s, root, root, 0, 5), pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Every message still unacked by the crashed relay at position 1 is handed to position 2, while
+     * the acked subtree at position 3 is left alone.
+     */
+    @Test
+    public void relayCrashRepairTest() {
+        TestContext<TreeBroadcastComp> tc = TestContext.newInstance(TreeBroadcastComp.class, new TreeBroadcastComp.Init(self, all, 2));
+        Component comp = tc.getComponentUnderTest();
+        Positive<BestEffortBroadcast> beb = comp.getPositive(BestEffortBroadcast.class);
+        Negative<PerfectPointToPointLink> pl = comp.getNegative(PerfectPointToPointLink.class);
+        Negative<PerfectFailureDetector> pfd = comp.getNegative(PerfectFailureDetector.class);
+
+        int messages = 3;
+        for (int i = 0; i < messages; i++) {
+            long sn = i;
+            tc.body()
+                    .trigger(new Broadcast(new HeartBeat(i), all, self), beb)
+                    .expect(BroadcastDeliver.class, (BroadcastDeliver d) -> d.src.equals(self), beb, Direction.OUT)
+                    .expect(Send.class, (Send s) -> isTree(s, members.get(1), self, sn, 1, 3), pl, Direction.OUT)
+                    .expect(Send.class, (Send s) -> isTree(s, members.get(3), self, sn, 3, 5), pl, Direction.OUT)
+                    .trigger(new Deliver(members.get(3), new TreeAck(self, sn, 5)), pl);
+        }
+        tc.body().trigger(new Crash(members.get(1)), pfd);
+        for (int i = 0; i < messages; i++) {
+            long sn = i;
+            tc.body().expect(Send.class, (Send s) -> isTree(s, members.get(2), self, sn, 2, 3), pl, Direction.OUT);
+        }
+
+        assertTrue(tc.check());
+    }
+
+    private static boolean isTree(Send s, NetAddress dest, NetAddress root, long sn, int from, int to) {
+        if (!s.dest.equals(dest) || !(s.payload instanceof TreeMessage)) {
+            return false;
+        }
+        TreeMessage m = (TreeMessage) s.payload;
+        return m.root.equals(root) && m.sn == sn && m.from == from && m.to == to;
+    }
+
+    private static boolean isAck(Send s, NetAddress dest, NetAddress root, long sn, int to) {
+        if (!s.dest.equals(dest) || !(s.payload instanceof TreeAck)) {
+            return false;
+        }
+        TreeAck ack = (TreeAck) s.payload;
+        return ack.root.equals(root) && ack.sn == sn && ack.to == to;
+    }
+}
@@ -0,0 +1,157 @@
+package scyuan.irsdp.broadcast;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.LocalNetwork;
+import scyuan.irsdp.link.LocalNetworkComp;
+import scyuan.irsdp.link.NetAddress;
+import scyuan.irsdp.link.PerfectPointToPointLink;
+import scyuan.irsdp.link.PerfectPointToPointLinkComp;
+import scyuan.irsdp.serialization.IrsdpSerializers;
+import se.sics.kompics.*;
+import se.sics.kompics.network.Network;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class WaitingCausalUniformReliableBroadcastCompTest {
+
+    private static final int NODES = 5;
+    private static final int MESSAGES = 2000;
+
+    /**
+     * Every node causally broadcasts MESSAGES messages to all; the run ends once every node delivered all of them.
+     * The uniform stack runs over Majority-Ack URB, the plain one over Eager RB, both on serialized local links.
+     */
+    @Test
+    public void throughputAgainstWaitingCausalBroadcast() throws InterruptedException {
+        IrsdpSerializers.register();
+
+        long rbNanos = run(false);
+        long urbNanos = run(true);
+
+        long total = (long) NODES * MESSAGES;
+        log.info("{} nodes: causal over rb {} msg/s, causal over urb {} msg/s", NODES,
+                total * TimeUnit.SECONDS.toNanos(1) / rbNanos, total * TimeUnit.SECONDS.toNanos(1) / urbNanos);
+    }
+
+    private static long run(boolean uniform) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(NODES);
+        try (LocalNetwork network = new LocalNetwork().withSerialization()) {
+            long start = System.nanoTime();
+            Kompics.createAndStart(Cluster.class, new Cluster.Init(network, uniform, done), 4);
+            try {
+                assertTrue(done.await(60, TimeUnit.SECONDS));
+                return System.nanoTime() - start;
+            } finally {
+                Kompics.shutdown();
+            }
+        }
+    }
+
+    public static class Cluster extends ComponentDefinition {
+
+        public Cluster(Init init) {
+            Set<NetAddress> all = new HashSet<>();
+            for (int i = 0; i < NODES; i++) {
+                all.add(new NetAddress(InetAddress.getLoopbackAddress(), 20000 + i));
+            }
+            Class<? extends PortType> port = init.uniform ? CausalOrderUniformReliableBroadcast.class : CausalOrderReliableBroadcast.class;
+
+            for (NetAddress self : all) {
+                Component net = create(LocalNetworkComp.class, new LocalNetworkComp.Init(self, init.network));
+                Component pl = create(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(self));
+                Component beb = create(BasicBroadcastComp.class, se.sics.kompics.Init.NONE);
+                Component driver = create(Driver.class, new Driver.Init(self, all, port, init.done));
+                connect(pl.getNegative(Network.class), net.getPositive(Network.class));
+                connect(beb.getNegative(PerfectPointToPointLink.class), pl.getPositive(PerfectPointToPointLink.class));
+
+                if (init.uniform) {
+                    Component urb = create(MajorityAckUniformReliableBroadcastComp.class, new MajorityAckUniformReliableBroadcastComp.Init(self));
+                    Component curb = create(WaitingCausalUniformReliableBroadcastComp.class, new WaitingCausalUniformReliableBroadcastComp.Init(self, all));
+                    connect(urb.getNegative(BestEffortBroadcast.class), beb.getPositive(BestEffortBroadcast.class));
+                    connect(curb.getNegative(UniformReliableBroadcast.class), urb.getPositive(UniformReliableBroadcast.class));
+                    connect(driver.getNegative(CausalOrderUniformReliableBroadcast.class), curb.getPositive(CausalOrderUniformReliableBroadcast.class));
+                } else {
+                    Component rb = create(EagerReliableBroadcastComp.class, new EagerReliableBroadcastComp.Init(self));
+                    Component crb = create(WaitingCausalBroadcastComp.class, new WaitingCausalBroadcastComp.Init(self, all));
+                    connect(rb.getNegative(BestEffortBroadcast.class), beb.getPositive(BestEffortBroadcast.class));
+                    connect(crb.getNegative(ReliableBroadcast.class), rb.getPositive(ReliableBroadcast.class));
+                    connect(driver.getNegative(CausalOrderReliableBroadcast.class), crb.getPositive(CausalOrderReliableBroadcast.class));
+                }
+            }
+        }
+
+        public static class Init extends se.sics.kompics.Init<Cluster> {
+            private final LocalNetwork network;
+            private final boolean uniform;
+            private final CountDownLatch done;
+
+            public Init(LocalNetwork network, boolean uniform, CountDownLatch done) {
+                this.network = network;
+                this.uniform = uniform;
+                this.done = done;
+            }
+        }
+    }
+
+    public static class Driver extends ComponentDefinition {
+        private final Positive<? extends PortType> crb;
+
+        private final NetAddress self;
+        private final Set<NetAddress> all;
+        private final CountDownLatch done;
+        private long delivered;
+
+        public Driver(Init init) {
+            this.crb = requires(init.port);
+            this.self = init.self;
+            this.all = init.all;
+            this.done = init.done;
+            this.delivered = 0;
+
+            subscribe(startHandler, control);
+            subscribe(deliverHandler, crb);
+        }
+
+        private final Handler<Start> startHandler = new Handler<Start>() {
+            @Override
+            public void handle(Start event) {
+                for (int i = 0; i < MESSAGES; i++) {
+                    trigger(new Broadcast(new HeartBeat(i), all, self), crb);
+                }
+            }
+        };
+
+        private final Handler<BroadcastDeliver> deliverHandler = new Handler<BroadcastDeliver>() {
+            @Override
+            public void handle(BroadcastDeliver event) {
+                delivered += 1;
+                if (delivered == (long) NODES * MESSAGES) {
+                    done.countDown();
+                }
+            }
+        };
+
+        public static class Init extends se.sics.kompics.Init<Driver> {
+            private final NetAddress self;
+            private final Set<NetAddress> all;
+            private final Class<? extends PortType> port;
+            private final CountDownLatch done;
+
+            public Init(NetAddress self, Set<NetAddress> all, Class<? extends PortType> port, CountDownLatch done) {
+                this.self = self;
+                this.all = all;
+                this.port = port;
+                this.done = done;
+            }
+        }
+    }
+}
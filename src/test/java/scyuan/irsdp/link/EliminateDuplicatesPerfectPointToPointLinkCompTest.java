@@ -0,0 +1,121 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+import se.sics.kompics.Component;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+public class EliminateDuplicatesPerfectPointToPointLinkCompTest {
+
+    private static final long EPOCH = 5;
+    private static final long PEER_EPOCH = 7;
+
+    private final NetAddress peer = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress other = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+
+    @Test
+    public void numberPerDestinationTest() {
+        TestContext<EliminateDuplicatesPerfectPointToPointLinkComp> tc = newContext(64);
+        Component comp = tc.getComponentUnderTest();
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+        TestEvent third = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(peer, first), pl)
+                .expect(Send.class, (Send s) -> isSequenced(s, peer, 0, first), sl, Direction.OUT)
+                .trigger(new Send(peer, second), pl)
+                .expect(Send.class, (Send s) -> isSequenced(s, peer, 1, second), sl, Direction.OUT)
+                .trigger(new Send(other, third), pl)
+                .expect(Send.class, (Send s) -> isSequenced(s, other, 0, third), sl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Repeats are delivered once, messages of an older incarnation of the sender are dropped, and a
+     * newer incarnation starts its numbering afresh.
+     */
+    @Test
+    public void duplicateAndEpochTest() {
+        TestContext<EliminateDuplicatesPerfectPointToPointLinkComp> tc = newContext(64);
+        Component comp = tc.getComponentUnderTest();
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+        TestEvent restarted = new TestEvent();
+
+        tc.body()
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 0, first)), sl)
+                .expect(Deliver.class, (Deliver d) -> isDeliver(d, first), pl, Direction.OUT)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 0, first)), sl)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH - 1, 1, new TestEvent())), sl)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 1, second)), sl)
+                .expect(Deliver.class, (Deliver d) -> isDeliver(d, second), pl, Direction.OUT)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 1, second)), sl)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH + 1, 0, restarted)), sl)
+                .expect(Deliver.class, (Deliver d) -> isDeliver(d, restarted), pl, Direction.OUT)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 2, new TestEvent())), sl)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH + 1, 0, restarted)), sl);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A message that was lost and comes back after every later one of the window is still delivered,
+     * exactly once. The stubborn link never lets a message run duplicateWindow past a hole.
+     */
+    @Test
+    public void gapTest() {
+        int duplicateWindow = 64;
+        TestContext<EliminateDuplicatesPerfectPointToPointLinkComp> tc = newContext(duplicateWindow);
+        Component comp = tc.getComponentUnderTest();
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+        Negative<StubbornPointToPointLink> sl = comp.getNegative(StubbornPointToPointLink.class);
+        TestEvent lost = new TestEvent();
+
+        for (int sn = 1; sn < duplicateWindow; sn++) {
+            TestEvent event = new TestEvent();
+            tc.body()
+                    .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, sn, event)), sl)
+                    .expect(Deliver.class, (Deliver d) -> isDeliver(d, event), pl, Direction.OUT)
+                    .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, sn, event)), sl);
+        }
+        TestEvent next = new TestEvent();
+        tc.body()
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 0, lost)), sl)
+                .expect(Deliver.class, (Deliver d) -> isDeliver(d, lost), pl, Direction.OUT)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, 0, lost)), sl)
+                .trigger(new Deliver(peer, new Sequenced(PEER_EPOCH, duplicateWindow, next)), sl)
+                .expect(Deliver.class, (Deliver d) -> isDeliver(d, next), pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private static TestContext<EliminateDuplicatesPerfectPointToPointLinkComp> newContext(int duplicateWindow) {
+        return TestContext.newInstance(EliminateDuplicatesPerfectPointToPointLinkComp.class,
+                new EliminateDuplicatesPerfectPointToPointLinkComp.Init().withEpoch(EPOCH).withDuplicateWindow(duplicateWindow));
+    }
+
+    private static boolean isSequenced(Send s, NetAddress dest, long sn, KompicsEvent payload) {
+        if (!s.dest.equals(dest) || !(s.payload instanceof Sequenced)) {
+            return false;
+        }
+        Sequenced sequenced = (Sequenced) s.payload;
+        return sequenced.epoch == EPOCH && sequenced.sn == sn && sequenced.payload == payload;
+    }
+
+    private boolean isDeliver(Deliver d, KompicsEvent payload) {
+        return d.src.equals(peer) && d.payload == payload;
+    }
+}
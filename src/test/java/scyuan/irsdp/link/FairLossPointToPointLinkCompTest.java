@@ -0,0 +1,58 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+import se.sics.kompics.Component;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+public class FairLossPointToPointLinkCompTest {
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress peer = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+    @Test
+    public void sendOverUdpTest() {
+        TestContext<FairLossPointToPointLinkComp> tc = TestContext.newInstance(FairLossPointToPointLinkComp.class, new FairLossPointToPointLinkComp.Init(self));
+        Component comp = tc.getComponentUnderTest();
+        Positive<FairLossPointToPointLink> fll = comp.getPositive(FairLossPointToPointLink.class);
+        Negative<Network> net = comp.getNegative(Network.class);
+        TestEvent event = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(peer, event), fll)
+                .expect(Message.class, (Message m) -> m.getSource().equals(self) && m.getDestination().equals(peer)
+                        && m.getProtocol() == Transport.UDP && m.payload instanceof Datagram
+                        && ((Datagram) m.payload).payload == event, net, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Every Datagram is delivered as it arrives, duplicates included.
+     */
+    @Test
+    public void deliverEveryDatagramTest() {
+        TestContext<FairLossPointToPointLinkComp> tc = TestContext.newInstance(FairLossPointToPointLinkComp.class, new FairLossPointToPointLinkComp.Init(self));
+        Component comp = tc.getComponentUnderTest();
+        Positive<FairLossPointToPointLink> fll = comp.getPositive(FairLossPointToPointLink.class);
+        Negative<Network> net = comp.getNegative(Network.class);
+        TestEvent event = new TestEvent();
+        Message message = new Message(peer, self, Transport.UDP, new Datagram(event));
+
+        tc.body()
+                .trigger(message, net)
+                .expect(Deliver.class, (Deliver d) -> d.src.equals(peer) && d.payload == event, fll, Direction.OUT)
+                .trigger(message, net)
+                .expect(Deliver.class, (Deliver d) -> d.src.equals(peer) && d.payload == event, fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+}
@@ -0,0 +1,30 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void test() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500, histogram.quantile(0.5), 500 * 0.04);
+        assertEquals(990, histogram.quantile(0.99), 990 * 0.04);
+        assertEquals(1000, histogram.max(), 1000 * 0.04);
+    }
+
+    @Test
+    public void bucketTest() {
+        for (long v = 0; v < 1 << 20; v += 7) {
+            long lower = LatencyHistogram.lowerBound(LatencyHistogram.index(v));
+            assertTrue(lower <= v);
+            assertTrue(v - lower <= Math.max(1, v / 32));
+        }
+    }
+}
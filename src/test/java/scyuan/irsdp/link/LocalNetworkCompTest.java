@@ -0,0 +1,163 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.serialization.IrsdpSerializers;
+import se.sics.kompics.Component;
+import se.sics.kompics.Positive;
+import se.sics.kompics.network.Msg;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LocalNetworkCompTest {
+
+    private static final int MESSAGES = 1000;
+
+    private final NetAddress a = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress b = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+    private final NetAddress c = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+
+    @Test
+    public void test() {
+        NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+
+        try (LocalNetwork network = new LocalNetwork()) {
+            TestContext<LocalNetworkComp> tc = TestContext.newInstance(LocalNetworkComp.class, new LocalNetworkComp.Init(self, network));
+            Component comp = tc.getComponentUnderTest();
+            Positive<Network> net = comp.getPositive(Network.class);
+
+            TestEvent event = new TestEvent();
+            Message message = new Message(self, self, new Deliver(self, event));
+
+            tc.body()
+                    .trigger(message, net)
+                    .expect(Message.class, (Message m) -> m == message, net, Direction.OUT);
+
+            assertTrue(tc.check());
+        }
+    }
+
+    @Test
+    public void latencyTest() throws InterruptedException {
+        try (LocalNetwork network = new LocalNetwork().withLatency(50)) {
+            BlockingQueue<Msg<?, ?>> atB = register(network, b);
+            register(network, c);
+
+            long start = System.nanoTime();
+            network.route(message(a, b, Transport.TCP, 1));
+            network.route(message(a, c, Transport.TCP, 2));
+            Msg<?, ?> received = atB.poll(5, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(1, epoch(received));
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    /**
+     * The same seed drops the same UDP messages of a link in two runs, whatever the other links do,
+     * and never drops TCP.
+     */
+    @Test
+    public void seededUdpDropTest() {
+        List<Long> first = udpArrivals(true);
+        List<Long> second = udpArrivals(false);
+
+        assertTrue(first.size() > MESSAGES / 4 && first.size() < MESSAGES * 3 / 4);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void serializationTest() throws InterruptedException {
+        IrsdpSerializers.register();
+        try (LocalNetwork network = new LocalNetwork().withSerialization()) {
+            BlockingQueue<Msg<?, ?>> atB = register(network, b);
+            Message sent = message(a, b, Transport.TCP, 7);
+            network.route(sent);
+
+            Message received = (Message) atB.poll(5, TimeUnit.SECONDS);
+            assertNotSame(sent, received);
+            assertNotSame(sent.payload, received.payload);
+            assertEquals(a, received.getSource());
+            assertEquals(b, received.getDestination());
+            assertEquals(7, epoch(received));
+        }
+    }
+
+    /**
+     * Messages routed back to back get the same delay and must still arrive in sending order.
+     */
+    @Test
+    public void fifoPerLinkTest() throws InterruptedException {
+        int messages = 2000;
+        try (LocalNetwork network = new LocalNetwork().withLatency(1)) {
+            BlockingQueue<Msg<?, ?>> atB = register(network, b);
+            for (int i = 0; i < messages; i++) {
+                network.route(message(a, b, Transport.TCP, i));
+                network.route(message(c, b, Transport.TCP, i));
+            }
+
+            long nextFromA = 0;
+            long nextFromC = 0;
+            for (int i = 0; i < 2 * messages; i++) {
+                Msg<?, ?> m = atB.poll(5, TimeUnit.SECONDS);
+                assertNotNull(m);
+                if (m.getSource().equals(a)) {
+                    assertEquals(nextFromA++, epoch(m));
+                } else {
+                    assertEquals(nextFromC++, epoch(m));
+                }
+            }
+        }
+    }
+
+    private List<Long> udpArrivals(boolean crossTraffic) {
+        List<Long> arrived = new ArrayList<>();
+        try (LocalNetwork network = new LocalNetwork().withDropRate(0.5, 42)) {
+            BlockingQueue<Msg<?, ?>> atB = register(network, b);
+            register(network, c);
+            for (int i = 0; i < MESSAGES; i++) {
+                network.route(message(a, b, Transport.UDP, i));
+                if (crossTraffic) {
+                    network.route(message(a, c, Transport.UDP, i));
+                }
+                network.route(message(c, b, Transport.TCP, i));
+            }
+            int tcp = 0;
+            for (Msg<?, ?> m; (m = atB.poll()) != null; ) {
+                if (m.getProtocol() == Transport.UDP) {
+                    arrived.add(epoch(m));
+                } else {
+                    tcp++;
+                }
+            }
+            assertEquals(MESSAGES, tcp);
+        }
+        return arrived;
+    }
+
+    private static BlockingQueue<Msg<?, ?>> register(LocalNetwork network, NetAddress node) {
+        BlockingQueue<Msg<?, ?>> received = new LinkedBlockingQueue<>();
+        network.register(node, received::add);
+        return received;
+    }
+
+    private static Message message(NetAddress src, NetAddress dst, Transport protocol, long epoch) {
+        return new Message(src, dst, protocol, new Deliver(src, new HeartBeat(epoch)));
+    }
+
+    private static long epoch(Msg<?, ?> m) {
+        return ((HeartBeat) ((Deliver) ((Message) m).payload).payload).epoch;
+    }
+}
@@ -1,14 +1,23 @@
 package scyuan.irsdp.link;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.Test;
 import se.sics.kompics.Component;
+import se.sics.kompics.KompicsEvent;
 import se.sics.kompics.Negative;
 import se.sics.kompics.Positive;
 import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializers;
 import se.sics.kompics.testing.Direction;
 import se.sics.kompics.testing.TestContext;
 
+import scyuan.irsdp.serialization.IrsdpSerializers;
+
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -19,7 +28,7 @@ public class PerfectPointToPointLinkCompTest {
         NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
         NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
 
-        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src));
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withEncodable(() -> false));
         Component comp = tc.getComponentUnderTest();
         Negative<Network> net = comp.getNegative(Network.class);
         Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
@@ -35,9 +44,335 @@ public class PerfectPointToPointLinkCompTest {
 
     }
 
+    @Test
+    public void loopbackTest() {
+        NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(self));
+        Component comp = tc.getComponentUnderTest();
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent event = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(self, event), pl)
+                .expect(Deliver.class, (Deliver d) -> d.payload == event && d.src.equals(self), pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void batchTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withBatching(2, 1000));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(dst, first), pl)
+                .trigger(new Send(dst, second), pl)
+                .expect(Message.class, (Message m) -> isValidBatch(m, first, second), net, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void flowControlTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withFlowControl(1, 1));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(dst, first), pl)
+                .expect(Message.class, (Message m) -> ((Deliver) m.payload).payload == first, net, Direction.OUT)
+                .trigger(new Send(dst, second), pl)
+                .expect(Congestion.class, (Congestion c) -> c.congested && c.dest.equals(dst), pl, Direction.OUT)
+                .trigger(new Message(dst, src, Transport.TCP, new Credit(), Lane.CONTROL, 1), net)
+                .expect(Message.class, (Message m) -> ((Deliver) m.payload).payload == second, net, Direction.OUT)
+                .expect(Congestion.class, (Congestion c) -> !c.congested && c.dest.equals(dst), pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A CONTROL send neither waits in the batch nor for credits: it goes out while DATA is stuck in
+     * both, and the DATA follows in its own order once credits arrive.
+     */
+    @Test
+    public void controlLaneTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withBatching(2, 1000).withFlowControl(1, 1));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent[] data = new TestEvent[5];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new TestEvent();
+        }
+        TestEvent heartbeat = new TestEvent();
+
+        tc.body()
+                .trigger(new Send(dst, data[0]), pl)
+                .trigger(new Send(dst, data[1]), pl)
+                .expect(Message.class, (Message m) -> isValidBatch(m, data[0], data[1]), net, Direction.OUT)
+                .trigger(new Send(dst, data[2]), pl)
+                .trigger(new Send(dst, data[3]), pl)
+                .expect(Congestion.class, (Congestion c) -> c.congested, pl, Direction.OUT)
+                .trigger(new Send(dst, data[4]), pl)
+                .trigger(new Send(dst, heartbeat, Lane.CONTROL), pl)
+                .expect(Message.class, (Message m) -> m.lane == Lane.CONTROL && ((Deliver) m.payload).payload == heartbeat, net, Direction.OUT)
+                .trigger(new Message(dst, src, Transport.TCP, new Credit(), Lane.CONTROL, 1), net)
+                .expect(Message.class, (Message m) -> m.lane == Lane.DATA && isValidBatch(m, data[2], data[3]), net, Direction.OUT)
+                .expect(Congestion.class, (Congestion c) -> !c.congested, pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Once queueLimit sends wait for credits, the queue stops growing and further sends come back
+     * as Rejected until a credit drains it.
+     */
+    @Test
+    public void queueLimitTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withFlowControl(1, 2, 3));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent[] events = new TestEvent[7];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new TestEvent();
+        }
+
+        tc.body()
+                .trigger(new Send(dst, events[0]), pl)
+                .expect(Message.class, (Message m) -> ((Deliver) m.payload).payload == events[0], net, Direction.OUT)
+                .trigger(new Send(dst, events[1]), pl)
+                .trigger(new Send(dst, events[2]), pl)
+                .expect(Congestion.class, (Congestion c) -> c.congested && c.dest.equals(dst), pl, Direction.OUT)
+                .trigger(new Send(dst, events[3]), pl)
+                .trigger(new Send(dst, events[4]), pl)
+                .expect(Rejected.class, (Rejected r) -> r.payload == events[4] && r.dest.equals(dst), pl, Direction.OUT)
+                .trigger(new Send(dst, events[5]), pl)
+                .expect(Rejected.class, (Rejected r) -> r.payload == events[5], pl, Direction.OUT)
+                .trigger(new Message(dst, src, Transport.TCP, new Credit(), Lane.CONTROL, 1), net)
+                .expect(Message.class, (Message m) -> ((Deliver) m.payload).payload == events[1], net, Direction.OUT)
+                .trigger(new Send(dst, events[6]), pl);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void fragmentTest() {
+        IrsdpSerializers.register();
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(dst).withFragmentation(16));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(new Deliver(src, new TestEvent()), buf);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        int half = bytes.length / 2;
+        Fragment head = new Fragment(0, 0, 2, bytes.length, Arrays.copyOfRange(bytes, 0, half));
+        Fragment tail = new Fragment(0, 1, 2, bytes.length, Arrays.copyOfRange(bytes, half, bytes.length));
+
+        tc.body()
+                .trigger(new Message(src, dst, head), net)
+                .trigger(new Message(src, dst, tail), net)
+                .expect(Deliver.class, (Deliver d) -> d.payload instanceof TestEvent && d.src.equals(src), pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A new first fragment discards the envelope being reassembled, and a fragment of no envelope
+     * in progress is dropped; both count as dropped fragments, and the next whole envelope is delivered.
+     */
+    @Test
+    public void fragmentDropTest() {
+        IrsdpSerializers.register();
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        try {
+            TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(dst).withFragmentation(16).withMetrics());
+            Component comp = tc.getComponentUnderTest();
+            Negative<Network> net = comp.getNegative(Network.class);
+            Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+            ByteBuf buf = Unpooled.buffer();
+            Serializers.toBinary(new Deliver(src, new TestEvent()), buf);
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            int half = bytes.length / 2;
+            byte[] head = Arrays.copyOfRange(bytes, 0, half);
+            byte[] tail = Arrays.copyOfRange(bytes, half, bytes.length);
+
+            tc.body()
+                    .trigger(new Message(src, dst, new Fragment(0, 0, 2, bytes.length, head)), net)
+                    .trigger(new Message(src, dst, new Fragment(1, 0, 2, bytes.length, head)), net)
+                    .trigger(new Message(src, dst, new Fragment(0, 1, 2, bytes.length, tail)), net)
+                    .trigger(new Message(src, dst, new Fragment(1, 1, 2, bytes.length, tail)), net)
+                    .expect(Deliver.class, (Deliver d) -> d.payload instanceof TestEvent && d.src.equals(src), pl, Direction.OUT);
+
+            assertTrue(tc.check());
+            LinkMetrics.PeerStats stats = LinkMetrics.of(dst).getPeers().get(0);
+            assertEquals(src.toString(), stats.getPeer());
+            assertEquals(2, stats.getFragmentsDropped());
+        } finally {
+            LinkMetrics.unregister(dst);
+        }
+    }
+
+    @Test
+    public void fragmentOrderTest() {
+        IrsdpSerializers.register();
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src).withFragmentation(16));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        DeliverBatch large = new DeliverBatch(src, Arrays.asList(new TestEvent(), new TestEvent(), new TestEvent()));
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(new Deliver(src, large), buf);
+        int count = (buf.readableBytes() + 15) / 16;
+        assertTrue(count > 1);
+
+        tc.body()
+                .trigger(new Send(dst, large), pl)
+                .trigger(new Send(dst, new TestEvent()), pl);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tc.expect(Message.class, (Message m) -> isFragment(m, 0, index, count), net, Direction.OUT);
+        }
+        tc.expect(Message.class, (Message m) -> isFragment(m, 1, 0, 1), net, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void sendAllTest() {
+        IrsdpSerializers.register();
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress first = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+        NetAddress second = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        AtomicReference<KompicsEvent> shared = new AtomicReference<>();
+
+        tc.body()
+                .trigger(new SendAll(Arrays.asList(first, second), new TestEvent()), pl)
+                .expect(Message.class, (Message m) -> m.payload instanceof Encoded && shared.compareAndSet(null, m.payload), net, Direction.OUT)
+                .expect(Message.class, (Message m) -> m.payload == shared.get(), net, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    @Test
+    public void restartTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress dst = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(dst));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent before = new TestEvent();
+        TestEvent after = new TestEvent();
+        TestEvent stale = new TestEvent();
+        TestEvent next = new TestEvent();
+
+        tc.body()
+                .trigger(new Message(src, dst, Transport.TCP, new Deliver(src, before), Lane.DATA, 0, 1, 0), net)
+                .expect(Deliver.class, (Deliver d) -> d.payload == before, pl, Direction.OUT)
+                .trigger(new Message(src, dst, Transport.TCP, new Deliver(src, after), Lane.DATA, 0, 2, 0), net)
+                .expect(Deliver.class, (Deliver d) -> d.payload == after, pl, Direction.OUT)
+                .trigger(new Message(src, dst, Transport.TCP, new Deliver(src, stale), Lane.DATA, 0, 1, 1), net)
+                .trigger(new Message(src, dst, Transport.TCP, new Deliver(src, next), Lane.DATA, 0, 2, 1), net)
+                .expect(Deliver.class, (Deliver d) -> d.payload == next, pl, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Without the LinkSerializer, whatever other tests have registered, a SendAll goes out as one plain
+     * Deliver per destination.
+     */
+    @Test
+    public void sendAllWithoutRegistrationTest() {
+        NetAddress src = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+        NetAddress first = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+        NetAddress second = new NetAddress(InetAddress.getLoopbackAddress(), 12348);
+
+        TestContext<PerfectPointToPointLinkComp> tc = TestContext.newInstance(PerfectPointToPointLinkComp.class, new PerfectPointToPointLinkComp.Init(src));
+        Component comp = tc.getComponentUnderTest();
+        Negative<Network> net = comp.getNegative(Network.class);
+        Positive<PerfectPointToPointLink> pl = comp.getPositive(PerfectPointToPointLink.class);
+
+        TestEvent event = new TestEvent();
+
+        tc.body()
+                .trigger(new SendAll(Arrays.asList(first, second), event), pl)
+                .expect(Message.class, (Message m) -> isPlain(m, first, event), net, Direction.OUT)
+                .expect(Message.class, (Message m) -> isPlain(m, second, event), net, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private boolean isValidBatch(Message m, TestEvent first, TestEvent second) {
+        if (!(m.payload instanceof DeliverBatch)) {
+            return false;
+        }
+        DeliverBatch batch = (DeliverBatch) m.payload;
+        return batch.payloads.size() == 2 && batch.payloads.get(0) == first && batch.payloads.get(1) == second;
+    }
+
+    private boolean isFragment(Message m, long id, int index, int count) {
+        if (!(m.payload instanceof Fragment)) {
+            return false;
+        }
+        Fragment f = (Fragment) m.payload;
+        return f.id == id && f.index == index && f.count == count;
+    }
+
     private boolean isValid(Message m, NetAddress src, NetAddress dst) {
         boolean isDeliver = m.payload instanceof Deliver;
         return (isDeliver && m.header.src.equals(src) && m.header.dst.equals(dst));
     }
 
-}
\ No newline at end of file
+    private boolean isPlain(Message m, NetAddress dst, KompicsEvent payload) {
+        return m.getDestination().equals(dst) && m.payload instanceof Deliver && ((Deliver) m.payload).payload == payload;
+    }
+}
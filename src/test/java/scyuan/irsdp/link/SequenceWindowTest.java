@@ -0,0 +1,42 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SequenceWindowTest {
+
+    @Test
+    public void test() {
+        SequenceWindow window = new SequenceWindow();
+
+        assertTrue(window.add(0));
+        assertFalse(window.add(0));
+        assertTrue(window.add(2));
+        assertTrue(window.add(500));
+        assertFalse(window.add(2));
+        assertEquals(1, window.next());
+
+        assertTrue(window.add(1));
+        assertEquals(3, window.next());
+        assertTrue(window.contains(500));
+        assertFalse(window.contains(499));
+
+        for (long seq = 3; seq < 500; seq++) {
+            assertTrue(window.add(seq));
+        }
+        assertEquals(501, window.next());
+    }
+
+    @Test
+    public void limitTest() {
+        SequenceWindow window = new SequenceWindow(64);
+
+        assertTrue(window.add(1));
+        assertTrue(window.add(100));
+        assertEquals(37, window.next());
+        assertFalse(window.add(0));
+        assertTrue(window.add(37));
+        assertEquals(38, window.next());
+    }
+}
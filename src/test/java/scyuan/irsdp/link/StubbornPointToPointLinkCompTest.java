@@ -0,0 +1,209 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+import se.sics.kompics.Component;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.testing.Direction;
+import se.sics.kompics.testing.TestContext;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timer;
+
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+public class StubbornPointToPointLinkCompTest {
+
+    private static final long EPOCH = 5;
+    private static final long PEER_EPOCH = 7;
+
+    private final NetAddress self = new NetAddress(InetAddress.getLoopbackAddress(), 12346);
+    private final NetAddress peer = new NetAddress(InetAddress.getLoopbackAddress(), 12347);
+
+    /**
+     * A Frame goes out again on every retransmission tick until an Ack covers it, and never after.
+     */
+    @Test
+    public void retransmitUntilAckedTest() {
+        TestContext<StubbornPointToPointLinkComp> tc = newContext(new StubbornPointToPointLinkComp.Init(self).withEpoch(EPOCH).withRetransmission(10, 10, 8));
+        Component comp = tc.getComponentUnderTest();
+        Positive<StubbornPointToPointLink> sl = comp.getPositive(StubbornPointToPointLink.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Send(peer, first), sl)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 0, first), fll, Direction.OUT)
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 0, first), fll, Direction.OUT)
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 0, first), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 0)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 0, first), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 1)), fll)
+                .trigger(tick(), timer)
+                .trigger(tick(), timer)
+                .trigger(new Send(peer, second), sl)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 1, second), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * An Ack from a newer incarnation of the receiver renumbers every unacknowledged Frame from 0,
+     * in order, and an Ack of an older incarnation is ignored.
+     */
+    @Test
+    public void renumberOnNewerReceiverEpochTest() {
+        TestContext<StubbornPointToPointLinkComp> tc = newContext(new StubbornPointToPointLinkComp.Init(self).withEpoch(EPOCH));
+        Component comp = tc.getComponentUnderTest();
+        Positive<StubbornPointToPointLink> sl = comp.getPositive(StubbornPointToPointLink.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        TestEvent first = new TestEvent();
+        TestEvent second = new TestEvent();
+        TestEvent third = new TestEvent();
+        long restarted = PEER_EPOCH + 1;
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Send(peer, first), sl)
+                .trigger(new Send(peer, second), sl)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 0, first), fll, Direction.OUT)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 1, second), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 0)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 0, first), fll, Direction.OUT)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 1, second), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 1)), fll)
+                .trigger(new Deliver(peer, new Ack(restarted, EPOCH, 0)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, restarted, 0, second), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 5)), fll)
+                .trigger(new Send(peer, third), sl)
+                .expect(Send.class, (Send s) -> isFrame(s, restarted, 1, third), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Frames of an older sender incarnation, and Frames addressed to an older incarnation of self, are
+     * neither delivered nor counted.
+     */
+    @Test
+    public void staleEpochTest() {
+        TestContext<StubbornPointToPointLinkComp> tc = newContext(new StubbornPointToPointLinkComp.Init(self).withEpoch(EPOCH));
+        Component comp = tc.getComponentUnderTest();
+        Positive<StubbornPointToPointLink> sl = comp.getPositive(StubbornPointToPointLink.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        TestEvent first = new TestEvent();
+        TestEvent next = new TestEvent();
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Deliver(peer, new Frame(PEER_EPOCH, EPOCH, 0, first)), fll)
+                .expect(Deliver.class, (Deliver d) -> d.src.equals(peer) && d.payload == first, sl, Direction.OUT)
+                .trigger(new Deliver(peer, new Frame(PEER_EPOCH - 1, EPOCH, 1, new TestEvent())), fll)
+                .trigger(new Deliver(peer, new Frame(PEER_EPOCH, EPOCH - 1, 1, new TestEvent())), fll)
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isAck(s, PEER_EPOCH, 1), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Frame(PEER_EPOCH, EPOCH, 1, next)), fll)
+                .expect(Deliver.class, (Deliver d) -> d.src.equals(peer) && d.payload == next, sl, Direction.OUT)
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isAck(s, PEER_EPOCH, 2), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * A Frame reorderWindow or more past the lowest missing one is delivered, but stays unacknowledged
+     * so the sender resends it once the hole is filled.
+     */
+    @Test
+    public void beyondReorderWindowTest() {
+        int reorderWindow = 64;
+        TestContext<StubbornPointToPointLinkComp> tc = newContext(new StubbornPointToPointLinkComp.Init(self).withEpoch(EPOCH).withReorderWindow(reorderWindow));
+        Component comp = tc.getComponentUnderTest();
+        Positive<StubbornPointToPointLink> sl = comp.getPositive(StubbornPointToPointLink.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        TestEvent far = new TestEvent();
+
+        tc.body()
+                .expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT)
+                .trigger(new Deliver(peer, new Frame(PEER_EPOCH, EPOCH, reorderWindow, far)), fll)
+                .expect(Deliver.class, (Deliver d) -> d.payload == far, sl, Direction.OUT);
+        for (int seq = 0; seq < reorderWindow; seq++) {
+            TestEvent event = new TestEvent();
+            tc.body()
+                    .trigger(new Deliver(peer, new Frame(PEER_EPOCH, EPOCH, seq, event)), fll)
+                    .expect(Deliver.class, (Deliver d) -> d.payload == event, sl, Direction.OUT);
+        }
+        tc.body()
+                .trigger(tick(), timer)
+                .expect(Send.class, (Send s) -> isAck(s, PEER_EPOCH, reorderWindow), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    /**
+     * Sends past sendWindow unacknowledged Frames wait, and go out in order as Acks make room.
+     */
+    @Test
+    public void sendWindowTest() {
+        TestContext<StubbornPointToPointLinkComp> tc = newContext(new StubbornPointToPointLinkComp.Init(self).withEpoch(EPOCH).withSendWindow(2));
+        Component comp = tc.getComponentUnderTest();
+        Positive<StubbornPointToPointLink> sl = comp.getPositive(StubbornPointToPointLink.class);
+        Negative<FairLossPointToPointLink> fll = comp.getNegative(FairLossPointToPointLink.class);
+        Negative<Timer> timer = comp.getNegative(Timer.class);
+        TestEvent[] events = {new TestEvent(), new TestEvent(), new TestEvent(), new TestEvent()};
+
+        tc.body().expect(SchedulePeriodicTimeout.class, (SchedulePeriodicTimeout spt) -> true, timer, Direction.OUT);
+        for (TestEvent event : events) {
+            tc.body().trigger(new Send(peer, event), sl);
+        }
+        tc.body()
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 0, events[0]), fll, Direction.OUT)
+                .expect(Send.class, (Send s) -> isFrame(s, 0, 1, events[1]), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 0)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 0, events[0]), fll, Direction.OUT)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 1, events[1]), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 1)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 2, events[2]), fll, Direction.OUT)
+                .trigger(new Deliver(peer, new Ack(PEER_EPOCH, EPOCH, 3)), fll)
+                .expect(Send.class, (Send s) -> isFrame(s, PEER_EPOCH, 3, events[3]), fll, Direction.OUT);
+
+        assertTrue(tc.check());
+    }
+
+    private static TestContext<StubbornPointToPointLinkComp> newContext(StubbornPointToPointLinkComp.Init init) {
+        return TestContext.newInstance(StubbornPointToPointLinkComp.class, init);
+    }
+
+    private static StubbornPointToPointLinkComp.TickTimeout tick() {
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(10, 10);
+        StubbornPointToPointLinkComp.TickTimeout timeout = new StubbornPointToPointLinkComp.TickTimeout(spt);
+        spt.setTimeoutEvent(timeout);
+        return timeout;
+    }
+
+    private boolean isFrame(Send s, long to, long seq, KompicsEvent payload) {
+        if (!s.dest.equals(peer) || !(s.payload instanceof Frame)) {
+            return false;
+        }
+        Frame frame = (Frame) s.payload;
+        return frame.epoch == EPOCH && frame.to == to && frame.seq == seq && frame.payload == payload;
+    }
+
+    private boolean isAck(Send s, long to, long next) {
+        if (!s.dest.equals(peer) || !(s.payload instanceof Ack)) {
+            return false;
+        }
+        Ack ack = (Ack) s.payload;
+        return ack.epoch == EPOCH && ack.to == to && ack.next == next;
+    }
+}
@@ -0,0 +1,56 @@
+package scyuan.irsdp.link;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    @Test
+    public void test() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 10);
+        wheel.schedule("a", 10);
+        wheel.schedule("b", 35);
+        wheel.schedule("c", 90);
+        assertEquals(3, wheel.size());
+
+        List<String> expired = new ArrayList<>();
+        List<Integer> ticks = new ArrayList<>();
+        for (int tick = 1; tick <= 9; tick++) {
+            int before = expired.size();
+            wheel.advance(expired::add);
+            if (expired.size() > before) {
+                ticks.add(tick);
+            }
+        }
+
+        assertEquals(3, expired.size());
+        assertEquals("a", expired.get(0));
+        assertEquals("b", expired.get(1));
+        assertEquals("c", expired.get(2));
+        assertEquals(1, (int) ticks.get(0));
+        assertEquals(4, (int) ticks.get(1));
+        assertEquals(9, (int) ticks.get(2));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rescheduleTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(2, 10);
+        wheel.schedule("a", 20);
+
+        List<String> expired = new ArrayList<>();
+        for (int tick = 1; tick <= 4; tick++) {
+            wheel.advance(item -> {
+                expired.add(item);
+                wheel.schedule(item, 20);
+            });
+        }
+
+        assertEquals(2, expired.size());
+        assertEquals(1, wheel.size());
+    }
+}
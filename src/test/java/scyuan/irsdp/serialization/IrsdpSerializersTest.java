@@ -0,0 +1,172 @@
+package scyuan.irsdp.serialization;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scyuan.irsdp.broadcast.FIFOReliableBroadcastMessage;
+import scyuan.irsdp.broadcast.ReliableBroadcastMessage;
+import scyuan.irsdp.broadcast.WaitingCausalBroadcastMessage;
+import scyuan.irsdp.consensus.State;
+import scyuan.irsdp.failuredetector.HeartBeat;
+import scyuan.irsdp.link.*;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class IrsdpSerializersTest {
+
+    private static NetAddress src;
+    private static NetAddress dst;
+
+    @BeforeClass
+    public static void setUp() throws UnknownHostException {
+        IrsdpSerializers.register();
+        src = new NetAddress(InetAddress.getByName("192.168.0.1"), 5000);
+        dst = new NetAddress(InetAddress.getByName("192.168.0.2"), 5000);
+    }
+
+    @Test
+    public void addressRoundTrip() {
+        NetAddress first = (NetAddress) roundTrip(src);
+        NetAddress second = (NetAddress) roundTrip(src);
+        assertEquals(src, first);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void messageRoundTrip() {
+        Message m = new Message(src, dst, Transport.UDP, new Deliver(src, new HeartBeat(42)));
+        Message copy = (Message) roundTrip(m);
+
+        assertEquals(src, copy.header.src);
+        assertEquals(dst, copy.header.dst);
+        assertEquals(Transport.UDP, copy.header.proto);
+        Deliver deliver = (Deliver) copy.payload;
+        assertEquals(src, deliver.src);
+        assertEquals(42, ((HeartBeat) deliver.payload).epoch);
+    }
+
+    @Test
+    public void sequencedMessageRoundTrip() {
+        Message m = new Message(src, dst, Transport.TCP, new Credit(), Lane.CONTROL, 3, 1700000000000L, 1234567L);
+        Message copy = (Message) roundTrip(m);
+
+        assertEquals(Lane.CONTROL, copy.lane);
+        assertEquals(3, copy.acks);
+        assertEquals(1700000000000L, copy.epoch);
+        assertEquals(1234567L, copy.seq);
+        assertTrue(copy.payload instanceof Credit);
+    }
+
+    @Test
+    public void deliverBatchRoundTrip() {
+        DeliverBatch batch = new DeliverBatch(src, Arrays.asList(new HeartBeat(1), new HeartBeat(2), new HeartBeat(3)));
+        DeliverBatch copy = (DeliverBatch) roundTrip(batch);
+
+        assertEquals(src, copy.src);
+        assertEquals(3, copy.payloads.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, ((HeartBeat) copy.payloads.get(i)).epoch);
+        }
+    }
+
+    @Test
+    public void broadcastRoundTrip() {
+        Set<NetAddress> nodes = new HashSet<>(Arrays.asList(src, dst));
+        ReliableBroadcastMessage rb = (ReliableBroadcastMessage) roundTrip(new ReliableBroadcastMessage(src, 300L, new HeartBeat(7), nodes));
+        assertEquals(src, rb.src);
+        assertEquals(300L, rb.sn);
+        assertEquals(nodes, rb.nodes);
+        assertEquals(7, ((HeartBeat) rb.payload).epoch);
+
+        FIFOReliableBroadcastMessage frb = (FIFOReliableBroadcastMessage) roundTrip(new FIFOReliableBroadcastMessage(src, new HeartBeat(8), 1234567L));
+        assertEquals(src, frb.src);
+        assertEquals(1234567L, frb.sn);
+
+        long[] vectorClock = new long[]{0, 1, 300, Long.MAX_VALUE};
+        WaitingCausalBroadcastMessage crb = (WaitingCausalBroadcastMessage) roundTrip(new WaitingCausalBroadcastMessage(src, new HeartBeat(9), vectorClock));
+        assertArrayEquals(vectorClock, crb.vectorClock);
+    }
+
+    @Test
+    public void stateRoundTrip() {
+        State state = (State) roundTrip(new State(-5, null));
+        assertEquals(-5, state.valts);
+        assertNull(state.val);
+    }
+
+    @Test
+    public void smallerAndFasterThanJavaSerialization() throws IOException, ClassNotFoundException {
+        KompicsEvent payload = new FIFOReliableBroadcastMessage(src, new ReliableBroadcastMessage(src, 0L, new HeartBeat(1), new HashSet<>(Arrays.asList(src, dst))), 99L);
+        Message m = new Message(src, dst, new Deliver(src, payload));
+
+        int compactSize = encode(m).readableBytes();
+        int javaSize = javaSerialize(m).length;
+        log.info("compact: {} bytes, java serialization: {} bytes", compactSize, javaSize);
+        assertTrue(compactSize < javaSize);
+
+        int rounds = 20000;
+        for (int i = 0; i < rounds; i++) {
+            roundTrip(m);
+            javaRoundTrip(m);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            roundTrip(m);
+        }
+        long compactNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            javaRoundTrip(m);
+        }
+        long javaNanos = System.nanoTime() - start;
+        log.info("round trip: compact {} ns/msg, java serialization {} ns/msg", compactNanos / rounds, javaNanos / rounds);
+        assertTrue(compactNanos < javaNanos);
+    }
+
+    private static ByteBuf encode(Object o) {
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(o, buf);
+        return buf;
+    }
+
+    private static Object roundTrip(Object o) {
+        ByteBuf buf = encode(o);
+        Object copy = Serializers.fromBinary(buf, Optional.empty());
+        assertEquals(0, buf.readableBytes());
+        return copy;
+    }
+
+    private static byte[] javaSerialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaRoundTrip(Object o) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaSerialize(o)))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package scyuan.irsdp.sharedmemory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scyuan.irsdp.serialization.IrsdpSerializers;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class SharedMemorySerializerTest {
+
+    @BeforeClass
+    public static void setUp() {
+        IrsdpSerializers.register();
+    }
+
+    @Test
+    public void regularRegisterRoundTrip() {
+        MajorityVotingRegularRegisterComp.ValueMessage value = (MajorityVotingRegularRegisterComp.ValueMessage) roundTrip(new MajorityVotingRegularRegisterComp.ValueMessage(3, 7, "v"));
+        assertEquals(3, value.r);
+        assertEquals(7, value.ts);
+        assertEquals("v", value.val);
+        assertEquals(7, ((MajorityVotingRegularRegisterComp.AckMessage) roundTrip(new MajorityVotingRegularRegisterComp.AckMessage(7))).ts);
+        assertEquals(3, ((MajorityVotingRegularRegisterComp.ReadMessage) roundTrip(new MajorityVotingRegularRegisterComp.ReadMessage(3))).rid);
+        MajorityVotingRegularRegisterComp.WriteMessage write = (MajorityVotingRegularRegisterComp.WriteMessage) roundTrip(new MajorityVotingRegularRegisterComp.WriteMessage(8, "w"));
+        assertEquals(8, write.wts);
+        assertEquals("w", write.v);
+    }
+
+    @Test
+    public void writeAllRegistersRoundTrip() {
+        assertTrue(roundTrip(new ReadImposeWriteAllAtomicRegisterComp.AckMessage()) instanceof ReadImposeWriteAllAtomicRegisterComp.AckMessage);
+        ReadImposeWriteAllAtomicRegisterComp.WriteMessage imposeAll = (ReadImposeWriteAllAtomicRegisterComp.WriteMessage) roundTrip(new ReadImposeWriteAllAtomicRegisterComp.WriteMessage(new TimeValueTuple(5, "v")));
+        assertEquals(new TimeValueTuple(5, "v"), imposeAll.timeValueTuple);
+
+        assertTrue(roundTrip(new ReadImposeWriteConsultAllAtomicRegisterComp.AckMessage()) instanceof ReadImposeWriteConsultAllAtomicRegisterComp.AckMessage);
+        ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage consultAll = (ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage) roundTrip(new ReadImposeWriteConsultAllAtomicRegisterComp.WriteMessage(5, 2, "v"));
+        assertEquals(5, consultAll.ts);
+        assertEquals(2, consultAll.ws);
+        assertEquals("v", consultAll.val);
+
+        assertTrue(roundTrip(new AckMessage()) instanceof AckMessage);
+        assertEquals("v", ((Write) roundTrip(new Write("v"))).value);
+    }
+
+    @Test
+    public void imposeMajorityRoundTrip() {
+        ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage value = (ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage) roundTrip(new ReadImposeWriteMajorityAtomicRegisterComp.ValueMessage(1, 4, "v"));
+        assertEquals(1, value.rid);
+        assertEquals(4, value.ts);
+        assertEquals("v", value.val);
+        assertEquals(1, ((ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage) roundTrip(new ReadImposeWriteMajorityAtomicRegisterComp.ReadMessage(1))).rid);
+        assertEquals(1, ((ReadImposeWriteMajorityAtomicRegisterComp.AckMessage) roundTrip(new ReadImposeWriteMajorityAtomicRegisterComp.AckMessage(1))).rid);
+        ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage write = (ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage) roundTrip(new ReadImposeWriteMajorityAtomicRegisterComp.WriteMessage(1, 5, null));
+        assertEquals(5, write.ts);
+        assertNull(write.val);
+    }
+
+    private static Object roundTrip(Object o) {
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(o, buf);
+        Object copy = Serializers.fromBinary(buf, Optional.empty());
+        assertEquals(0, buf.readableBytes());
+        return copy;
+    }
+}
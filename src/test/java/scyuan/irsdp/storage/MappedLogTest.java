@@ -0,0 +1,142 @@
+package scyuan.irsdp.storage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class MappedLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayAfterReopen() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (MappedLog log = new MappedLog(dir, 64)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(record("record-" + i));
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() > 1);
+        }
+
+        try (MappedLog log = new MappedLog(dir, 64)) {
+            List<String> records = replay(log);
+            assertEquals(10, records.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("record-" + i, records.get(i));
+            }
+            log.append(record("record-10"));
+            assertEquals("record-10", replay(log).get(10));
+        }
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        long position;
+        try (MappedLog log = new MappedLog(dir, 1024)) {
+            log.append(record("first"));
+            position = log.append(record("second"));
+        }
+        try (Stream<Path> files = Files.list(dir);
+             FileChannel channel = FileChannel.open(files.collect(Collectors.toList()).get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), position + 8);
+        }
+
+        try (MappedLog log = new MappedLog(dir, 1024)) {
+            assertEquals(1, replay(log).size());
+            assertEquals(position, log.append(record("third")));
+            List<String> records = replay(log);
+            assertEquals("first", records.get(0));
+            assertEquals("third", records.get(1));
+        }
+    }
+
+    @Test
+    public void truncateKeepsLaterSegments() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (MappedLog log = new MappedLog(dir, 64)) {
+            List<Long> positions = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                positions.add(log.append(record("record-" + i)));
+            }
+            log.truncateBefore(positions.get(6));
+            List<String> records = replay(log);
+            assertEquals("record-9", records.get(records.size() - 1));
+            assertTrue(records.contains("record-6"));
+            assertFalse(records.contains("record-0"));
+        }
+        try (MappedLog log = new MappedLog(dir, 64)) {
+            List<String> records = replay(log);
+            assertTrue(records.contains("record-6"));
+            assertFalse(records.contains("record-0"));
+        }
+    }
+
+    /**
+     * Forcing after every append, as a log without group commit does, against one force per batch
+     * of 64 appends.
+     */
+    @Test
+    public void groupCommitAgainstForcePerRecord() throws IOException {
+        int records = 2000;
+        int batch = 64;
+
+        long start = System.nanoTime();
+        try (MappedLog log = new MappedLog(folder.newFolder("single").toPath(), 1 << 20)) {
+            for (int i = 0; i < records; i++) {
+                log.append(record("record-" + i));
+                log.force();
+            }
+            assertEquals(records, log.forces());
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        try (MappedLog log = new MappedLog(folder.newFolder("group").toPath(), 1 << 20)) {
+            for (int i = 0; i < records; i++) {
+                log.append(record("record-" + i));
+                if ((i + 1) % batch == 0) {
+                    log.force();
+                }
+            }
+            log.force();
+            // nothing left to write, so not counted
+            log.force();
+            assertEquals(records, replay(log).size());
+            assertEquals((records + batch - 1) / batch, log.forces());
+        }
+        long groupNanos = System.nanoTime() - start;
+        log.info("force per record: {} ns/record, group commit of {}: {} ns/record", singleNanos / records, batch, groupNanos / records);
+    }
+
+    private static ByteBuf record(String s) {
+        return Unpooled.copiedBuffer(s, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> replay(MappedLog log) {
+        List<String> records = new ArrayList<>();
+        log.replay((record, position) -> records.add(record.toString(StandardCharsets.UTF_8)));
+        return records;
+    }
+}